@@ -0,0 +1,256 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import com.github.cilki.tree_constants.Node.Leaf;
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+
+/**
+ * Generates a bit set companion for the {@code int} constants of a root. Each
+ * distinct value is assigned a dense bit index in depth-first order, so a set
+ * of constants is a {@code long[]} and membership tests are word operations
+ * without boxing or hashing. The companion mirrors the tree with the bit index
+ * of every {@code int} leaf and precomputes a mask of every subtree that
+ * contains {@code int} constants.
+ * 
+ * @author cilki
+ * @since 1.0.0
+ */
+final class BitsGenerator {
+
+	/**
+	 * Build the bit set class of a root.
+	 * 
+	 * @param root    The root of the tree
+	 * @param sharder Places the bit index fields of each mirror class
+	 * @return The bit set class or {@code null} if the tree has no {@code int}
+	 *         constants
+	 */
+	public static TypeSpec.Builder generate(Node root, Sharder sharder) {
+		ClassName bitsClass = ClassName.get(root.packageName, root.name + "Bits");
+
+		// Values are sorted so that they can be found with a binary search
+		Map<Integer, Integer> bits = new TreeMap<>();
+		TypeSpec.Builder type = mirror(root, bitsClass.simpleName(), bitsClass, bits, new BitSet(), sharder);
+		if (type == null)
+			return null;
+
+		int size = bits.size();
+		int words = (size + 63) / 64;
+		var literals = new Literals();
+
+		// The root mirrors the top-level leaves, which can't be named like these fields
+		type.addJavadoc("Bit sets over the {@code int} constants of {@link $T}. A set is a {@code long[]} of\n",
+				ClassName.get(root.packageName, root.name))
+				.addJavadoc("{@link #$$WORDS} words and every method is allocation free except {@link #newSet()}.\n")
+				.addField(FieldSpec.builder(TypeName.INT, "$SIZE", PUBLIC, STATIC, FINAL)
+						.addJavadoc("The number of distinct constants.\n").initializer("$L", size).build())
+				.addField(FieldSpec.builder(TypeName.INT, "$WORDS", PUBLIC, STATIC, FINAL)
+						.addJavadoc("The number of words in a set.\n").initializer("$L", words).build())
+				.addField(FieldSpec.builder(ArrayTypeName.of(TypeName.INT), "$VALUES", PRIVATE, STATIC, FINAL)
+						.initializer(literals.ints(bits.keySet().stream().mapToInt(Integer::intValue).toArray()))
+						.build())
+				.addField(FieldSpec.builder(ArrayTypeName.of(TypeName.INT), "$BITS", PRIVATE, STATIC, FINAL)
+						.initializer(literals.ints(bits.values().stream().mapToInt(Integer::intValue).toArray()))
+						.build());
+
+		type.addMethod(MethodSpec.methodBuilder("bit").addModifiers(PUBLIC, STATIC).returns(TypeName.INT)
+				.addParameter(TypeName.INT, "value").addJavadoc("Get the bit index of a constant.\n\n")
+				.addJavadoc("@param value The constant value\n")
+				.addJavadoc("@return The bit index or {@code -1} if no leaf has the value\n")
+				.addStatement("int i = $T.binarySearch($$VALUES, value)", Arrays.class)
+				.addStatement("return i < 0 ? -1 : $$BITS[i]").build());
+
+		type.addMethod(MethodSpec.methodBuilder("addBit").addModifiers(PUBLIC, STATIC)
+				.addParameter(long[].class, "set").addParameter(TypeName.INT, "bit")
+				.addJavadoc("Add a constant to a set by its bit index, such as {@code $T.a.b}.\n\n", bitsClass)
+				.addJavadoc("@param set The set\n").addJavadoc("@param bit The constant's bit index\n")
+				.addStatement("set[bit >>> 6] |= 1L << bit").build());
+
+		type.addMethod(MethodSpec.methodBuilder("removeBit").addModifiers(PUBLIC, STATIC)
+				.addParameter(long[].class, "set").addParameter(TypeName.INT, "bit")
+				.addJavadoc("Remove a constant from a set by its bit index.\n\n").addJavadoc("@param set The set\n")
+				.addJavadoc("@param bit The constant's bit index\n").addStatement("set[bit >>> 6] &= ~(1L << bit)")
+				.build());
+
+		type.addMethod(MethodSpec.methodBuilder("containsBit").addModifiers(PUBLIC, STATIC)
+				.returns(TypeName.BOOLEAN).addParameter(long[].class, "set").addParameter(TypeName.INT, "bit")
+				.addJavadoc("Check whether a set contains a constant by its bit index.\n\n")
+				.addJavadoc("@param set The set\n").addJavadoc("@param bit The constant's bit index\n")
+				.addJavadoc("@return Whether the constant is in the set\n")
+				.addStatement("return (set[bit >>> 6] & 1L << bit) != 0").build());
+
+		type.addMethod(MethodSpec.methodBuilder("newSet").addModifiers(PUBLIC, STATIC)
+				.returns(ArrayTypeName.of(TypeName.LONG)).addJavadoc("Create an empty set.\n\n")
+				.addJavadoc("@return The new set\n").addStatement("return new long[$$WORDS]").build());
+
+		type.addMethod(MethodSpec.methodBuilder("add").addModifiers(PUBLIC, STATIC)
+				.addParameter(long[].class, "set").addParameter(TypeName.INT, "value")
+				.addJavadoc("Add a constant to a set.\n\n").addJavadoc("@param set   The set\n")
+				.addJavadoc("@param value The constant value\n")
+				.addJavadoc("@throws IllegalArgumentException If no leaf has the value\n")
+				.addStatement("int bit = bit(value)").beginControlFlow("if (bit < 0)")
+				.addStatement("throw new $T($S + value)", IllegalArgumentException.class,
+						"Not a constant of " + root.name + ": ")
+				.endControlFlow().addStatement("set[bit >>> 6] |= 1L << bit").build());
+
+		type.addMethod(MethodSpec.methodBuilder("remove").addModifiers(PUBLIC, STATIC)
+				.addParameter(long[].class, "set").addParameter(TypeName.INT, "value")
+				.addJavadoc("Remove a constant from a set.\n\n").addJavadoc("@param set   The set\n")
+				.addJavadoc("@param value The constant value\n").addStatement("int bit = bit(value)")
+				.beginControlFlow("if (bit >= 0)").addStatement("set[bit >>> 6] &= ~(1L << bit)").endControlFlow()
+				.build());
+
+		type.addMethod(MethodSpec.methodBuilder("contains").addModifiers(PUBLIC, STATIC).returns(TypeName.BOOLEAN)
+				.addParameter(long[].class, "set").addParameter(TypeName.INT, "value")
+				.addJavadoc("Check whether a set contains a constant.\n\n").addJavadoc("@param set   The set\n")
+				.addJavadoc("@param value The constant value\n").addJavadoc("@return Whether the value is in the set\n")
+				.addStatement("int bit = bit(value)")
+				.addStatement("return bit >= 0 && (set[bit >>> 6] & 1L << bit) != 0").build());
+
+		type.addMethod(MethodSpec.methodBuilder("containsAll").addModifiers(PUBLIC, STATIC)
+				.returns(TypeName.BOOLEAN).addParameter(long[].class, "set").addParameter(long[].class, "mask")
+				.addJavadoc("Check whether a set contains every constant of a mask.\n\n")
+				.addJavadoc("@param set  The set\n").addJavadoc("@param mask The mask\n")
+				.addJavadoc("@return Whether the set is a superset of the mask\n")
+				.beginControlFlow("for (int i = 0; i < $$WORDS; i++)")
+				.beginControlFlow("if ((set[i] & mask[i]) != mask[i])").addStatement("return false").endControlFlow()
+				.endControlFlow().addStatement("return true").build());
+
+		type.addMethod(MethodSpec.methodBuilder("containsAny").addModifiers(PUBLIC, STATIC)
+				.returns(TypeName.BOOLEAN).addParameter(long[].class, "set").addParameter(long[].class, "mask")
+				.addJavadoc("Check whether a set contains any constant of a mask.\n\n")
+				.addJavadoc("@param set  The set\n").addJavadoc("@param mask The mask\n")
+				.addJavadoc("@return Whether the set intersects the mask\n")
+				.beginControlFlow("for (int i = 0; i < $$WORDS; i++)")
+				.beginControlFlow("if ((set[i] & mask[i]) != 0)").addStatement("return true").endControlFlow()
+				.endControlFlow().addStatement("return false").build());
+
+		type.addMethod(MethodSpec.methodBuilder("union").addModifiers(PUBLIC, STATIC)
+				.addParameter(long[].class, "a").addParameter(long[].class, "b").addParameter(long[].class, "into")
+				.addJavadoc("Compute the union of two sets.\n\n").addJavadoc("@param a    The first set\n")
+				.addJavadoc("@param b    The second set\n")
+				.addJavadoc("@param into The set that receives the result, which may be either input\n")
+				.beginControlFlow("for (int i = 0; i < $$WORDS; i++)").addStatement("into[i] = a[i] | b[i]")
+				.endControlFlow().build());
+
+		type.addMethod(MethodSpec.methodBuilder("intersect").addModifiers(PUBLIC, STATIC)
+				.addParameter(long[].class, "a").addParameter(long[].class, "b").addParameter(long[].class, "into")
+				.addJavadoc("Compute the intersection of two sets.\n\n").addJavadoc("@param a    The first set\n")
+				.addJavadoc("@param b    The second set\n")
+				.addJavadoc("@param into The set that receives the result, which may be either input\n")
+				.beginControlFlow("for (int i = 0; i < $$WORDS; i++)").addStatement("into[i] = a[i] & b[i]")
+				.endControlFlow().build());
+
+		type.addMethod(MethodSpec.methodBuilder("range").addModifiers(PRIVATE, STATIC)
+				.returns(ArrayTypeName.of(TypeName.LONG)).addParameter(TypeName.INT, "from")
+				.addParameter(TypeName.INT, "to").addParameter(int[].class, "extra").varargs()
+				.addStatement("long[] mask = new long[$$WORDS]")
+				.beginControlFlow("for (int bit = from; bit < to; bit++)").addStatement("mask[bit >>> 6] |= 1L << bit")
+				.endControlFlow().beginControlFlow("for (int bit : extra)")
+				.addStatement("mask[bit >>> 6] |= 1L << bit").endControlFlow().addStatement("return mask").build());
+
+		literals.addDecoders(type);
+		return type;
+	}
+
+	/**
+	 * Build the mirror class of a node and assign bits to its constants.
+	 * 
+	 * @param node      The node
+	 * @param name      The mirror's name
+	 * @param bitsClass The bit set class
+	 * @param bits      Maps each constant to its bit
+	 * @param mask      Receives the bits of the subtree
+	 * @param sharder   Places the bit index fields
+	 * @return The mirror class or {@code null} if the subtree has no {@code int}
+	 *         constants
+	 */
+	private static TypeSpec.Builder mirror(Node node, String name, ClassName bitsClass, Map<Integer, Integer> bits,
+			BitSet mask, Sharder sharder) {
+		// Bits assigned within this subtree form a contiguous range
+		int start = bits.size();
+		var type = TypeSpec.classBuilder(name).addModifiers(PUBLIC, FINAL);
+
+		List<FieldSpec> fields = new ArrayList<>();
+		for (Leaf leaf : node.leaves()) {
+			if (leaf.value instanceof Integer) {
+				int next = bits.size();
+				Integer bit = bits.putIfAbsent((Integer) leaf.value, next);
+				mask.set(bit == null ? next : bit);
+
+				fields.add(FieldSpec.builder(TypeName.INT, leaf.name, PUBLIC, STATIC, FINAL)
+						.initializer("$L", bit == null ? next : bit).build());
+			}
+		}
+		sharder.addFields(fields, type);
+
+		for (Node child : node.children()) {
+			var childMask = new BitSet();
+			var childType = mirror(child, child.name, bitsClass, bits, childMask, sharder);
+			if (childType != null) {
+				type.addType(childType.addModifiers(STATIC).build());
+				mask.or(childMask);
+			}
+		}
+
+		if (mask.isEmpty())
+			return null;
+
+		// Constants that share a value with an earlier leaf keep the earlier bit
+		String extra = mask.stream().filter(bit -> bit < start).mapToObj(bit -> ", " + bit)
+				.collect(Collectors.joining());
+
+		// Leaves can't be named like this field
+		type.addField(FieldSpec.builder(ArrayTypeName.of(TypeName.LONG), "$MASK", PRIVATE, STATIC, FINAL)
+				.initializer("$T.range($L, $L$L)", bitsClass, start, bits.size(), extra).build());
+		type.addMethod(MethodSpec.methodBuilder("mask").addModifiers(PUBLIC, STATIC)
+				.returns(ArrayTypeName.of(TypeName.LONG))
+				.addJavadoc("Get the set of every {@code int} constant in this subtree.\n\n")
+				.addJavadoc("@return A new copy of the mask\n").addStatement("return $$MASK.clone()").build());
+		type.addMethod(MethodSpec.methodBuilder("intersects").addModifiers(PUBLIC, STATIC)
+				.returns(TypeName.BOOLEAN).addParameter(long[].class, "set")
+				.addJavadoc("Check whether a set contains any {@code int} constant in this subtree without\n")
+				.addJavadoc("copying the mask.\n\n").addJavadoc("@param set The set\n")
+				.addJavadoc("@return Whether the set intersects this subtree\n")
+				.addStatement("return $T.containsAny(set, $$MASK)", bitsClass).build());
+
+		return type.addMethod(MethodSpec.constructorBuilder().addModifiers(PRIVATE).build());
+	}
+
+	private BitsGenerator() {
+	}
+}
@@ -0,0 +1,369 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.lang.model.SourceVersion;
+
+import com.github.cilki.tree_constants.Node.Leaf;
+
+/**
+ * Writes the classes of a constant tree directly as class files, so javac
+ * does not have to parse and compile generated source in another round.
+ * <p>
+ * Each node becomes a public final class with a private constructor. Constant
+ * leaves become fields with a {@code ConstantValue} attribute, so they are
+ * inlined exactly like fields compiled from source. Other leaves are copied
+ * from their source fields in a static initializer. The tree must be
+ * {@link Node#resolve resolved} and every leaf must have a
+ * {@link Leaf#descriptor}.
+ * 
+ * @author cilki
+ * @since 1.0.0
+ */
+final class BytecodeGenerator {
+
+	private static final int ACC_PUBLIC = 0x0001;
+	private static final int ACC_PRIVATE = 0x0002;
+	private static final int ACC_STATIC = 0x0008;
+	private static final int ACC_FINAL = 0x0010;
+	private static final int ACC_SUPER = 0x0020;
+
+	private static final int ALOAD_0 = 0x2a;
+	private static final int RETURN = 0xb1;
+	private static final int GETSTATIC = 0xb2;
+	private static final int PUTSTATIC = 0xb3;
+	private static final int INVOKESPECIAL = 0xb7;
+
+	/**
+	 * The maximum size of a method's code.
+	 */
+	private static final int MAX_CODE = 65535;
+
+	/**
+	 * The major class file version.
+	 */
+	private final int version;
+
+	/**
+	 * @param source The source version of the compilation
+	 */
+	public BytecodeGenerator(SourceVersion source) {
+		// RELEASE_5 is class file version 49, RELEASE_11 is 55 and so on
+		this.version = Math.max(49, 44 + source.ordinal());
+	}
+
+	/**
+	 * Build the class files of a tree.
+	 * 
+	 * @param root The root {@link Node}
+	 * @return The class files indexed by binary name or {@code null} if some class
+	 *         exceeds a class file limit
+	 */
+	public Map<String, byte[]> generate(Node root) {
+		String internalName = root.packageName.isEmpty() ? root.name
+				: root.packageName.replace('.', '/') + "/" + root.name;
+
+		Map<String, byte[]> classes = new LinkedHashMap<>();
+		try {
+			generate(root, internalName, new ArrayList<>(), classes);
+		} catch (IOException | IllegalStateException e) {
+			return null;
+		}
+		return classes;
+	}
+
+	/**
+	 * Build the class files of a node and its descendants.
+	 * 
+	 * @param node         The node
+	 * @param internalName The node's internal class name
+	 * @param enclosing    The InnerClasses entries of the node and its enclosing
+	 *                     classes as {inner, outer, simple name}
+	 * @param classes      The output
+	 */
+	private void generate(Node node, String internalName, List<String[]> enclosing, Map<String, byte[]> classes)
+			throws IOException {
+		var pool = new ConstantPool();
+		var body = new ByteArrayOutputStream();
+		var out = new DataOutputStream(body);
+
+		out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+		out.writeShort(pool.classRef(internalName));
+		out.writeShort(pool.classRef("java/lang/Object"));
+		out.writeShort(0);
+
+		// Add constants
+		List<Leaf> references = new ArrayList<>();
+		out.writeShort(node.leaves().size());
+		for (Leaf leaf : node.leaves()) {
+			out.writeShort(ACC_PUBLIC | ACC_STATIC | ACC_FINAL);
+			out.writeShort(pool.utf8(leaf.name));
+			out.writeShort(pool.utf8(leaf.descriptor));
+			if (leaf.value != null) {
+				out.writeShort(1);
+				out.writeShort(pool.utf8("ConstantValue"));
+				out.writeInt(2);
+				out.writeShort(pool.constant(leaf.value));
+			} else {
+				out.writeShort(0);
+				references.add(leaf);
+			}
+		}
+
+		out.writeShort(references.isEmpty() ? 1 : 2);
+
+		// Add private constructor
+		var initCode = new ByteArrayOutputStream();
+		var init = new DataOutputStream(initCode);
+		init.writeByte(ALOAD_0);
+		init.writeByte(INVOKESPECIAL);
+		init.writeShort(pool.methodRef("java/lang/Object", "<init>", "()V"));
+		init.writeByte(RETURN);
+		writeMethod(out, pool, ACC_PRIVATE, "<init>", 1, 1, initCode);
+
+		// Copy the other leaves from their source fields
+		if (!references.isEmpty()) {
+			var clinitCode = new ByteArrayOutputStream();
+			var clinit = new DataOutputStream(clinitCode);
+			for (Leaf leaf : references) {
+				clinit.writeByte(GETSTATIC);
+				clinit.writeShort(pool.fieldRef(leaf.owner, leaf.element.getSimpleName().toString(), leaf.descriptor));
+				clinit.writeByte(PUTSTATIC);
+				clinit.writeShort(pool.fieldRef(internalName, leaf.name, leaf.descriptor));
+			}
+			clinit.writeByte(RETURN);
+			writeMethod(out, pool, ACC_STATIC, "<clinit>", 2, 0, clinitCode);
+		}
+
+		// Every nested class in the constant pool needs an InnerClasses entry
+		List<String[]> inner = new ArrayList<>(enclosing);
+		for (Node child : node.children())
+			inner.add(new String[] { internalName + "$" + child.name, internalName, child.name });
+
+		if (inner.isEmpty()) {
+			out.writeShort(0);
+		} else {
+			out.writeShort(1);
+			out.writeShort(pool.utf8("InnerClasses"));
+			out.writeInt(2 + 8 * inner.size());
+			out.writeShort(inner.size());
+			for (String[] entry : inner) {
+				out.writeShort(pool.classRef(entry[0]));
+				out.writeShort(pool.classRef(entry[1]));
+				out.writeShort(pool.utf8(entry[2]));
+				out.writeShort(ACC_PUBLIC | ACC_STATIC | ACC_FINAL);
+			}
+		}
+
+		var file = new ByteArrayOutputStream(body.size() + pool.bytes.size() + 10);
+		var header = new DataOutputStream(file);
+		header.writeInt(0xCAFEBABE);
+		header.writeShort(0);
+		header.writeShort(version);
+		header.writeShort(pool.count);
+		pool.bytes.writeTo(file);
+		body.writeTo(file);
+		classes.put(internalName.replace('/', '.'), file.toByteArray());
+
+		for (Node child : node.children()) {
+			String childName = internalName + "$" + child.name;
+
+			List<String[]> childEnclosing = new ArrayList<>(enclosing);
+			childEnclosing.add(new String[] { childName, internalName, child.name });
+			generate(child, childName, childEnclosing, classes);
+		}
+	}
+
+	/**
+	 * Write a method with a {@code Code} attribute.
+	 * 
+	 * @param out       The class file
+	 * @param pool      The constant pool
+	 * @param access    The access flags
+	 * @param name      The method name
+	 * @param maxStack  The maximum operand stack depth
+	 * @param maxLocals The number of local variables
+	 * @param code      The instructions
+	 */
+	private static void writeMethod(DataOutputStream out, ConstantPool pool, int access, String name, int maxStack,
+			int maxLocals, ByteArrayOutputStream code) throws IOException {
+		if (code.size() > MAX_CODE)
+			throw new IllegalStateException("Method too large: " + name);
+
+		out.writeShort(access);
+		out.writeShort(pool.utf8(name));
+		out.writeShort(pool.utf8("()V"));
+		out.writeShort(1);
+		out.writeShort(pool.utf8("Code"));
+		out.writeInt(12 + code.size());
+		out.writeShort(maxStack);
+		out.writeShort(maxLocals);
+		out.writeInt(code.size());
+		code.writeTo(out);
+		out.writeShort(0);
+		out.writeShort(0);
+	}
+
+	/**
+	 * A class file constant pool that reuses equal entries.
+	 */
+	private static final class ConstantPool {
+
+		private final Map<String, Integer> indices = new HashMap<>();
+
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		private final DataOutputStream out = new DataOutputStream(bytes);
+
+		/**
+		 * The constant pool count, which is one more than the last index.
+		 */
+		int count = 1;
+
+		public int utf8(String value) throws IOException {
+			String key = "U" + value;
+			Integer index = indices.get(key);
+			if (index != null)
+				return index;
+
+			out.writeByte(1);
+			out.writeUTF(value);
+			return register(key, 1);
+		}
+
+		public int classRef(String internalName) throws IOException {
+			String key = "C" + internalName;
+			Integer index = indices.get(key);
+			if (index != null)
+				return index;
+
+			int name = utf8(internalName);
+			out.writeByte(7);
+			out.writeShort(name);
+			return register(key, 1);
+		}
+
+		public int fieldRef(String owner, String name, String descriptor) throws IOException {
+			return memberRef(9, owner, name, descriptor);
+		}
+
+		public int methodRef(String owner, String name, String descriptor) throws IOException {
+			return memberRef(10, owner, name, descriptor);
+		}
+
+		private int memberRef(int tag, String owner, String name, String descriptor) throws IOException {
+			String key = tag + owner + "." + name + ":" + descriptor;
+			Integer index = indices.get(key);
+			if (index != null)
+				return index;
+
+			int ownerIndex = classRef(owner);
+			int nameAndType = nameAndType(name, descriptor);
+			out.writeByte(tag);
+			out.writeShort(ownerIndex);
+			out.writeShort(nameAndType);
+			return register(key, 1);
+		}
+
+		private int nameAndType(String name, String descriptor) throws IOException {
+			String key = "N" + name + ":" + descriptor;
+			Integer index = indices.get(key);
+			if (index != null)
+				return index;
+
+			int nameIndex = utf8(name);
+			int descriptorIndex = utf8(descriptor);
+			out.writeByte(12);
+			out.writeShort(nameIndex);
+			out.writeShort(descriptorIndex);
+			return register(key, 1);
+		}
+
+		/**
+		 * Add a constant that can be the value of a {@code ConstantValue}
+		 * attribute.
+		 * 
+		 * @param value The constant
+		 * @return The constant's index
+		 */
+		public int constant(Object value) throws IOException {
+			if (value instanceof String) {
+				String key = "S" + value;
+				Integer index = indices.get(key);
+				if (index != null)
+					return index;
+
+				int utf8 = utf8((String) value);
+				out.writeByte(8);
+				out.writeShort(utf8);
+				return register(key, 1);
+			}
+
+			// Keys use the raw bits so -0.0 and NaN are distinct from 0.0
+			if (value instanceof Long)
+				return number("J" + value, 5, 2, (long) value);
+			if (value instanceof Double)
+				return number("D" + Double.doubleToRawLongBits((double) value), 6, 2,
+						Double.doubleToRawLongBits((double) value));
+			if (value instanceof Float)
+				return number("F" + Float.floatToRawIntBits((float) value), 4, 1,
+						Float.floatToRawIntBits((float) value));
+
+			int integer;
+			if (value instanceof Boolean)
+				integer = (boolean) value ? 1 : 0;
+			else if (value instanceof Character)
+				integer = (char) value;
+			else
+				integer = ((Number) value).intValue();
+			return number("I" + integer, 3, 1, integer);
+		}
+
+		private int number(String key, int tag, int slots, long bits) throws IOException {
+			Integer index = indices.get(key);
+			if (index != null)
+				return index;
+
+			out.writeByte(tag);
+			if (slots == 2)
+				out.writeLong(bits);
+			else
+				out.writeInt((int) bits);
+			return register(key, slots);
+		}
+
+		private int register(String key, int slots) {
+			int index = count;
+			count += slots;
+			if (count > 65535)
+				throw new IllegalStateException("Constant pool overflow");
+
+			indices.put(key, index);
+			return index;
+		}
+	}
+}
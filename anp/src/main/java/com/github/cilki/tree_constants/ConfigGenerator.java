@@ -0,0 +1,263 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static javax.lang.model.element.Modifier.ABSTRACT;
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.github.cilki.tree_constants.Node.Leaf;
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+
+/**
+ * Generates a versioned configuration class for a root. Values live in
+ * immutable snapshots indexed by leaf ordinal. Readers see the current
+ * snapshot with one volatile read, and writers publish a modified copy with a
+ * compare-and-set. Listeners subscribe to a node and only run when a leaf in
+ * that node's subtree changes. Each leaf records its node and each node its
+ * parent, so a change walks up the tree once.
+ * 
+ * @author cilki
+ * @since 1.0.0
+ */
+final class ConfigGenerator {
+
+	/**
+	 * Build the configuration class of a root. The tree's ordinals must be
+	 * assigned first.
+	 * 
+	 * @param root The root of the tree
+	 * @param size The number of leaves in the tree
+	 * @return The configuration class
+	 */
+	public static TypeSpec.Builder generate(Node root, int size) {
+		ClassName rootClass = ClassName.get(root.packageName, root.name);
+		ClassName configClass = ClassName.get(root.packageName, root.name + "Config");
+		ClassName snapshot = configClass.nestedClass("Snapshot");
+		ClassName editor = configClass.nestedClass("Editor");
+		ClassName listener = configClass.nestedClass("Listener");
+		TypeName listeners = ArrayTypeName.of(listener);
+
+		// Number the nodes in depth-first order
+		List<String> nodes = new ArrayList<>();
+		List<Integer> parents = new ArrayList<>();
+		int[] leafNodes = new int[size];
+		layout(root, "", 0, nodes, parents, leafNodes);
+
+		var literals = new Literals();
+		var type = TypeSpec.classBuilder(configClass).addModifiers(PUBLIC, FINAL)
+				.addJavadoc("Versioned configuration for the leaves of {@link $T}, indexed by the ordinals in\n",
+						rootClass)
+				.addJavadoc("{@link $T}. Reads are wait-free and writes are published atomically as new\n",
+						ClassName.get(root.packageName, root.name + "Ordinal"))
+				.addJavadoc("snapshots. Listeners are scoped to the subtree of a node.\n");
+
+		type.addField(FieldSpec.builder(TypeName.INT, "SIZE", PUBLIC, STATIC, FINAL)
+				.addJavadoc("The number of leaves in the tree.\n").initializer("$L", size).build());
+		type.addField(FieldSpec.builder(ArrayTypeName.of(String.class), "NODES", PRIVATE, STATIC, FINAL)
+				.initializer(literals.strings(nodes)).build());
+		type.addField(FieldSpec.builder(ArrayTypeName.of(TypeName.INT), "NODE_PARENTS", PRIVATE, STATIC, FINAL)
+				.initializer(literals.ints(parents.stream().mapToInt(Integer::intValue).toArray())).build());
+		type.addField(FieldSpec.builder(ArrayTypeName.of(TypeName.INT), "LEAF_NODES", PRIVATE, STATIC, FINAL)
+				.initializer(literals.ints(leafNodes)).build());
+		type.addField(FieldSpec.builder(ParameterizedTypeName.get(Map.class, String.class, Integer.class),
+				"NODE_INDEX", PRIVATE, STATIC, FINAL).initializer("index()").build());
+
+		type.addField(FieldSpec.builder(ParameterizedTypeName.get(ClassName.get(AtomicReference.class), snapshot),
+				"current", PRIVATE, FINAL).initializer("new $T<>(new $T(0, new Object[SIZE]))", AtomicReference.class,
+						snapshot)
+				.build());
+		type.addField(FieldSpec
+				.builder(ParameterizedTypeName.get(ClassName.get(AtomicReferenceArray.class), listeners), "listeners",
+						PRIVATE, FINAL)
+				.initializer("new $T<>(NODES.length)", AtomicReferenceArray.class).build());
+
+		type.addMethod(MethodSpec.methodBuilder("snapshot").addModifiers(PUBLIC).returns(snapshot)
+				.addJavadoc("Get the current values without blocking.\n\n")
+				.addJavadoc("@return The current snapshot, which never changes\n").addStatement("return current.get()")
+				.build());
+
+		type.addMethod(MethodSpec.methodBuilder("edit").addModifiers(PUBLIC).returns(editor)
+				.addJavadoc("Start a set of changes that are published together.\n\n")
+				.addJavadoc("@return A new editor\n").addStatement("return new $T()", editor).build());
+
+		type.addMethod(MethodSpec.methodBuilder("subscribe").addModifiers(PUBLIC)
+				.addParameter(String.class, "path").addParameter(listener, "listener")
+				.addJavadoc("Run a listener whenever a leaf under a node changes.\n\n")
+				.addJavadoc("@param path     The dot separated path of the node (empty for the root)\n")
+				.addJavadoc("@param listener The listener\n")
+				.addJavadoc("@throws IllegalArgumentException If the tree has no such node\n")
+				.addStatement("int node = node(path)").addStatement("$T previous", listeners)
+				.addStatement("$T next", listeners).beginControlFlow("do")
+				.addStatement("previous = listeners.get(node)")
+				.beginControlFlow("if (previous == null)").addStatement("next = new $T { listener }", listeners)
+				.nextControlFlow("else").addStatement("next = $T.copyOf(previous, previous.length + 1)", Arrays.class)
+				.addStatement("next[previous.length] = listener").endControlFlow()
+				.endControlFlow("while (!listeners.compareAndSet(node, previous, next))").build());
+
+		type.addMethod(MethodSpec.methodBuilder("unsubscribe").addModifiers(PUBLIC)
+				.addParameter(String.class, "path").addParameter(listener, "listener")
+				.addJavadoc("Remove a listener from a node.\n\n")
+				.addJavadoc("@param path     The dot separated path of the node (empty for the root)\n")
+				.addJavadoc("@param listener The listener\n")
+				.addJavadoc("@throws IllegalArgumentException If the tree has no such node\n")
+				.addStatement("int node = node(path)").addStatement("$T previous", listeners)
+				.addStatement("$T next", listeners).beginControlFlow("do")
+				.addStatement("previous = listeners.get(node)")
+				.addStatement("int i = 0")
+				.beginControlFlow("while (previous != null && i < previous.length && previous[i] != listener)")
+				.addStatement("i++").endControlFlow()
+				.beginControlFlow("if (previous == null || i == previous.length)").addStatement("return")
+				.endControlFlow().beginControlFlow("if (previous.length == 1)").addStatement("next = null")
+				.nextControlFlow("else").addStatement("next = new $T[previous.length - 1]", listener)
+				.addStatement("$T.arraycopy(previous, 0, next, 0, i)", System.class)
+				.addStatement("$T.arraycopy(previous, i + 1, next, i, next.length - i)", System.class)
+				.endControlFlow().endControlFlow("while (!listeners.compareAndSet(node, previous, next))").build());
+
+		type.addMethod(MethodSpec.methodBuilder("node").addModifiers(PRIVATE, STATIC).returns(TypeName.INT)
+				.addParameter(String.class, "path").addStatement("$T node = NODE_INDEX.get(path)", Integer.class)
+				.beginControlFlow("if (node == null)")
+				.addStatement("throw new $T($S + path)", IllegalArgumentException.class, "Unknown node: ")
+				.endControlFlow().addStatement("return node").build());
+
+		// Only the listeners of nodes above a changed leaf run
+		type.addMethod(MethodSpec.methodBuilder("publish").addModifiers(PRIVATE)
+				.addParameter(snapshot, "previous").addParameter(snapshot, "next")
+				.addStatement("boolean[] affected = new boolean[NODES.length]")
+				.beginControlFlow("for (int ordinal = 0; ordinal < SIZE; ordinal++)")
+				.beginControlFlow("if (previous.values[ordinal] != next.values[ordinal])")
+				.addStatement("for (int node = LEAF_NODES[ordinal]; !affected[node]; node = NODE_PARENTS[node]) "
+						+ "affected[node] = true")
+				.endControlFlow().endControlFlow()
+				.beginControlFlow("for (int node = 0; node < affected.length; node++)")
+				.addStatement("$T targets = affected[node] ? listeners.get(node) : null", listeners)
+				.beginControlFlow("if (targets != null)")
+				.addStatement("for ($T listener : targets) listener.changed(previous, next)", listener)
+				.endControlFlow().endControlFlow().build());
+
+		type.addMethod(MethodSpec.methodBuilder("index").addModifiers(PRIVATE, STATIC)
+				.returns(ParameterizedTypeName.get(Map.class, String.class, Integer.class))
+				.addStatement("$T<String, Integer> index = new $T<>()", Map.class, HashMap.class)
+				.beginControlFlow("for (int i = 0; i < NODES.length; i++)").addStatement("index.put(NODES[i], i)")
+				.endControlFlow().addStatement("return index").build());
+
+		type.addType(snapshot(snapshot));
+		type.addType(editor(editor, snapshot));
+		type.addType(TypeSpec.interfaceBuilder(listener).addModifiers(PUBLIC)
+				.addAnnotation(FunctionalInterface.class)
+				.addJavadoc("Receives the changes under a node.\n")
+				.addMethod(MethodSpec.methodBuilder("changed").addModifiers(PUBLIC, ABSTRACT)
+						.addParameter(snapshot, "previous").addParameter(snapshot, "current")
+						.addJavadoc("Called after a snapshot that changed the node's subtree was published. Writers\n")
+						.addJavadoc("call listeners directly, so concurrent writes may be reported out of order.\n\n")
+						.addJavadoc("@param previous The replaced snapshot\n")
+						.addJavadoc("@param current  The published snapshot\n").build())
+				.build());
+
+		literals.addDecoders(type);
+		return type;
+	}
+
+	private static void layout(Node node, String path, int parent, List<String> nodes, List<Integer> parents,
+			int[] leafNodes) {
+		int index = nodes.size();
+		nodes.add(path);
+		// The root is its own parent, which ends every walk up the tree
+		parents.add(index == 0 ? 0 : parent);
+
+		for (Leaf leaf : node.leaves())
+			leafNodes[leaf.ordinal] = index;
+		for (Node child : node.children())
+			layout(child, path.isEmpty() ? child.name : path + "." + child.name, index, nodes, parents, leafNodes);
+	}
+
+	private static TypeSpec snapshot(ClassName snapshot) {
+		return TypeSpec.classBuilder(snapshot).addModifiers(PUBLIC, STATIC, FINAL)
+				.addJavadoc("An immutable set of values.\n")
+				.addField(TypeName.LONG, "version", PRIVATE, FINAL)
+				.addField(Object[].class, "values", PRIVATE, FINAL)
+				.addMethod(MethodSpec.constructorBuilder().addModifiers(PRIVATE).addParameter(TypeName.LONG, "version")
+						.addParameter(Object[].class, "values").addStatement("this.version = version")
+						.addStatement("this.values = values").build())
+				.addMethod(MethodSpec.methodBuilder("version").addModifiers(PUBLIC).returns(TypeName.LONG)
+						.addJavadoc("@return The number of changes published before this snapshot\n")
+						.addStatement("return version").build())
+				.addMethod(MethodSpec.methodBuilder("get").addModifiers(PUBLIC).returns(Object.class)
+						.addParameter(TypeName.INT, "ordinal").addJavadoc("Get the value of a leaf.\n\n")
+						.addJavadoc("@param ordinal The leaf's ordinal\n")
+						.addJavadoc("@return The value or {@code null} if it was never set\n")
+						.addStatement("return values[ordinal]").build())
+				.build();
+	}
+
+	private static TypeSpec editor(ClassName editor, ClassName snapshot) {
+		return TypeSpec.classBuilder(editor).addModifiers(PUBLIC, FINAL)
+				.addJavadoc("Collects changes that are published as one snapshot. Editors are not thread-safe.\n")
+				.addField(FieldSpec.builder(int[].class, "ordinals", PRIVATE).initializer("new int[8]").build())
+				.addField(FieldSpec.builder(Object[].class, "values", PRIVATE).initializer("new Object[8]").build())
+				.addField(TypeName.INT, "size", PRIVATE)
+				.addMethod(MethodSpec.constructorBuilder().addModifiers(PRIVATE).build())
+				.addMethod(MethodSpec.methodBuilder("set").addModifiers(PUBLIC).returns(editor)
+						.addParameter(TypeName.INT, "ordinal").addParameter(Object.class, "value")
+						.addJavadoc("Set the value of a leaf.\n\n").addJavadoc("@param ordinal The leaf's ordinal\n")
+						.addJavadoc("@param value   The new value\n").addJavadoc("@return {@code this}\n")
+						.addStatement("$T.checkIndex(ordinal, SIZE)", Objects.class)
+						.beginControlFlow("if (size == ordinals.length)")
+						.addStatement("ordinals = $T.copyOf(ordinals, size * 2)", Arrays.class)
+						.addStatement("values = $T.copyOf(values, size * 2)", Arrays.class).endControlFlow()
+						.addStatement("ordinals[size] = ordinal").addStatement("values[size++] = value")
+						.addStatement("return this").build())
+				.addMethod(MethodSpec.methodBuilder("commit").addModifiers(PUBLIC).returns(snapshot)
+						.addJavadoc("Publish the changes. If another writer publishes first, the changes are\n")
+						.addJavadoc("applied again to its snapshot.\n\n")
+						.addJavadoc("@return The published snapshot or the current one if nothing changed\n")
+						.addStatement("$T previous", snapshot).addStatement("$T next", snapshot).beginControlFlow("do")
+						.addStatement("previous = current.get()")
+						.addStatement("Object[] copy = previous.values.clone()")
+						.addStatement("boolean changed = false")
+						.beginControlFlow("for (int i = 0; i < size; i++)")
+						.beginControlFlow("if (!$T.equals(copy[ordinals[i]], values[i]))", Objects.class)
+						.addStatement("copy[ordinals[i]] = values[i]").addStatement("changed = true")
+						.endControlFlow().endControlFlow().beginControlFlow("if (!changed)")
+						.addStatement("return previous").endControlFlow()
+						.addStatement("next = new $T(previous.version + 1, copy)", snapshot)
+						.endControlFlow("while (!current.compareAndSet(previous, next))")
+						.addStatement("publish(previous, next)").addStatement("return next").build())
+				.build();
+	}
+
+	private ConfigGenerator() {
+	}
+}
@@ -0,0 +1,71 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.tools.Diagnostic.Kind;
+
+/**
+ * A {@link Messager} that holds messages until they can be passed to javac's
+ * {@link Messager}, which must not be used from other threads.
+ * 
+ * @author cilki
+ * @since 1.0.0
+ */
+final class DeferredMessager implements Messager {
+
+	private final List<Consumer<Messager>> messages = new ArrayList<>();
+
+	@Override
+	public synchronized void printMessage(Kind kind, CharSequence msg) {
+		messages.add(target -> target.printMessage(kind, msg));
+	}
+
+	@Override
+	public synchronized void printMessage(Kind kind, CharSequence msg, Element e) {
+		messages.add(target -> target.printMessage(kind, msg, e));
+	}
+
+	@Override
+	public synchronized void printMessage(Kind kind, CharSequence msg, Element e, AnnotationMirror a) {
+		messages.add(target -> target.printMessage(kind, msg, e, a));
+	}
+
+	@Override
+	public synchronized void printMessage(Kind kind, CharSequence msg, Element e, AnnotationMirror a,
+			AnnotationValue v) {
+		messages.add(target -> target.printMessage(kind, msg, e, a, v));
+	}
+
+	/**
+	 * Pass all held messages to the given {@link Messager}.
+	 * 
+	 * @param target The destination
+	 */
+	public synchronized void flush(Messager target) {
+		messages.forEach(message -> message.accept(target));
+		messages.clear();
+	}
+}
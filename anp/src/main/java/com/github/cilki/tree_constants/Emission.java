@@ -0,0 +1,61 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The rendered output of one tree.
+ * 
+ * @author cilki
+ * @since 1.0.0
+ */
+final class Emission {
+
+	final Node root;
+
+	/**
+	 * Rendered source files indexed by fully qualified class name.
+	 */
+	final Map<String, String> sources = new LinkedHashMap<>();
+
+	/**
+	 * Messages to report once rendering is complete.
+	 */
+	final DeferredMessager messages = new DeferredMessager();
+
+	/**
+	 * Class files indexed by binary name.
+	 */
+	final Map<String, byte[]> classes = new LinkedHashMap<>();
+
+	/**
+	 * Files in the {@link TreeFile#RESOURCE_DIRECTORY} indexed by relative name.
+	 */
+	final Map<String, byte[]> resources = new LinkedHashMap<>();
+
+	/**
+	 * The number of leaves in the tree.
+	 */
+	int leaves;
+
+	Emission(Node root) {
+		this.root = root;
+	}
+}
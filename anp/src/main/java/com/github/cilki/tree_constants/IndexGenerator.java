@@ -0,0 +1,231 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import com.github.cilki.tree_constants.Node.Leaf;
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.TypeVariableName;
+
+/**
+ * Generates {@code keys()} and {@code values()} for every node of a tree. The
+ * leaves are laid out depth-first in one shared array per root, so every
+ * subtree occupies a contiguous range. Each node's methods return a view of
+ * its range that is created once when the index is first used. Lazy leaves are
+ * not computed by the index itself, only when their value is read from a view.
+ * 
+ * @author cilki
+ * @since 1.0.0
+ */
+final class IndexGenerator {
+
+	/**
+	 * The name of the nested class that holds the shared arrays.
+	 */
+	private static final String HOLDER = "$Index";
+
+	/**
+	 * The maximum number of statements in a generated initializer method.
+	 */
+	private static final int STATEMENTS_PER_METHOD = 1000;
+
+	private final ClassName rootClass;
+
+	/**
+	 * The index of each node in depth-first order.
+	 */
+	private final Map<Node, Integer> nodes = new IdentityHashMap<>();
+
+	/**
+	 * The start and end of each node's range.
+	 */
+	private final List<Integer> ranges = new ArrayList<>();
+
+	/**
+	 * The path of each leaf in depth-first order.
+	 */
+	private final List<String> keys = new ArrayList<>();
+
+	/**
+	 * The constant value of each leaf in depth-first order.
+	 */
+	private final List<Object> values = new ArrayList<>();
+
+	/**
+	 * Assignments for values that are not compile-time constants.
+	 */
+	private final List<CodeBlock> references = new ArrayList<>();
+
+	/**
+	 * Cases that call the accessor of each lazy leaf.
+	 */
+	private final List<CodeBlock> lazyValues = new ArrayList<>();
+
+	public IndexGenerator(Node root) {
+		this.rootClass = ClassName.get(root.packageName, root.name);
+		layout(root, rootClass, "");
+	}
+
+	private void layout(Node node, ClassName nodeClass, String prefix) {
+		int index = nodes.size();
+		nodes.put(node, index);
+		ranges.add(keys.size());
+		ranges.add(-1);
+
+		for (Leaf leaf : node.leaves()) {
+			Object value = leaf.value;
+			if (leaf.isLazy())
+				// Call the accessor only when the value is read
+				lazyValues.add(CodeBlock.of("case $L:\n$>return $T.$N();\n$<", keys.size(), nodeClass, leaf.name));
+			else if (value == null)
+				// Read the generated field when the index is initialized
+				references.add(CodeBlock.of("VALUES[$L] = $T.$N", keys.size(), nodeClass, leaf.name));
+
+			keys.add(prefix + leaf.name);
+			values.add(value);
+		}
+		for (Node child : node.children())
+			layout(child, nodeClass.nestedClass(child.name), prefix + child.name + ".");
+
+		ranges.set(2 * index + 1, keys.size());
+	}
+
+	/**
+	 * Add {@code keys()} and {@code values()} to the class of a node.
+	 * 
+	 * @param node The node
+	 * @param type The node's class
+	 */
+	public void decorate(Node node, TypeSpec.Builder type) {
+		int index = nodes.get(node);
+
+		type.addMethod(MethodSpec.methodBuilder("keys").addModifiers(PUBLIC, STATIC)
+				.returns(ParameterizedTypeName.get(List.class, String.class))
+				.addJavadoc("Get the dot separated paths of every leaf in this subtree.\n\n")
+				.addJavadoc("@return An unmodifiable view of the paths\n")
+				.addStatement("return $N.KEY_VIEWS.get($L)", HOLDER, index).build());
+
+		type.addMethod(MethodSpec.methodBuilder("values").addModifiers(PUBLIC, STATIC)
+				.returns(ParameterizedTypeName.get(List.class, Object.class))
+				.addJavadoc("Get the values of every leaf in this subtree in the same order as {@link #keys()}.\n\n")
+				.addJavadoc("@return An unmodifiable view of the values\n")
+				.addStatement("return $N.VALUE_VIEWS.get($L)", HOLDER, index).build());
+	}
+
+	/**
+	 * Add the class that holds the shared arrays to the root class.
+	 * 
+	 * @param type The root class
+	 */
+	public void generate(TypeSpec.Builder type) {
+		var holder = TypeSpec.classBuilder(HOLDER).addModifiers(PRIVATE, STATIC, FINAL);
+		var literals = new Literals();
+
+		TypeName stringList = ParameterizedTypeName.get(List.class, String.class);
+		TypeName objectList = ParameterizedTypeName.get(List.class, Object.class);
+
+		holder.addField(FieldSpec.builder(ArrayTypeName.of(String.class), "KEYS", STATIC, FINAL)
+				.initializer(literals.strings(keys)).build());
+		holder.addField(FieldSpec.builder(ArrayTypeName.of(Object.class), "VALUES", STATIC, FINAL)
+				.initializer(literals.constants(values)).build());
+		holder.addField(FieldSpec.builder(ArrayTypeName.of(TypeName.INT), "RANGES", STATIC, FINAL)
+				.initializer(literals.ints(ranges.stream().mapToInt(Integer::intValue).toArray())).build());
+		holder.addField(FieldSpec
+				.builder(ParameterizedTypeName.get(ClassName.get(List.class), stringList), "KEY_VIEWS", STATIC, FINAL)
+				.initializer("views($T.asList(KEYS))", Arrays.class).build());
+		holder.addField(FieldSpec
+				.builder(ParameterizedTypeName.get(ClassName.get(List.class), objectList), "VALUE_VIEWS", STATIC,
+						FINAL)
+				.initializer(lazyValues.isEmpty() ? CodeBlock.of("views($T.asList(VALUES))", Arrays.class)
+						: CodeBlock.of("views(new LazyValues())"))
+				.build());
+
+		// Fill in values that could not be encoded as constants
+		var initializer = CodeBlock.builder();
+		for (int i = 0; i < references.size(); i += STATEMENTS_PER_METHOD) {
+			var method = MethodSpec.methodBuilder("references" + i / STATEMENTS_PER_METHOD).addModifiers(PRIVATE,
+					STATIC);
+			for (CodeBlock reference : references.subList(i, Math.min(references.size(), i + STATEMENTS_PER_METHOD)))
+				method.addStatement(reference);
+
+			holder.addMethod(method.build());
+			initializer.addStatement("references$L()", i / STATEMENTS_PER_METHOD);
+		}
+		if (!references.isEmpty())
+			holder.addStaticBlock(initializer.build());
+
+		if (!lazyValues.isEmpty())
+			holder.addType(lazyValues());
+
+		var element = TypeVariableName.get("E");
+		holder.addMethod(MethodSpec.methodBuilder("views").addModifiers(PRIVATE, STATIC).addTypeVariable(element)
+				.returns(ParameterizedTypeName.get(ClassName.get(List.class),
+						ParameterizedTypeName.get(ClassName.get(List.class), element)))
+				.addParameter(ParameterizedTypeName.get(ClassName.get(List.class), element), "all")
+				.addStatement("$T<$T<E>> views = new $T<>(RANGES.length / 2)", List.class, List.class,
+						ArrayList.class)
+				.beginControlFlow("for (int i = 0; i < RANGES.length; i += 2)")
+				.addStatement("views.add($T.unmodifiableList(all.subList(RANGES[i], RANGES[i + 1])))",
+						Collections.class)
+				.endControlFlow().addStatement("return views").build());
+
+		literals.addDecoders(holder);
+		holder.addMethod(MethodSpec.constructorBuilder().addModifiers(PRIVATE).build());
+		type.addType(holder.build());
+	}
+
+	/**
+	 * Build the list of every value that calls the accessor of a lazy leaf when
+	 * it's read, so that listing the index doesn't compute lazy values.
+	 * 
+	 * @return The list class
+	 */
+	private TypeSpec lazyValues() {
+		var get = MethodSpec.methodBuilder("get").addAnnotation(Override.class).addModifiers(PUBLIC)
+				.returns(Object.class).addParameter(TypeName.INT, "index").beginControlFlow("switch (index)");
+		lazyValues.forEach(get::addCode);
+		get.addCode("default:\n$>return VALUES[index];\n$<").endControlFlow();
+
+		return TypeSpec.classBuilder("LazyValues").addModifiers(PRIVATE, STATIC, FINAL)
+				.superclass(ParameterizedTypeName.get(AbstractList.class, Object.class))
+				.addSuperinterface(RandomAccess.class).addMethod(get.build())
+				.addMethod(MethodSpec.methodBuilder("size").addAnnotation(Override.class).addModifiers(PUBLIC)
+						.returns(TypeName.INT).addStatement("return VALUES.length").build())
+				.build();
+	}
+}
@@ -0,0 +1,368 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.function.Consumer;
+
+/**
+ * Streams the keys out of {@code .properties} and JSON files. Only a small
+ * buffer and the current key are held in memory, so files of any size can be
+ * read. Values are skipped without being stored.
+ * 
+ * @author cilki
+ * @since 1.0.0
+ */
+final class KeyReader {
+
+	private static final int EOF = -1;
+
+	private final Reader reader;
+
+	private final char[] buffer = new char[8192];
+
+	private int position;
+
+	private int limit;
+
+	/**
+	 * The current line for error messages.
+	 */
+	private int line = 1;
+
+	/**
+	 * A reusable buffer for the current key.
+	 */
+	private final StringBuilder key = new StringBuilder();
+
+	private KeyReader(Reader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * Read every key of a {@code .properties} file.
+	 * 
+	 * @param reader The file
+	 * @param keys   Receives each key in file order
+	 * @throws IOException If the file could not be read
+	 */
+	public static void readProperties(Reader reader, Consumer<String> keys) throws IOException {
+		new KeyReader(reader).properties(keys);
+	}
+
+	/**
+	 * Read the dot separated path of every non-object value in a JSON file.
+	 * Arrays are treated as values.
+	 * 
+	 * @param reader The file
+	 * @param keys   Receives each key in file order
+	 * @throws IOException If the file could not be read or is not a JSON object
+	 */
+	public static void readJson(Reader reader, Consumer<String> keys) throws IOException {
+		var json = new KeyReader(reader);
+		json.skipWhitespace();
+		if (json.peek() != '{')
+			throw json.error("Expected an object");
+
+		json.value(keys);
+		json.skipWhitespace();
+		if (json.peek() != EOF)
+			throw json.error("Unexpected content after the root object");
+	}
+
+	private void properties(Consumer<String> keys) throws IOException {
+		while (true) {
+			// Skip blank lines and leading whitespace
+			int c;
+			while ((c = peek()) == ' ' || c == '\t' || c == '\f' || c == '\r' || c == '\n')
+				read();
+
+			if (c == EOF)
+				return;
+
+			if (c == '#' || c == '!') {
+				// Comments cannot be continued
+				while ((c = read()) != EOF && c != '\r' && c != '\n')
+					;
+				continue;
+			}
+
+			key.setLength(0);
+			while ((c = peek()) != EOF && c != '=' && c != ':' && c != ' ' && c != '\t' && c != '\f' && c != '\r'
+					&& c != '\n') {
+				read();
+				if (c == '\\') {
+					if (!escape(true))
+						// The key continues on the next line
+						skipIndent();
+				} else {
+					key.append((char) c);
+				}
+			}
+
+			// Skip the value including continuation lines
+			while ((c = read()) != EOF && c != '\r' && c != '\n') {
+				if (c == '\\' && !escape(false))
+					skipIndent();
+			}
+
+			if (key.length() != 0)
+				keys.accept(key.toString());
+		}
+	}
+
+	/**
+	 * Read the character after a backslash in a {@code .properties} file.
+	 * 
+	 * @param append Whether to append the character to the key
+	 * @return {@code false} if the backslash continued the line
+	 */
+	private boolean escape(boolean append) throws IOException {
+		int c = read();
+		switch (c) {
+		case EOF:
+			return true;
+		case '\r':
+			if (peek() == '\n')
+				read();
+			return false;
+		case '\n':
+			return false;
+		case 'u':
+			c = unicode();
+			break;
+		case 't':
+			c = '\t';
+			break;
+		case 'n':
+			c = '\n';
+			break;
+		case 'r':
+			c = '\r';
+			break;
+		case 'f':
+			c = '\f';
+			break;
+		default:
+			break;
+		}
+
+		if (append)
+			key.append((char) c);
+		return true;
+	}
+
+	private void skipIndent() throws IOException {
+		int c;
+		while ((c = peek()) == ' ' || c == '\t' || c == '\f')
+			read();
+	}
+
+	/**
+	 * Read a JSON value and report the path of every non-object value within it.
+	 * The path of the value is in {@link #key}.
+	 */
+	private void value(Consumer<String> keys) throws IOException {
+		skipWhitespace();
+		int c = peek();
+		if (c != '{') {
+			skipValue();
+			if (key.length() != 0)
+				keys.accept(key.toString());
+			return;
+		}
+
+		read();
+		skipWhitespace();
+		if (peek() == '}') {
+			read();
+			return;
+		}
+
+		int length = key.length();
+		while (true) {
+			skipWhitespace();
+			if (read() != '"')
+				throw error("Expected a member name");
+
+			if (length != 0)
+				key.append('.');
+			string(true);
+
+			skipWhitespace();
+			if (read() != ':')
+				throw error("Expected ':'");
+
+			value(keys);
+			key.setLength(length);
+
+			skipWhitespace();
+			c = read();
+			if (c == '}')
+				return;
+			if (c != ',')
+				throw error("Expected ',' or '}'");
+		}
+	}
+
+	/**
+	 * Skip any JSON value.
+	 */
+	private void skipValue() throws IOException {
+		skipWhitespace();
+		int c = read();
+		switch (c) {
+		case '"':
+			string(false);
+			return;
+		case '{':
+		case '[':
+			int close = c == '{' ? '}' : ']';
+			skipWhitespace();
+			if (peek() == close) {
+				read();
+				return;
+			}
+			while (true) {
+				if (close == '}') {
+					skipWhitespace();
+					if (read() != '"')
+						throw error("Expected a member name");
+					string(false);
+					skipWhitespace();
+					if (read() != ':')
+						throw error("Expected ':'");
+				}
+				skipValue();
+				skipWhitespace();
+				c = read();
+				if (c == close)
+					return;
+				if (c != ',')
+					throw error("Expected ',' or '" + (char) close + "'");
+			}
+		default:
+			// A number or a literal
+			if (!isLiteral(c))
+				throw error("Expected a value");
+			while (isLiteral(peek()))
+				read();
+		}
+	}
+
+	private static boolean isLiteral(int c) {
+		return c != EOF && (Character.isLetterOrDigit(c) || c == '-' || c == '+' || c == '.');
+	}
+
+	/**
+	 * Read the rest of a JSON string after its opening quote.
+	 * 
+	 * @param append Whether to append the string to the key
+	 */
+	private void string(boolean append) throws IOException {
+		int c;
+		while ((c = read()) != '"') {
+			if (c == EOF || c == '\n')
+				throw error("Unterminated string");
+
+			if (c == '\\') {
+				c = read();
+				switch (c) {
+				case 'u':
+					c = unicode();
+					break;
+				case 'b':
+					c = '\b';
+					break;
+				case 'f':
+					c = '\f';
+					break;
+				case 'n':
+					c = '\n';
+					break;
+				case 'r':
+					c = '\r';
+					break;
+				case 't':
+					c = '\t';
+					break;
+				case '"':
+				case '\\':
+				case '/':
+					break;
+				default:
+					throw error("Invalid escape");
+				}
+			}
+
+			if (append)
+				key.append((char) c);
+		}
+	}
+
+	private void skipWhitespace() throws IOException {
+		int c;
+		while ((c = peek()) == ' ' || c == '\t' || c == '\r' || c == '\n')
+			read();
+	}
+
+	/**
+	 * Read the four hex digits of a unicode escape.
+	 */
+	private int unicode() throws IOException {
+		int value = 0;
+		for (int i = 0; i < 4; i++) {
+			int digit = Character.digit(read(), 16);
+			if (digit == -1)
+				throw error("Invalid unicode escape");
+			value = value << 4 | digit;
+		}
+		return value;
+	}
+
+	private int peek() throws IOException {
+		if (position == limit && !fill())
+			return EOF;
+		return buffer[position];
+	}
+
+	private int read() throws IOException {
+		if (position == limit && !fill())
+			return EOF;
+
+		char c = buffer[position++];
+		if (c == '\n')
+			line++;
+		return c;
+	}
+
+	private boolean fill() throws IOException {
+		limit = reader.read(buffer);
+		position = 0;
+		if (limit <= 0) {
+			limit = 0;
+			return false;
+		}
+		return true;
+	}
+
+	private IOException error(String message) {
+		return new IOException(message + " on line " + line);
+	}
+}
@@ -0,0 +1,353 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.STATIC;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+
+/**
+ * Builds initializers for large static arrays in generated classes. A plain
+ * array initializer compiles to several instructions per element, so it soon
+ * runs into the 64 KB method size limit. Large arrays are instead packed into a
+ * few string constants and decoded when the owning class is initialized.
+ * 
+ * @author cilki
+ * @since 1.0.0
+ */
+final class Literals {
+
+	/**
+	 * Arrays with at most this many elements use a plain initializer.
+	 */
+	private static final int PLAIN_LIMIT = 64;
+
+	/**
+	 * The maximum encoded size of a string constant.
+	 */
+	private static final int CHUNK_BYTES = 65535;
+
+	/**
+	 * The separator between packed strings.
+	 */
+	private static final char SEPARATOR = '\0';
+
+	private boolean stringDecoder;
+
+	private boolean intDecoder;
+
+	private boolean constantDecoder;
+
+	/**
+	 * Build an expression that evaluates to the given {@code String[]}.
+	 * 
+	 * @param values The array elements
+	 * @return The initializer
+	 */
+	public CodeBlock strings(List<String> values) {
+		if (values.size() <= PLAIN_LIMIT || values.stream().anyMatch(v -> v.indexOf(SEPARATOR) != -1))
+			return plain(TypeName.get(String.class), values, value -> string((String) value));
+
+		// Chunks only break between values so surrogate pairs are never split
+		List<String> chunks = new ArrayList<>();
+		var chunk = new StringBuilder();
+		int size = 0;
+		for (int i = 0; i < values.size(); i++) {
+			String value = i < values.size() - 1 ? values.get(i) + SEPARATOR : values.get(i);
+			int encoded = encodedLength(value);
+
+			if (size + encoded > CHUNK_BYTES && chunk.length() > 0) {
+				chunks.add(chunk.toString());
+				chunk.setLength(0);
+				size = 0;
+			}
+			chunk.append(value);
+			size += encoded;
+		}
+		chunks.add(chunk.toString());
+
+		stringDecoder = true;
+		return CodeBlock.of("$$strings($L)", join(chunks));
+	}
+
+	/**
+	 * Build an expression that evaluates to the given {@code int[]}.
+	 * 
+	 * @param values The array elements
+	 * @return The initializer
+	 */
+	public CodeBlock ints(int[] values) {
+		List<Object> boxed = new ArrayList<>(values.length);
+		boolean packable = true;
+		for (int value : values) {
+			boxed.add(value);
+			// Each element is packed into two 15 bit chars
+			packable &= value >= 0 && value < (1 << 30);
+		}
+
+		if (values.length <= PLAIN_LIMIT || !packable)
+			return plain(TypeName.INT, boxed, value -> CodeBlock.of("$L", value));
+
+		List<String> chunks = new ArrayList<>();
+		var chunk = new StringBuilder();
+		for (int value : values) {
+			// Three bytes per char in the worst case
+			if (chunk.length() + 2 > CHUNK_BYTES / 3) {
+				chunks.add(chunk.toString());
+				chunk.setLength(0);
+			}
+			chunk.append((char) (value >>> 15)).append((char) (value & 0x7FFF));
+		}
+		chunks.add(chunk.toString());
+
+		intDecoder = true;
+		return CodeBlock.of("$$ints($L)", join(chunks));
+	}
+
+	/**
+	 * Build an expression that evaluates to an {@code Object[]} containing the
+	 * given compile-time constants (boxed if primitive). {@code null} elements are
+	 * left for the caller to fill in.
+	 * 
+	 * @param values The array elements
+	 * @return The initializer
+	 */
+	public CodeBlock constants(List<Object> values) {
+		var tags = new StringBuilder(values.size());
+		List<String> text = new ArrayList<>(values.size());
+		for (Object value : values) {
+			tags.append(tag(value));
+			text.add(value == null ? "" : value.toString());
+		}
+
+		List<String> tagChunks = new ArrayList<>();
+		for (int i = 0; i < tags.length(); i += CHUNK_BYTES)
+			tagChunks.add(tags.substring(i, Math.min(tags.length(), i + CHUNK_BYTES)));
+
+		constantDecoder = true;
+		return CodeBlock.of("$$constants(new String[] {$L}, $L)", join(tagChunks), strings(text));
+	}
+
+	/**
+	 * Get the type tag of a constant, which is its JVM descriptor or {@code T} for
+	 * text.
+	 * 
+	 * @param value The constant
+	 * @return The tag
+	 */
+	static char tag(Object value) {
+		if (value == null)
+			return '-';
+		if (value instanceof String)
+			return 'T';
+		if (value instanceof Integer)
+			return 'I';
+		if (value instanceof Long)
+			return 'J';
+		if (value instanceof Boolean)
+			return 'Z';
+		if (value instanceof Character)
+			return 'C';
+		if (value instanceof Double)
+			return 'D';
+		if (value instanceof Float)
+			return 'F';
+		if (value instanceof Short)
+			return 'S';
+		if (value instanceof Byte)
+			return 'B';
+		throw new IllegalArgumentException("Not a constant: " + value);
+	}
+
+	/**
+	 * Build a Java literal for a compile-time constant. The literal keeps the
+	 * constant's type, so a field initialized with it is itself a constant and is
+	 * inlined wherever it is used.
+	 * 
+	 * @param value The constant
+	 * @return The literal
+	 */
+	static CodeBlock constant(Object value) {
+		if (value instanceof String)
+			return string((String) value);
+		if (value instanceof Character)
+			return CodeBlock.of("'$L'", escape((char) value));
+		if (value instanceof Long)
+			return CodeBlock.of("$LL", value);
+		if (value instanceof Float) {
+			float f = (float) value;
+			if (Float.isNaN(f))
+				return CodeBlock.of("0.0f / 0.0f");
+			if (Float.isInfinite(f))
+				return CodeBlock.of(f > 0 ? "1.0f / 0.0f" : "-1.0f / 0.0f");
+			return CodeBlock.of("$Lf", value);
+		}
+		if (value instanceof Double) {
+			double d = (double) value;
+			if (Double.isNaN(d))
+				return CodeBlock.of("0.0d / 0.0d");
+			if (Double.isInfinite(d))
+				return CodeBlock.of(d > 0 ? "1.0d / 0.0d" : "-1.0d / 0.0d");
+			return CodeBlock.of("$Ld", value);
+		}
+		if (value instanceof Byte)
+			return CodeBlock.of("(byte) $L", value);
+		if (value instanceof Short)
+			return CodeBlock.of("(short) $L", value);
+		if (value instanceof Integer || value instanceof Boolean)
+			return CodeBlock.of("$L", value);
+		throw new IllegalArgumentException("Not a constant: " + value);
+	}
+
+	/**
+	 * Build a string literal. Unlike JavaPoet's {@code $S}, every character
+	 * outside of printable ASCII is escaped, so line separators like
+	 * {@code U+2028} can't be mistaken for the end of a line.
+	 * 
+	 * @param value The string
+	 * @return The literal
+	 */
+	static CodeBlock string(String value) {
+		var literal = new StringBuilder(value.length() + 2).append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '"')
+				literal.append("\\\"");
+			else if (c == '\'')
+				literal.append(c);
+			else
+				literal.append(escape(c));
+		}
+		return CodeBlock.of("$L", literal.append('"'));
+	}
+
+	/**
+	 * Escape a character for use in a character or string literal.
+	 * 
+	 * @param c The character
+	 * @return The escaped character
+	 */
+	private static String escape(char c) {
+		switch (c) {
+		case '\\':
+			return "\\\\";
+		case '\'':
+			return "\\'";
+		case '\n':
+			return "\\n";
+		case '\r':
+			return "\\r";
+		case '\t':
+			return "\\t";
+		default:
+			// A unicode escape of a control character could end the line before javac lexes it
+			if (c < 0x20)
+				return String.format("\\%03o", (int) c);
+			if (c > 0x7E)
+				return String.format("\\u%04x", (int) c);
+			return String.valueOf(c);
+		}
+	}
+
+	/**
+	 * Add the decoding methods that the returned initializers require to the
+	 * class that contains them.
+	 * 
+	 * @param type The owning class
+	 */
+	public void addDecoders(TypeSpec.Builder type) {
+		if (stringDecoder)
+			type.addMethod(MethodSpec.methodBuilder("$strings").addModifiers(PRIVATE, STATIC)
+					.returns(ArrayTypeName.of(String.class)).addParameter(ArrayTypeName.of(String.class), "chunks")
+					.varargs().addStatement("return String.join(\"\", chunks).split($S, -1)", SEPARATOR).build());
+
+		if (intDecoder)
+			type.addMethod(MethodSpec.methodBuilder("$ints").addModifiers(PRIVATE, STATIC)
+					.returns(ArrayTypeName.of(TypeName.INT)).addParameter(ArrayTypeName.of(String.class), "chunks")
+					.varargs().addStatement("String packed = String.join(\"\", chunks)")
+					.addStatement("int[] values = new int[packed.length() / 2]")
+					.beginControlFlow("for (int i = 0; i < values.length; i++)")
+					.addStatement("values[i] = packed.charAt(2 * i) << 15 | packed.charAt(2 * i + 1)")
+					.endControlFlow().addStatement("return values").build());
+
+		if (constantDecoder)
+			type.addMethod(MethodSpec.methodBuilder("$constants").addModifiers(PRIVATE, STATIC)
+					.returns(ArrayTypeName.of(Object.class)).addParameter(ArrayTypeName.of(String.class), "tagChunks")
+					.addParameter(ArrayTypeName.of(String.class), "text")
+					.addStatement("String tags = String.join(\"\", tagChunks)")
+					.addStatement("Object[] values = new Object[tags.length()]")
+					.beginControlFlow("for (int i = 0; i < values.length; i++)")
+					.beginControlFlow("switch (tags.charAt(i))")
+					.addStatement("case 'T': values[i] = text[i]; break")
+					.addStatement("case 'I': values[i] = Integer.valueOf(text[i]); break")
+					.addStatement("case 'J': values[i] = Long.valueOf(text[i]); break")
+					.addStatement("case 'Z': values[i] = Boolean.valueOf(text[i]); break")
+					.addStatement("case 'C': values[i] = text[i].charAt(0); break")
+					.addStatement("case 'D': values[i] = Double.valueOf(text[i]); break")
+					.addStatement("case 'F': values[i] = Float.valueOf(text[i]); break")
+					.addStatement("case 'S': values[i] = Short.valueOf(text[i]); break")
+					.addStatement("case 'B': values[i] = Byte.valueOf(text[i]); break")
+					.addStatement("default: break").endControlFlow().endControlFlow().addStatement("return values")
+					.build());
+	}
+
+	private static CodeBlock plain(TypeName component, List<?> values, Function<Object, CodeBlock> literal) {
+		List<CodeBlock> elements = new ArrayList<>(values.size());
+		for (Object value : values)
+			elements.add(literal.apply(value));
+
+		return CodeBlock.of("new $T {$L}", ArrayTypeName.of(component), CodeBlock.join(elements, ", "));
+	}
+
+	private static CodeBlock join(List<String> chunks) {
+		List<CodeBlock> args = new ArrayList<>(chunks.size());
+		for (String chunk : chunks)
+			args.add(string(chunk));
+
+		return CodeBlock.join(args, ",\n");
+	}
+
+	/**
+	 * Get the size of a string in the class file's modified UTF-8 encoding.
+	 * 
+	 * @param value The string
+	 * @return The number of bytes
+	 */
+	static int encodedLength(String value) {
+		int length = 0;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c != 0 && c < 0x80)
+				length += 1;
+			else if (c < 0x800)
+				length += 2;
+			else
+				length += 3;
+		}
+		return length;
+	}
+}
@@ -0,0 +1,158 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+import static javax.tools.Diagnostic.Kind.ERROR;
+import static javax.tools.Diagnostic.Kind.WARNING;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.processing.Messager;
+
+import com.github.cilki.tree_constants.Node.Leaf;
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+
+/**
+ * Generates the reverse lookup from constant values to leaf ordinals. The
+ * lookup is backed by a {@link PerfectHash} that is computed at build time, so
+ * nothing is built at runtime besides decoding the tables the first time
+ * {@code lookup} is called.
+ * 
+ * @author cilki
+ * @since 1.0.0
+ */
+final class LookupGenerator {
+
+	/**
+	 * The name of the nested class that holds the lookup tables.
+	 */
+	private static final String HOLDER = "$Lookup";
+
+	/**
+	 * Add {@code lookup(String)} and {@code path(int)} to a root class.
+	 * 
+	 * @param root     The root of the tree
+	 * @param type     The root class
+	 * @param size     The number of leaves in the tree
+	 * @param messager Reports duplicate values
+	 */
+	public static void generate(Node root, TypeSpec.Builder type, int size, Messager messager) {
+		String[] paths = new String[size];
+		List<String> keys = new ArrayList<>();
+		List<Integer> ordinals = new ArrayList<>();
+		Map<String, Leaf> seen = new HashMap<>();
+
+		root.visitLeaves("", (path, leaf) -> {
+			paths[leaf.ordinal] = path;
+
+			// Only string constants can be looked up
+			if (leaf.value instanceof String) {
+				String value = (String) leaf.value;
+
+				Leaf previous = seen.putIfAbsent(value, leaf);
+				if (previous == null) {
+					keys.add(value);
+					ordinals.add(leaf.ordinal);
+				} else {
+					messager.printMessage(WARNING, "Value \"" + value + "\" is already used by "
+							+ paths[previous.ordinal] + " and cannot be looked up", leaf.element);
+				}
+			}
+		});
+
+		var holder = TypeSpec.classBuilder(HOLDER).addModifiers(PRIVATE, STATIC, FINAL);
+		var literals = new Literals();
+
+		holder.addField(FieldSpec.builder(ArrayTypeName.of(String.class), "PATHS", STATIC, FINAL)
+				.initializer(literals.strings(List.of(paths))).build());
+
+		var lookup = MethodSpec.methodBuilder("lookup").addModifiers(PUBLIC, STATIC).returns(TypeName.INT)
+				.addParameter(String.class, "value")
+				.addJavadoc("Find the leaf whose value is the given string.\n\n")
+				.addJavadoc("@param value The constant value\n")
+				.addJavadoc("@return The leaf's ordinal or {@code -1} if no leaf has the value\n");
+
+		PerfectHash hash = null;
+		if (!keys.isEmpty()) {
+			try {
+				hash = PerfectHash.build(keys);
+			} catch (IllegalArgumentException e) {
+				messager.printMessage(ERROR, "Failed to build the lookup of tree " + root.packageName + "."
+						+ root.name + ": " + e.getMessage());
+			}
+		}
+
+		if (hash == null) {
+			lookup.addStatement("return -1");
+		} else {
+			String[] slotKeys = new String[keys.size()];
+			int[] slotOrdinals = new int[keys.size()];
+			for (int slot = 0; slot < hash.slots.length; slot++) {
+				slotKeys[slot] = keys.get(hash.slots[slot]);
+				slotOrdinals[slot] = ordinals.get(hash.slots[slot]);
+			}
+
+			holder.addField(FieldSpec.builder(ArrayTypeName.of(TypeName.INT), "DISPLACEMENTS", STATIC, FINAL)
+					.initializer(literals.ints(hash.displacements)).build());
+			holder.addField(FieldSpec.builder(ArrayTypeName.of(String.class), "KEYS", STATIC, FINAL)
+					.initializer(literals.strings(List.of(slotKeys))).build());
+			holder.addField(FieldSpec.builder(ArrayTypeName.of(TypeName.INT), "ORDINALS", STATIC, FINAL)
+					.initializer(literals.ints(slotOrdinals)).build());
+
+			// This must compute the same function as PerfectHash
+			holder.addMethod(MethodSpec.methodBuilder("mix").addModifiers(PRIVATE, STATIC).returns(TypeName.INT)
+					.addParameter(TypeName.INT, "h").addStatement("h ^= h >>> 16").addStatement("h *= 0x85EBCA6B")
+					.addStatement("h ^= h >>> 13").addStatement("h *= 0xC2B2AE35").addStatement("h ^= h >>> 16")
+					.addStatement("return h").build());
+
+			lookup.beginControlFlow("if (value == null)").addStatement("return -1").endControlFlow()
+					.addStatement("int h = 0x811C9DC5 ^ $L", hash.seed)
+					.beginControlFlow("for (int i = 0; i < value.length(); i++)")
+					.addStatement("h = (h ^ value.charAt(i)) * 0x01000193").endControlFlow()
+					.addStatement("h = $L.mix(h)", HOLDER)
+					.addStatement("int d = $L.DISPLACEMENTS[(h >>> 1) % $L.DISPLACEMENTS.length]", HOLDER, HOLDER)
+					.addStatement("int slot = ($L.mix(h + d * 0x9E3779B9) >>> 1) % $L.KEYS.length", HOLDER, HOLDER)
+					.addStatement("return $L.KEYS[slot].equals(value) ? $L.ORDINALS[slot] : -1", HOLDER, HOLDER);
+		}
+
+		literals.addDecoders(holder);
+		holder.addMethod(MethodSpec.constructorBuilder().addModifiers(PRIVATE).build());
+
+		type.addMethod(lookup.build());
+		type.addMethod(MethodSpec.methodBuilder("path").addModifiers(PUBLIC, STATIC).returns(String.class)
+				.addParameter(TypeName.INT, "ordinal")
+				.addJavadoc("Get the dot separated path of a leaf in this tree.\n\n")
+				.addJavadoc("@param ordinal The leaf's ordinal\n").addJavadoc("@return The leaf's path\n")
+				.addStatement("return $L.PATHS[ordinal]", HOLDER).build());
+		type.addType(holder.build());
+	}
+
+	private LookupGenerator() {
+	}
+}
@@ -0,0 +1,441 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.type.TypeMirror;
+
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeSpec;
+
+/**
+ * A temporary container for nodes while the constant tree is still being
+ * parsed.
+ * 
+ * @author cilki
+ * @since 1.0.0
+ */
+final class Node {
+
+	final String name;
+	final String packageName;
+
+	/**
+	 * The node's children indexed by name. Children are sorted so that the
+	 * output does not depend on the order in which fields were discovered.
+	 */
+	private final Map<String, Node> children;
+
+	/**
+	 * The node's leaves sorted by name. Fields are not built until the tree is
+	 * emitted.
+	 */
+	private final Map<String, Leaf> leaves;
+
+	/**
+	 * The annotated fields that contributed to this tree. Only the root node
+	 * tracks these.
+	 */
+	final List<Element> originatingElements;
+
+	public Node(String name) {
+		this(name, null);
+	}
+
+	public Node(String name, String packageName) {
+		this.name = Objects.requireNonNull(name);
+		this.packageName = packageName;
+		this.children = new TreeMap<>();
+		this.leaves = new TreeMap<>();
+		this.originatingElements = packageName == null ? List.of() : new ArrayList<>();
+	}
+
+	/**
+	 * Get a child {@link Node} by name, creating it if it does not exist.
+	 * 
+	 * @param name The name to look for
+	 * @return The node
+	 */
+	public Node child(String name) {
+		Node child = children.get(name);
+		if (child == null) {
+			child = new Node(name);
+			children.put(name, child);
+		}
+		return child;
+	}
+
+	/**
+	 * Add a leaf to the {@link Node}.
+	 * 
+	 * @param leaf The new leaf
+	 * @return Whether the leaf was added ({@code false} if the name is taken)
+	 */
+	public boolean addLeaf(Leaf leaf) {
+		return leaves.putIfAbsent(leaf.name, leaf) == null;
+	}
+
+	/**
+	 * Get a leaf by name.
+	 * 
+	 * @param name The leaf's name
+	 * @return The leaf or {@code null}
+	 */
+	public Leaf getLeaf(String name) {
+		return leaves.get(name);
+	}
+
+	public Collection<Node> children() {
+		return children.values();
+	}
+
+	public Collection<Leaf> leaves() {
+		return leaves.values();
+	}
+
+	/**
+	 * Assign an ordinal to every leaf in the tree. Ordinals are dense and grouped
+	 * by {@link Lane} so that each lane occupies a contiguous range. Within a lane,
+	 * ordinals follow a depth-first traversal that visits a node's own leaves
+	 * before its children.
+	 * 
+	 * @return The first ordinal of each lane followed by the total number of
+	 *         leaves
+	 */
+	public int[] assignOrdinals() {
+		int[] next = new int[Lane.values().length + 1];
+		countLanes(next);
+
+		// Convert the counts into the first ordinal of each lane
+		int total = 0;
+		for (int i = 0; i < next.length; i++) {
+			int count = next[i];
+			next[i] = total;
+			total += count;
+		}
+
+		int[] bases = next.clone();
+		assignOrdinals(next);
+		return bases;
+	}
+
+	private void countLanes(int[] counts) {
+		for (Leaf leaf : leaves.values())
+			counts[leaf.lane.ordinal()]++;
+		for (Node child : children.values())
+			child.countLanes(counts);
+	}
+
+	private void assignOrdinals(int[] next) {
+		for (Leaf leaf : leaves.values())
+			leaf.ordinal = next[leaf.lane.ordinal()]++;
+		for (Node child : children.values())
+			child.assignOrdinals(next);
+	}
+
+	/**
+	 * Visit every leaf in the tree along with its dot separated path.
+	 * 
+	 * @param prefix  The path of this node (empty for the root)
+	 * @param visitor The leaf visitor
+	 */
+	public void visitLeaves(String prefix, BiConsumer<String, Leaf> visitor) {
+		for (Leaf leaf : leaves.values())
+			visitor.accept(prefix + leaf.name, leaf);
+		for (Node child : children.values())
+			child.visitLeaves(prefix + child.name + ".", visitor);
+	}
+
+	/**
+	 * Remove the leaves that fail a test along with any nodes that are left
+	 * empty.
+	 * 
+	 * @param prefix The path of this node (empty for the root)
+	 * @param keep   Tests the dot separated path of each leaf
+	 * @return Whether this node is now empty
+	 */
+	public boolean prune(String prefix, Predicate<String> keep) {
+		leaves.keySet().removeIf(name -> !keep.test(prefix + name));
+		children.values().removeIf(child -> child.prune(prefix + child.name + ".", keep));
+		return leaves.isEmpty() && children.isEmpty();
+	}
+
+	/**
+	 * Build the field of every leaf in the tree and cache everything else that
+	 * emission needs from the leaf's element. Since javac's element API is not
+	 * thread-safe, this must happen before the tree is handed to other threads.
+	 * 
+	 * @param constants    Reads the constant value of each leaf's element
+	 * @param fieldFactory Builds the field for each leaf
+	 */
+	public void resolve(Function<Element, Object> constants, Function<Leaf, FieldSpec> fieldFactory) {
+		for (Leaf leaf : leaves.values()) {
+			if (leaf.element != null) {
+				leaf.value = constants.apply(leaf.element);
+				leaf.lane = Lane.of(leaf.type());
+			}
+			leaf.field = fieldFactory.apply(leaf);
+		}
+		for (Node child : children.values())
+			child.resolve(constants, fieldFactory);
+	}
+
+	/**
+	 * Check whether any leaf in the tree is computed on first access. The tree
+	 * must be {@link #resolve resolved} first.
+	 * 
+	 * @return Whether the tree has a lazy leaf
+	 */
+	public boolean hasLazyLeaves() {
+		for (Leaf leaf : leaves.values())
+			if (leaf.isLazy())
+				return true;
+		for (Node child : children.values())
+			if (child.hasLazyLeaves())
+				return true;
+		return false;
+	}
+
+	/**
+	 * Count the nodes in the tree, including this one.
+	 * 
+	 * @return The number of nodes
+	 */
+	public int countNodes() {
+		int count = 1;
+		for (Node child : children.values())
+			count += child.countNodes();
+		return count;
+	}
+
+	/**
+	 * Convert the {@link Node} into a new {@link TypeSpec} builder. The tree must
+	 * be {@link #resolve resolved} first.
+	 * 
+	 * @param sharder   Places the fields of each node
+	 * @param decorator Adds extra members to the class of each node
+	 * @return A new {@link TypeSpec.Builder}
+	 */
+	public TypeSpec.Builder toTypeSpec(Sharder sharder, BiConsumer<Node, TypeSpec.Builder> decorator) {
+		var type = TypeSpec.classBuilder(name).addModifiers(PUBLIC, FINAL);
+
+		// Add constants
+		List<FieldSpec> fields = new ArrayList<>(leaves.size());
+		for (Leaf leaf : leaves.values()) {
+			if (leaf.isLazy())
+				addLazy(leaf, type);
+			else
+				fields.add(leaf.field);
+		}
+		sharder.addFields(fields, type);
+
+		// Add children
+		for (Node child : children.values())
+			type.addType(child.toTypeSpec(sharder, decorator).addModifiers(STATIC).build());
+
+		decorator.accept(this, type);
+
+		// Add private constructor
+		return type.addMethod(MethodSpec.constructorBuilder().addModifiers(PRIVATE).build());
+	}
+
+	/**
+	 * Add an accessor for a lazy leaf. The value lives in its own holder class,
+	 * so the JVM computes it on first access under the class initialization lock
+	 * and never again, without initializing anything else in the tree.
+	 * 
+	 * @param leaf The lazy leaf
+	 * @param type The class of the leaf's node
+	 */
+	private static void addLazy(Leaf leaf, TypeSpec.Builder type) {
+		String holder = "$" + leaf.name;
+		type.addType(TypeSpec.classBuilder(holder).addModifiers(PRIVATE, STATIC, FINAL)
+				.addField(FieldSpec.builder(leaf.field.type, "VALUE", STATIC, FINAL)
+						.initializer(leaf.field.initializer).build())
+				.addMethod(MethodSpec.constructorBuilder().addModifiers(PRIVATE).build()).build());
+
+		type.addMethod(MethodSpec.methodBuilder(leaf.name).addModifiers(PUBLIC, STATIC).returns(leaf.field.type)
+				.addJavadoc(leaf.field.javadoc).addStatement("return $N.VALUE", holder).build());
+	}
+
+	/**
+	 * A field of a constant tree that has not been built yet.
+	 */
+	static final class Leaf {
+
+		final String name;
+
+		/**
+		 * The annotated field or method that defines the leaf or {@code null} if the
+		 * leaf was read from a resource file.
+		 */
+		final Element element;
+
+		/**
+		 * Whether the leaf should be computed on first access rather than when its
+		 * node is initialized.
+		 * 
+		 * @see TreeConstant#lazy()
+		 */
+		boolean lazy;
+
+		/**
+		 * The leaf's position within its tree.
+		 * 
+		 * @see Node#assignOrdinals()
+		 */
+		int ordinal = -1;
+
+		/**
+		 * The constant value of the element or {@code null} if it's not a
+		 * compile-time constant.
+		 */
+		Object value;
+
+		/**
+		 * The lane of the element's type.
+		 */
+		Lane lane;
+
+		/**
+		 * The generated field.
+		 */
+		FieldSpec field;
+
+		/**
+		 * The JVM descriptor of the field's type, which is only set for the bytecode
+		 * backend.
+		 */
+		String descriptor;
+
+		/**
+		 * The internal name of the class that declares the element, which is only
+		 * set for the bytecode backend.
+		 */
+		String owner;
+
+		public Leaf(String name, Element element) {
+			this.name = Objects.requireNonNull(name);
+			this.element = Objects.requireNonNull(element);
+		}
+
+		/**
+		 * Build a leaf from a constant that was read from a resource file or an
+		 * upstream tree.
+		 * 
+		 * @param name  The field name
+		 * @param value The leaf's constant value
+		 */
+		public Leaf(String name, Object value) {
+			this.name = Objects.requireNonNull(name);
+			this.element = null;
+			this.value = Objects.requireNonNull(value);
+			this.lane = Lane.ofConstant(value);
+		}
+
+		/**
+		 * Get the type of the leaf's element, which is the return type if the leaf
+		 * is defined by a method.
+		 * 
+		 * @return The declared type
+		 */
+		public TypeMirror type() {
+			if (element instanceof ExecutableElement)
+				return ((ExecutableElement) element).getReturnType();
+			return element.asType();
+		}
+
+		/**
+		 * Check whether the leaf is emitted as a lazy accessor. Compile-time
+		 * constants are always inlined since they cost nothing to initialize.
+		 * 
+		 * @return Whether the leaf is lazy
+		 */
+		public boolean isLazy() {
+			return lazy && value == null;
+		}
+	}
+
+	/**
+	 * The kinds of storage that a leaf's value can occupy.
+	 */
+	enum Lane {
+		OBJECT, INT, LONG, DOUBLE, BOOLEAN;
+
+		/**
+		 * Get the lane for values of the given type.
+		 * 
+		 * @param type The declared type
+		 * @return The lane
+		 */
+		public static Lane of(TypeMirror type) {
+			switch (type.getKind()) {
+			case BYTE:
+			case SHORT:
+			case CHAR:
+			case INT:
+				return INT;
+			case LONG:
+				return LONG;
+			case FLOAT:
+			case DOUBLE:
+				return DOUBLE;
+			case BOOLEAN:
+				return BOOLEAN;
+			default:
+				return OBJECT;
+			}
+		}
+
+		/**
+		 * Get the lane for a compile-time constant.
+		 * 
+		 * @param constant The boxed constant
+		 * @return The lane
+		 */
+		public static Lane ofConstant(Object constant) {
+			if (constant instanceof Integer || constant instanceof Short || constant instanceof Byte
+					|| constant instanceof Character)
+				return INT;
+			if (constant instanceof Long)
+				return LONG;
+			if (constant instanceof Double || constant instanceof Float)
+				return DOUBLE;
+			if (constant instanceof Boolean)
+				return BOOLEAN;
+			return OBJECT;
+		}
+	}
+}
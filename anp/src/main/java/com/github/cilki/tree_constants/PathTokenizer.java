@@ -0,0 +1,154 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.lang.model.SourceVersion;
+
+/**
+ * Splits underscore separated field names into tree path segments in a single
+ * pass. A single underscore separates two segments and a double underscore
+ * becomes a literal underscore, so {@code java_class__path} is split into
+ * {@code java} and {@code class_path}. Segments are interned so that each
+ * distinct name is only held once by the tree.
+ * 
+ * @author cilki
+ * @since 1.0.0
+ */
+final class PathTokenizer {
+
+	/**
+	 * Canonical instances of every segment name seen so far.
+	 */
+	private final Map<String, String> names = new HashMap<>();
+
+	/**
+	 * A reusable buffer for segments that contain literal underscores.
+	 */
+	private final StringBuilder buffer = new StringBuilder();
+
+	private String input;
+
+	private int position;
+
+	/**
+	 * Begin tokenizing a new field name.
+	 * 
+	 * @param input The field name
+	 * @return {@code this}
+	 */
+	public PathTokenizer reset(String input) {
+		this.input = input;
+		this.position = 0;
+		return this;
+	}
+
+	/**
+	 * Whether another segment is available.
+	 * 
+	 * @return {@code true} if {@link #next()} will return a segment
+	 */
+	public boolean hasNext() {
+		return position < input.length();
+	}
+
+	/**
+	 * Get the next segment of the path. Segments that are not valid Java names
+	 * (like keywords) have an underscore appended.
+	 * 
+	 * @return The interned segment
+	 */
+	public String next() {
+		int length = input.length();
+		int start = position;
+
+		// Whether the segment is being accumulated in the buffer
+		boolean literal = false;
+		buffer.setLength(0);
+
+		while (position < length) {
+			if (input.charAt(position) != '_') {
+				position++;
+				continue;
+			}
+
+			// Measure the run of underscores
+			int end = position;
+			while (position < length && input.charAt(position) == '_')
+				position++;
+			int count = position - end;
+
+			if (count > 1 || literal) {
+				// Each pair of underscores becomes a literal underscore
+				buffer.append(input, start, end);
+				for (int i = 0; i < count / 2; i++)
+					buffer.append('_');
+				literal = true;
+			}
+
+			// An odd run ends the segment
+			if (count % 2 == 1)
+				return intern(literal ? buffer.toString() : input.substring(start, end));
+
+			start = position;
+		}
+
+		if (literal)
+			return intern(buffer.append(input, start, length).toString());
+		return intern(input.substring(start, length));
+	}
+
+	/**
+	 * Convert one segment of a resource key into a valid Java name. Characters
+	 * that cannot appear in a name are replaced with underscores.
+	 * 
+	 * @param input The resource key
+	 * @param start The start of the segment
+	 * @param end   The end of the segment
+	 * @return The interned segment
+	 */
+	public String segment(String input, int start, int end) {
+		buffer.setLength(0);
+		if (start == end || !Character.isJavaIdentifierStart(input.charAt(start)))
+			buffer.append('_');
+
+		for (int i = start; i < end; i++) {
+			char c = input.charAt(i);
+			buffer.append(Character.isJavaIdentifierPart(c) ? c : '_');
+		}
+		return intern(buffer.toString());
+	}
+
+	/**
+	 * Release the interned segment names.
+	 */
+	public void clear() {
+		names.clear();
+	}
+
+	private String intern(String segment) {
+		// Java keywords are not allowed
+		if (!SourceVersion.isName(segment))
+			segment = segment + "_";
+
+		String name = names.putIfAbsent(segment, segment);
+		return name == null ? segment : name;
+	}
+}
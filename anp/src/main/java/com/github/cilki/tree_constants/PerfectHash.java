@@ -0,0 +1,216 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * A minimal perfect hash function over a fixed set of strings computed with
+ * the hash-and-displace method. Keys are first hashed into buckets and then
+ * each bucket is assigned a displacement that moves all of its keys into free
+ * slots. A lookup therefore costs one hash of the key, two array reads and one
+ * comparison.
+ * <p>
+ * The generated lookup code must compute exactly the same functions as
+ * {@link #hash(String, int)} and {@link #slot(int, int, int)}.
+ * 
+ * @author cilki
+ * @since 1.0.0
+ */
+final class PerfectHash {
+
+	/**
+	 * The maximum displacement to try for a bucket before starting over with a
+	 * new seed.
+	 */
+	private static final int MAX_DISPLACEMENT = 1 << 20;
+
+	/**
+	 * The number of seeds to try before giving up. Distinct keys are almost always
+	 * placed with the first seed.
+	 */
+	private static final int MAX_SEEDS = 64;
+
+	/**
+	 * The average number of keys per bucket.
+	 */
+	private static final int BUCKET_SIZE = 4;
+
+	/**
+	 * The seed for the key hash.
+	 */
+	public final int seed;
+
+	/**
+	 * The displacement of each bucket.
+	 */
+	public final int[] displacements;
+
+	/**
+	 * The index of the key that occupies each slot.
+	 */
+	public final int[] slots;
+
+	private PerfectHash(int seed, int[] displacements, int[] slots) {
+		this.seed = seed;
+		this.displacements = displacements;
+		this.slots = slots;
+	}
+
+	/**
+	 * Build a perfect hash for the given distinct keys.
+	 * 
+	 * @param keys The keys
+	 * @return The perfect hash
+	 * @throws IllegalArgumentException If the keys are not distinct or could not
+	 *                                  be placed
+	 */
+	public static PerfectHash build(List<String> keys) {
+		// Equal keys have equal hashes under every seed
+		if (new HashSet<>(keys).size() != keys.size())
+			throw new IllegalArgumentException("Keys are not distinct");
+
+		for (int seed = 0; seed < MAX_SEEDS; seed++) {
+			PerfectHash hash = build(keys, seed);
+			if (hash != null)
+				return hash;
+		}
+		throw new IllegalArgumentException("Failed to place " + keys.size() + " keys with " + MAX_SEEDS + " seeds");
+	}
+
+	private static PerfectHash build(List<String> keys, int seed) {
+		int size = keys.size();
+		int[] hashes = new int[size];
+		for (int i = 0; i < size; i++)
+			hashes[i] = hash(keys.get(i), seed);
+
+		// Distribute the keys into buckets
+		int bucketCount = Math.max(1, size / BUCKET_SIZE);
+		List<List<Integer>> buckets = new ArrayList<>(bucketCount);
+		for (int i = 0; i < bucketCount; i++)
+			buckets.add(new ArrayList<>(BUCKET_SIZE));
+		for (int i = 0; i < size; i++)
+			buckets.get(bucket(hashes[i], bucketCount)).add(i);
+
+		// Place the largest buckets first while there are many free slots
+		Integer[] order = new Integer[bucketCount];
+		for (int i = 0; i < bucketCount; i++)
+			order[i] = i;
+		Arrays.sort(order, Comparator.comparingInt((Integer b) -> buckets.get(b).size()).reversed()
+				.thenComparingInt(b -> b));
+
+		int[] displacements = new int[bucketCount];
+		int[] slots = new int[size];
+		BitSet taken = new BitSet(size);
+		int[] candidate = new int[BUCKET_SIZE * 8];
+
+		for (int b : order) {
+			List<Integer> bucket = buckets.get(b);
+			if (bucket.isEmpty())
+				break;
+			if (candidate.length < bucket.size())
+				candidate = new int[bucket.size()];
+
+			int displacement = 0;
+			search: for (; displacement < MAX_DISPLACEMENT; displacement++) {
+				for (int i = 0; i < bucket.size(); i++) {
+					int slot = slot(hashes[bucket.get(i)], displacement, size);
+					if (taken.get(slot))
+						continue search;
+
+					// Keys within the bucket must not collide with each other either
+					for (int j = 0; j < i; j++)
+						if (candidate[j] == slot)
+							continue search;
+
+					candidate[i] = slot;
+				}
+				break;
+			}
+
+			// Keys with identical hashes can never be separated
+			if (displacement == MAX_DISPLACEMENT)
+				return null;
+
+			displacements[b] = displacement;
+			for (int i = 0; i < bucket.size(); i++) {
+				taken.set(candidate[i]);
+				slots[candidate[i]] = bucket.get(i);
+			}
+		}
+
+		return new PerfectHash(seed, displacements, slots);
+	}
+
+	/**
+	 * Hash a key with 32 bit FNV-1a followed by the MurmurHash3 finalizer.
+	 * 
+	 * @param key  The key
+	 * @param seed The seed
+	 * @return The hash
+	 */
+	public static int hash(String key, int seed) {
+		int h = 0x811C9DC5 ^ seed;
+		for (int i = 0; i < key.length(); i++)
+			h = (h ^ key.charAt(i)) * 0x01000193;
+		return mix(h);
+	}
+
+	/**
+	 * Get the bucket of a key.
+	 * 
+	 * @param hash        The key's hash
+	 * @param bucketCount The number of buckets
+	 * @return The bucket index
+	 */
+	public static int bucket(int hash, int bucketCount) {
+		return (hash >>> 1) % bucketCount;
+	}
+
+	/**
+	 * Get the slot of a key.
+	 * 
+	 * @param hash         The key's hash
+	 * @param displacement The displacement of the key's bucket
+	 * @param size         The number of slots
+	 * @return The slot index
+	 */
+	public static int slot(int hash, int displacement, int size) {
+		return (mix(hash + displacement * 0x9E3779B9) >>> 1) % size;
+	}
+
+	/**
+	 * The MurmurHash3 32 bit finalizer.
+	 * 
+	 * @param h The input
+	 * @return The mixed value
+	 */
+	public static int mix(int h) {
+		h ^= h >>> 16;
+		h *= 0x85EBCA6B;
+		h ^= h >>> 13;
+		h *= 0xC2B2AE35;
+		h ^= h >>> 16;
+		return h;
+	}
+}
@@ -0,0 +1,251 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records where the processor spends its time. Timings are only taken when a
+ * report path is given with {@code -Atreeconstants.stats=<path>}; otherwise
+ * every method returns immediately.
+ * <p>
+ * The report is a single JSON object that build dashboards can track over
+ * time. Phase times are summed across threads, so the render phase may exceed
+ * the wall time when trees are rendered in parallel.
+ * 
+ * @author cilki
+ * @since 1.0.0
+ */
+final class ProcessorStats {
+
+	/**
+	 * The instrumented phases of the processor.
+	 */
+	enum Phase {
+
+		/**
+		 * Collecting annotated elements from a round.
+		 */
+		COLLECT("collect"),
+
+		/**
+		 * Splitting field names and adding leaves to trees.
+		 */
+		BUILD("build"),
+
+		/**
+		 * Calls to {@code VariableElement.getConstantValue()}.
+		 */
+		CONSTANT_VALUE("getConstantValue"),
+
+		/**
+		 * Calls to {@code Elements.getDocComment()}.
+		 */
+		DOC_COMMENT("getDocComment"),
+
+		/**
+		 * Building and rendering the {@code TypeSpec}s of a tree.
+		 */
+		RENDER("render"),
+
+		/**
+		 * Writing files through the {@code Filer}.
+		 */
+		WRITE("write");
+
+		final String key;
+
+		Phase(String key) {
+			this.key = key;
+		}
+	}
+
+	/**
+	 * The report destination or {@code null} if disabled.
+	 */
+	private final Path path;
+
+	/**
+	 * Total nanoseconds spent in each phase.
+	 */
+	private final AtomicLongArray nanos = new AtomicLongArray(Phase.values().length);
+
+	/**
+	 * Number of times each phase was entered.
+	 */
+	private final AtomicLongArray counts = new AtomicLongArray(Phase.values().length);
+
+	/**
+	 * The element count and collection time of each round.
+	 */
+	private final List<long[]> rounds = new ArrayList<>();
+
+	/**
+	 * The name, node count, leaf count, file count and byte count of each tree.
+	 */
+	private final List<Object[]> trees = new ArrayList<>();
+
+	/**
+	 * When the processor was initialized.
+	 */
+	private final long created = System.nanoTime();
+
+	/**
+	 * @param path The report destination or {@code null} to disable statistics
+	 */
+	public ProcessorStats(String path) {
+		this.path = path == null || path.isEmpty() ? null : Paths.get(path);
+	}
+
+	/**
+	 * @return Whether statistics are being recorded
+	 */
+	public boolean isEnabled() {
+		return path != null;
+	}
+
+	/**
+	 * Begin timing a phase.
+	 * 
+	 * @return The start time to pass to {@link #stop}
+	 */
+	public long start() {
+		return path == null ? 0 : System.nanoTime();
+	}
+
+	/**
+	 * Finish timing a phase.
+	 * 
+	 * @param phase The phase
+	 * @param start The value returned by {@link #start}
+	 */
+	public void stop(Phase phase, long start) {
+		if (path == null)
+			return;
+
+		nanos.addAndGet(phase.ordinal(), System.nanoTime() - start);
+		counts.incrementAndGet(phase.ordinal());
+	}
+
+	/**
+	 * Record the result of a processing round.
+	 * 
+	 * @param elements The number of annotated elements in the round
+	 * @param start    The value returned by {@link #start} when the round began
+	 */
+	public synchronized void round(int elements, long start) {
+		if (path == null)
+			return;
+
+		rounds.add(new long[] { elements, System.nanoTime() - start });
+	}
+
+	/**
+	 * Record the size of an emitted tree.
+	 * 
+	 * @param emission The rendered tree
+	 */
+	public synchronized void tree(Emission emission) {
+		if (path == null)
+			return;
+
+		int files = emission.sources.size() + emission.classes.size() + emission.resources.size();
+		long bytes = 0;
+		for (String source : emission.sources.values())
+			bytes += source.getBytes(UTF_8).length;
+		for (byte[] content : emission.classes.values())
+			bytes += content.length;
+		for (byte[] content : emission.resources.values())
+			bytes += content.length;
+
+		Node root = emission.root;
+		trees.add(new Object[] { root.packageName + "." + root.name, root.countNodes(), emission.leaves, files,
+				bytes });
+	}
+
+	/**
+	 * Build a one-line summary of the recorded statistics.
+	 * 
+	 * @return The summary
+	 */
+	public synchronized String summary() {
+		long nodes = 0, leaves = 0, files = 0, bytes = 0;
+		for (Object[] tree : trees) {
+			nodes += (int) tree[1];
+			leaves += (int) tree[2];
+			files += (int) tree[3];
+			bytes += (long) tree[4];
+		}
+
+		return String.format("Tree constants: %d trees, %d nodes, %d leaves, %d files, %d bytes in %d ms (%s)",
+				trees.size(), nodes, leaves, files, bytes, (System.nanoTime() - created) / 1_000_000, path);
+	}
+
+	/**
+	 * Write the report.
+	 * 
+	 * @throws IOException If the report could not be written
+	 */
+	public synchronized void write() throws IOException {
+		if (path == null)
+			return;
+
+		var json = new StringBuilder("{\n");
+		json.append("  \"elapsedNanos\": ").append(System.nanoTime() - created).append(",\n");
+
+		json.append("  \"phases\": {");
+		for (Phase phase : Phase.values()) {
+			json.append(phase.ordinal() == 0 ? "\n" : ",\n");
+			json.append("    \"").append(phase.key).append("\": { \"count\": ").append(counts.get(phase.ordinal()))
+					.append(", \"nanos\": ").append(nanos.get(phase.ordinal())).append(" }");
+		}
+		json.append("\n  },\n");
+
+		json.append("  \"rounds\": [");
+		for (int i = 0; i < rounds.size(); i++) {
+			json.append(i == 0 ? "\n" : ",\n");
+			json.append("    { \"elements\": ").append(rounds.get(i)[0]).append(", \"nanos\": ")
+					.append(rounds.get(i)[1]).append(" }");
+		}
+		json.append(rounds.isEmpty() ? "],\n" : "\n  ],\n");
+
+		json.append("  \"trees\": [");
+		for (int i = 0; i < trees.size(); i++) {
+			Object[] tree = trees.get(i);
+			json.append(i == 0 ? "\n" : ",\n");
+			json.append("    { \"name\": \"").append(tree[0]).append("\", \"nodes\": ").append(tree[1])
+					.append(", \"leaves\": ").append(tree[2]).append(", \"files\": ").append(tree[3])
+					.append(", \"bytes\": ").append(tree[4]).append(" }");
+		}
+		json.append(trees.isEmpty() ? "]\n" : "\n  ]\n");
+		json.append("}\n");
+
+		Path parent = path.toAbsolutePath().getParent();
+		if (parent != null)
+			Files.createDirectories(parent);
+		Files.write(path, json.toString().getBytes(UTF_8));
+	}
+}
@@ -0,0 +1,133 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static javax.lang.model.element.Modifier.PUBLIC;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.TypeSpec;
+
+/**
+ * Splits nodes with too many fields across several classes. A class file can
+ * hold at most 65535 constant pool entries, and javac slows down considerably
+ * on very large classes well before that limit.
+ * <p>
+ * The fields of an oversized node are moved into top-level interfaces that the
+ * node's class implements. Interface fields are inherited, so callers still
+ * refer to {@code Root.a.b.c} and the constants are still inlined.
+ * 
+ * @author cilki
+ * @since 1.0.0
+ */
+final class Sharder {
+
+	/**
+	 * The default maximum number of fields in a single class.
+	 */
+	public static final int DEFAULT_SHARD_SIZE = 4096;
+
+	/**
+	 * The most fields that can safely share one constant pool. Each field needs
+	 * at most three entries: its name, a string constant and its UTF-8 value.
+	 */
+	private static final int MAX_SHARD_SIZE = 65535 / 3 - 256;
+
+	private final ClassName rootClass;
+
+	private final int shardSize;
+
+	/**
+	 * The generated shard interfaces.
+	 */
+	private final List<TypeSpec.Builder> shards = new ArrayList<>();
+
+	/**
+	 * The number of nodes that were split.
+	 */
+	private int shardedNodes;
+
+	/**
+	 * The number of fields in the largest node that was split.
+	 */
+	private int largestNode;
+
+	/**
+	 * @param root      The root of the tree
+	 * @param shardSize The maximum number of fields per class
+	 */
+	public Sharder(Node root, int shardSize) {
+		this(ClassName.get(root.packageName, root.name), shardSize);
+	}
+
+	/**
+	 * @param rootClass The top-level class of the tree or of a companion that
+	 *                  mirrors it, which also names the shards
+	 * @param shardSize The maximum number of fields per class
+	 */
+	public Sharder(ClassName rootClass, int shardSize) {
+		this.rootClass = rootClass;
+		this.shardSize = Math.max(1, Math.min(shardSize, MAX_SHARD_SIZE));
+	}
+
+	/**
+	 * Add fields to the class of a node, moving them into shards if there are too
+	 * many.
+	 * 
+	 * @param fields The node's fields
+	 * @param type   The node's class
+	 */
+	public void addFields(List<FieldSpec> fields, TypeSpec.Builder type) {
+		if (fields.size() <= shardSize) {
+			type.addFields(fields);
+			return;
+		}
+
+		shardedNodes++;
+		largestNode = Math.max(largestNode, fields.size());
+
+		for (int i = 0; i < fields.size(); i += shardSize) {
+			ClassName shard = rootClass.peerClass(rootClass.simpleName() + "Shard" + shards.size());
+
+			shards.add(TypeSpec.interfaceBuilder(shard.simpleName()).addModifiers(PUBLIC)
+					.addFields(fields.subList(i, Math.min(fields.size(), i + shardSize))));
+			type.addSuperinterface(shard);
+		}
+	}
+
+	/**
+	 * @return The generated shard interfaces
+	 */
+	public List<TypeSpec.Builder> shards() {
+		return shards;
+	}
+
+	/**
+	 * @return A summary of the sharding or {@code null} if nothing was split
+	 */
+	public String summary() {
+		if (shards.isEmpty())
+			return null;
+
+		return String.format("%s: split %d node(s) with up to %d fields into %d shard(s) of at most %d fields",
+				rootClass, shardedNodes, largestNode, shards.size(), shardSize);
+	}
+}
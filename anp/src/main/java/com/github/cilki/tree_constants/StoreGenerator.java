@@ -0,0 +1,143 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.cilki.tree_constants.Node.Lane;
+import com.github.cilki.tree_constants.Node.Leaf;
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+
+/**
+ * Generates two companions for a root class: a mirror tree that holds the
+ * ordinal of each leaf and a store that holds one value per leaf in flat
+ * arrays. The store keeps a separate primitive array for each {@link Lane}, so
+ * reading or writing a value is a single array access without hashing or
+ * boxing.
+ * 
+ * @author cilki
+ * @since 1.0.0
+ */
+final class StoreGenerator {
+
+	/**
+	 * Build the ordinal mirror tree of a root.
+	 * 
+	 * @param root    The root of the tree
+	 * @param sharder Places the fields of each mirror class
+	 * @return The mirror's root class
+	 */
+	public static TypeSpec.Builder ordinals(Node root, Sharder sharder) {
+		return mirror(root, root.name + "Ordinal", sharder).addJavadoc("The ordinal of every leaf in {@link $T}.\n",
+				ClassName.get(root.packageName, root.name));
+	}
+
+	private static TypeSpec.Builder mirror(Node node, String name, Sharder sharder) {
+		var type = TypeSpec.classBuilder(name).addModifiers(PUBLIC, FINAL);
+
+		List<FieldSpec> fields = new ArrayList<>();
+		for (Leaf leaf : node.leaves())
+			fields.add(FieldSpec.builder(TypeName.INT, leaf.name, PUBLIC, STATIC, FINAL)
+					.initializer("$L", leaf.ordinal).build());
+		sharder.addFields(fields, type);
+
+		for (Node child : node.children())
+			type.addType(mirror(child, child.name, sharder).addModifiers(STATIC).build());
+
+		return type.addMethod(MethodSpec.constructorBuilder().addModifiers(PRIVATE).build());
+	}
+
+	/**
+	 * Build the store class of a root.
+	 * 
+	 * @param root  The root of the tree
+	 * @param bases The first ordinal of each lane followed by the total number of
+	 *              leaves
+	 * @return The store class
+	 */
+	public static TypeSpec.Builder store(Node root, int[] bases) {
+		ClassName rootClass = ClassName.get(root.packageName, root.name);
+		ClassName ordinalClass = ClassName.get(root.packageName, root.name + "Ordinal");
+
+		var type = TypeSpec.classBuilder(root.name + "Store").addModifiers(PUBLIC, FINAL)
+				.addJavadoc("Mutable values for the leaves of {@link $T}, indexed by the ordinals in {@link $T}.\n",
+						rootClass, ordinalClass)
+				.addField(FieldSpec.builder(TypeName.INT, "SIZE", PUBLIC, STATIC, FINAL)
+						.addJavadoc("The number of leaves in the tree.\n").initializer("$L", bases[bases.length - 1])
+						.build());
+
+		for (Lane lane : Lane.values()) {
+			int base = bases[lane.ordinal()];
+			int count = bases[lane.ordinal() + 1] - base;
+			if (count == 0)
+				// Don't allocate lanes that no leaf uses
+				continue;
+
+			TypeName valueType = valueType(lane);
+			String array = lane.name().toLowerCase() + "s";
+			String suffix = lane == Lane.OBJECT ? "" : lane.name().charAt(0) + lane.name().substring(1).toLowerCase();
+			String index = base == 0 ? "ordinal" : "ordinal - " + base;
+
+			type.addField(FieldSpec.builder(ArrayTypeName.of(valueType), array, PRIVATE, FINAL)
+					.initializer("new $T[$L]", valueType, count).build());
+
+			type.addMethod(MethodSpec.methodBuilder("get" + suffix).addModifiers(PUBLIC).returns(valueType)
+					.addParameter(TypeName.INT, "ordinal")
+					.addJavadoc("Get the value of a leaf whose ordinal is in [$L, $L).\n\n", base, base + count)
+					.addJavadoc("@param ordinal The leaf's ordinal\n").addJavadoc("@return The current value\n")
+					.addStatement("return $N[$L]", array, index).build());
+
+			type.addMethod(MethodSpec.methodBuilder("set" + suffix).addModifiers(PUBLIC)
+					.addParameter(TypeName.INT, "ordinal").addParameter(valueType, "value")
+					.addJavadoc("Set the value of a leaf whose ordinal is in [$L, $L).\n\n", base, base + count)
+					.addJavadoc("@param ordinal The leaf's ordinal\n").addJavadoc("@param value The new value\n")
+					.addStatement("$N[$L] = value", array, index).build());
+		}
+
+		return type;
+	}
+
+	private static TypeName valueType(Lane lane) {
+		switch (lane) {
+		case INT:
+			return TypeName.INT;
+		case LONG:
+			return TypeName.LONG;
+		case DOUBLE:
+			return TypeName.DOUBLE;
+		case BOOLEAN:
+			return TypeName.BOOLEAN;
+		default:
+			return TypeName.OBJECT;
+		}
+	}
+
+	private StoreGenerator() {
+	}
+}
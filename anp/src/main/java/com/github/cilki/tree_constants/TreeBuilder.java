@@ -0,0 +1,252 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.STATIC;
+import static javax.tools.Diagnostic.Kind.ERROR;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.util.Elements;
+
+import com.github.cilki.tree_constants.Node.Leaf;
+import com.github.cilki.tree_constants.ProcessorStats.Phase;
+
+/**
+ * Builds constant trees from annotated elements and resource keys. The builder
+ * only depends on javac's element API, so it works in an annotation processor
+ * as well as on elements from a standalone {@code JavacTask}. It is not
+ * thread-safe, but builders with separate trees can run concurrently.
+ * 
+ * @author cilki
+ * @since 1.0.0
+ */
+final class TreeBuilder {
+
+	/**
+	 * Maps fully qualified tree constant class names to root {@link Node}s. Trees
+	 * are sorted so that they are always emitted in the same order.
+	 */
+	private final Map<String, Node> trees = new TreeMap<>();
+
+	/**
+	 * Splits field names into tree paths.
+	 */
+	private final PathTokenizer tokenizer = new PathTokenizer();
+
+	private final Elements elements;
+
+	private final Messager messager;
+
+	private final ProcessorStats stats;
+
+	/**
+	 * @param elements The element utilities of the compilation
+	 * @param messager Reports invalid and duplicate constants
+	 * @param stats    Records build timings
+	 */
+	public TreeBuilder(Elements elements, Messager messager, ProcessorStats stats) {
+		this.elements = elements;
+		this.messager = messager;
+		this.stats = stats;
+	}
+
+	/**
+	 * Add a field or method annotated with {@link TreeConstant} to its tree.
+	 * 
+	 * @param elem The annotated element
+	 */
+	public void addConstant(Element elem) {
+		long start = stats.start();
+		TreeConstant annotation = elem.getAnnotation(TreeConstant.class);
+
+		if (elem.getKind() == ElementKind.METHOD) {
+			if (!isLazyMethod((ExecutableElement) elem, annotation)) {
+				messager.printMessage(ERROR, "@TreeConstant method " + elem.getSimpleName()
+						+ " must be lazy, static, non-private and take no parameters", elem);
+				return;
+			}
+		} else if (!elem.getModifiers().contains(FINAL))
+			throw new RuntimeException("@TreeConstant requires field (" + elem.getSimpleName() + ") to be final");
+
+		String packageName = annotation.packageName();
+		if (packageName.isEmpty())
+			// If an explicit package is not specified, use the field's package
+			packageName = elements.getPackageOf(elem).getQualifiedName().toString();
+
+		String rootName = annotation.name();
+		if (rootName.isEmpty())
+			// Set a default name
+			rootName = getDefaultName(elem.getEnclosingElement().getSimpleName().toString());
+
+		String treeName = packageName + "." + rootName;
+		Node root = getTree(packageName, rootName);
+		root.originatingElements.add(elem);
+
+		// Move n down the tree, building nodes if necessary along the way, until the
+		// last segment of the path is reached. The last segment will become a field.
+		Node n = root;
+		String segment = tokenizer.reset(elem.getSimpleName().toString()).next();
+		while (tokenizer.hasNext()) {
+			n = n.child(segment);
+			segment = tokenizer.next();
+		}
+
+		var leaf = new Leaf(segment, elem);
+		leaf.lazy = annotation.lazy();
+		if (!n.addLeaf(leaf))
+			messager.printMessage(ERROR,
+					"Duplicate tree constant: " + treeName + " already contains " + segment, elem);
+
+		stats.stop(Phase.BUILD, start);
+	}
+
+	/**
+	 * Add the keys of a resource file to a tree.
+	 * 
+	 * @param root     The root {@link Node}
+	 * @param treeName The tree's fully qualified name
+	 * @param reader   The resource content
+	 * @param json     Whether the resource is JSON rather than properties
+	 * @param origin   The element that named the resource or {@code null}
+	 * @throws IOException If the resource could not be read
+	 */
+	public void addKeys(Node root, String treeName, Reader reader, boolean json, Element origin) throws IOException {
+		if (json)
+			KeyReader.readJson(reader, key -> addKey(root, treeName, key, origin));
+		else
+			KeyReader.readProperties(reader, key -> addKey(root, treeName, key, origin));
+	}
+
+	/**
+	 * Add a leaf for a resource key to a tree.
+	 * 
+	 * @param root     The root {@link Node}
+	 * @param treeName The tree's fully qualified name
+	 * @param key      The dot separated key
+	 * @param origin   The annotated type
+	 */
+	private void addKey(Node root, String treeName, String key, Element origin) {
+		Node n = root;
+		int start = 0;
+		for (int end = key.indexOf('.'); end != -1; end = key.indexOf('.', start)) {
+			n = n.child(tokenizer.segment(key, start, end));
+			start = end + 1;
+		}
+
+		if (!n.addLeaf(new Leaf(tokenizer.segment(key, start, key.length()), key)))
+			messager.printMessage(ERROR,
+					"Duplicate tree constant: " + treeName + " already contains " + key, origin);
+	}
+
+	/**
+	 * Get a root {@link Node} by name, creating it if it does not exist.
+	 * 
+	 * @param packageName The root's package
+	 * @param rootName    The root's simple name
+	 * @return The root
+	 */
+	public Node getTree(String packageName, String rootName) {
+		return trees.computeIfAbsent(packageName + "." + rootName, key -> new Node(rootName, packageName));
+	}
+
+	/**
+	 * Check whether a tree has been created.
+	 * 
+	 * @param treeName The tree's fully qualified name
+	 * @return Whether the tree exists
+	 */
+	public boolean contains(String treeName) {
+		return trees.containsKey(treeName);
+	}
+
+	/**
+	 * @return The root of every tree in name order
+	 */
+	public Collection<Node> roots() {
+		return trees.values();
+	}
+
+	/**
+	 * Release the trees and interned path segments.
+	 */
+	public void clear() {
+		trees.clear();
+		tokenizer.clear();
+	}
+
+	/**
+	 * Get the name of the tree that a {@link TreeConstantSource} contributes to.
+	 * 
+	 * @param type The annotated type
+	 * @return The tree's fully qualified name
+	 */
+	public String getSourceTreeName(TypeElement type) {
+		TreeConstantSource annotation = type.getAnnotation(TreeConstantSource.class);
+
+		String packageName = annotation.packageName();
+		if (packageName.isEmpty())
+			// If an explicit package is not specified, use the type's package
+			packageName = elements.getPackageOf(type).getQualifiedName().toString();
+
+		String rootName = annotation.name();
+		if (rootName.isEmpty())
+			// Set a default name
+			rootName = getDefaultName(type.getSimpleName().toString());
+
+		return packageName + "." + rootName;
+	}
+
+	/**
+	 * Check whether an annotated method can define a lazy leaf.
+	 * 
+	 * @param method     The method
+	 * @param annotation The method's annotation
+	 * @return Whether the method is valid
+	 */
+	private static boolean isLazyMethod(ExecutableElement method, TreeConstant annotation) {
+		return annotation.lazy() && method.getModifiers().contains(STATIC)
+				&& !method.getModifiers().contains(PRIVATE) && method.getParameters().isEmpty()
+				&& method.getReturnType().getKind() != TypeKind.VOID;
+	}
+
+	/**
+	 * Get the default class name for the root of a constant tree.
+	 * 
+	 * @param className The name of the class that contains a {@link TreeConstant}
+	 * @return The default class name
+	 */
+	static String getDefaultName(String className) {
+		if (className.endsWith("Constants"))
+			return className.substring(0, className.length() - 1);
+		else
+			return className + "Constant";
+	}
+}
@@ -17,32 +17,54 @@
  *****************************************************************************/
 package com.github.cilki.tree_constants;
 
-import static javax.lang.model.element.Modifier.FINAL;
-import static javax.lang.model.element.Modifier.PRIVATE;
-import static javax.lang.model.element.Modifier.PUBLIC;
-import static javax.lang.model.element.Modifier.STATIC;
-
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.tools.Diagnostic.Kind.ERROR;
+import static javax.tools.Diagnostic.Kind.NOTE;
+import static javax.tools.Diagnostic.Kind.WARNING;
+import static javax.tools.StandardLocation.CLASS_OUTPUT;
+import static javax.tools.StandardLocation.CLASS_PATH;
+import static javax.tools.StandardLocation.SOURCE_PATH;
+import static javax.tools.StandardLocation.SOURCE_OUTPUT;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
 import javax.annotation.processing.FilerException;
+import javax.annotation.processing.ProcessingEnvironment;
 import javax.annotation.processing.RoundEnvironment;
 import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.PackageElement;
 import javax.lang.model.element.TypeElement;
-import javax.lang.model.element.VariableElement;
+import javax.tools.FileObject;
+import javax.tools.JavaFileManager.Location;
 
-import com.squareup.javapoet.FieldSpec;
-import com.squareup.javapoet.JavaFile;
-import com.squareup.javapoet.MethodSpec;
-import com.squareup.javapoet.TypeName;
-import com.squareup.javapoet.TypeSpec;
+import com.github.cilki.tree_constants.Node.Leaf;
+import com.github.cilki.tree_constants.ProcessorStats.Phase;
 
 /**
  * The annotation processor that transforms each {@link TreeConstant} into keys
@@ -64,9 +86,186 @@ public final class TreeConstantProcessor extends AbstractProcessor {
 	private static final boolean EMIT_FIRST_ROUND = true;
 
 	/**
-	 * Maps fully qualified tree constant class names to root {@link Node}s.
+	 * The processor option that selects the Gradle incremental processing mode.
+	 * The default is {@code aggregating} because fields from any number of
+	 * classes may contribute to the same tree. If every tree is built from exactly
+	 * one class, then {@code isolating} allows Gradle to recompile much less.
+	 * {@code none} makes every compilation a full one, which is also the mode when
+	 * an option reads inputs that Gradle does not track.
+	 */
+	static final String OPTION_INCREMENTAL = "treeconstants.incremental";
+
+	/**
+	 * The processor option that adds a perfect hash lookup from string values to
+	 * leaves to each root class.
+	 */
+	static final String OPTION_LOOKUP = "treeconstants.lookup";
+
+	/**
+	 * The processor option that adds {@code keys()} and {@code values()} to every
+	 * class in each tree.
+	 */
+	static final String OPTION_INDEX = "treeconstants.index";
+
+	/**
+	 * The processor option that generates an ordinal mirror tree and a value store
+	 * for each root.
+	 */
+	static final String OPTION_STORE = "treeconstants.store";
+
+	/**
+	 * The processor option that generates an ordinal mirror tree and a versioned
+	 * configuration class with subtree listeners for each root.
+	 */
+	static final String OPTION_CONFIG = "treeconstants.config";
+
+	/**
+	 * The processor option that generates a bit set class over the {@code int}
+	 * constants of each root.
+	 */
+	static final String OPTION_BITS = "treeconstants.bits";
+
+	/**
+	 * The processor option that exports each tree as a {@link TreeFile} resource.
+	 */
+	static final String OPTION_BINARY = "treeconstants.binary";
+
+	/**
+	 * The processor option that sets the maximum number of fields in one
+	 * generated class. Nodes with more leaves are split into shards.
+	 */
+	static final String OPTION_SHARD_SIZE = "treeconstants.shardSize";
+
+	/**
+	 * The processor option that sets the number of threads that render generated
+	 * files. Defaults to the number of processors.
+	 */
+	static final String OPTION_PARALLELISM = "treeconstants.parallelism";
+
+	/**
+	 * The processor option that writes a JSON report of processor timings and
+	 * output sizes to the given path, which must be absolute.
+	 */
+	static final String OPTION_STATS = "treeconstants.stats";
+
+	/**
+	 * The processor option that requires every leaf to be a compile-time
+	 * constant. Other leaves are initialized from the source field, so reading
+	 * them loads classes at runtime.
+	 */
+	static final String OPTION_STRICT = "treeconstants.strict";
+
+	/**
+	 * The processor option that selects how trees are emitted: {@code source}
+	 * (the default) writes Java source that javac compiles in the next round and
+	 * {@code bytecode} writes class files directly.
+	 */
+	static final String OPTION_BACKEND = "treeconstants.backend";
+
+	/**
+	 * The processor option that leaves a tree's files untouched if the files that
+	 * already exist in the output directories have the same content. Skipped
+	 * files are not passed to javac, so sources are only skipped if javac finds
+	 * them on the source path, like Maven's generated sources directory.
+	 */
+	static final String OPTION_SKIP_UNCHANGED = "treeconstants.skipUnchanged";
+
+	/**
+	 * The processor option that lists directories to search for the resource
+	 * files of {@link TreeConstantSource} before the source path and class path.
+	 */
+	static final String OPTION_RESOURCE_PATH = "treeconstants.resourcePath";
+
+	/**
+	 * The processor option that names this module. Each tree is published to
+	 * {@code META-INF/tree-constants/<module>/} so that downstream modules can
+	 * extend it.
+	 */
+	static final String OPTION_MODULE = "treeconstants.module";
+
+	/**
+	 * The processor option that lists upstream modules whose published trees are
+	 * merged into trees of the same name.
+	 */
+	static final String OPTION_MERGE = "treeconstants.merge";
+
+	/**
+	 * The processor option that lists usage indexes written by
+	 * {@link TreeConstantUsagePlugin}. Leaves that no index references are
+	 * reported as unused.
+	 */
+	static final String OPTION_USAGE = "treeconstants.usage";
+
+	/**
+	 * The processor option that removes the leaves that are unused according to
+	 * {@code treeconstants.usage} from the generated trees.
+	 */
+	static final String OPTION_PRUNE = "treeconstants.prune";
+
+	/**
+	 * Options that make the processor read files that Gradle does not track as
+	 * inputs of incremental annotation processing.
+	 */
+	private static final List<String> UNTRACKED_INPUTS = List.of(OPTION_RESOURCE_PATH, OPTION_MERGE, OPTION_USAGE);
+
+	/**
+	 * Generated static methods that read every leaf of the node they're called
+	 * on, either directly or by looking up a value that could be any of them.
+	 */
+	private static final Set<String> SUBTREE_METHODS = Set.of("keys", "values", "lookup", "mask", "intersects",
+			"bit", "add", "remove", "contains");
+
+	/**
+	 * All options recognized by the processor.
 	 */
-	private Map<String, Node> trees = new HashMap<>();
+	private static final Set<String> OPTIONS = Set.of(OPTION_INCREMENTAL, OPTION_LOOKUP, OPTION_INDEX,
+			OPTION_STORE, OPTION_CONFIG, OPTION_BITS, OPTION_BINARY, OPTION_SHARD_SIZE, OPTION_PARALLELISM,
+			OPTION_STATS, OPTION_STRICT, OPTION_BACKEND, OPTION_SKIP_UNCHANGED, OPTION_RESOURCE_PATH,
+			OPTION_MODULE, OPTION_MERGE, OPTION_USAGE, OPTION_PRUNE);
+
+	/**
+	 * Builds the trees until they are emitted, after which it's {@code null}.
+	 */
+	private TreeBuilder builder;
+
+	private TreeResolver resolver;
+
+	private TreeRenderer renderer;
+
+	/**
+	 * The input hashes of trees that are built from resource files, which are
+	 * recorded so that unchanged resources can be skipped next time.
+	 */
+	private final Map<String, String> inputHashes = new HashMap<>();
+
+	/**
+	 * Whether the generated sources directory was found to be missing from the
+	 * source path.
+	 */
+	private boolean reportedSourcePath;
+
+	/**
+	 * Records processor timings if enabled.
+	 */
+	private ProcessorStats stats;
+
+	@Override
+	public synchronized void init(ProcessingEnvironment processingEnv) {
+		super.init(processingEnv);
+		String report = processingEnv.getOptions().get(OPTION_STATS);
+		if (report != null && !report.isEmpty() && !Paths.get(report).isAbsolute()) {
+			// A relative path would resolve against javac's working directory, like the Gradle daemon's
+			processingEnv.getMessager().printMessage(ERROR,
+					"-A" + OPTION_STATS + " must be an absolute path: " + report);
+			report = null;
+		}
+		stats = new ProcessorStats(report);
+		builder = new TreeBuilder(processingEnv.getElementUtils(), processingEnv.getMessager(), stats);
+		resolver = new TreeResolver(processingEnv.getElementUtils(), processingEnv.getTypeUtils(),
+				processingEnv.getMessager(), processingEnv.getOptions(), stats);
+		renderer = new TreeRenderer(processingEnv.getOptions(), processingEnv.getSourceVersion(), stats,
+				processingEnv.getMessager());
+	}
 
 	@Override
 	public SourceVersion getSupportedSourceVersion() {
@@ -75,7 +274,40 @@ public final class TreeConstantProcessor extends AbstractProcessor {
 
 	@Override
 	public Set<String> getSupportedAnnotationTypes() {
-		return Set.of(TreeConstant.class.getName());
+		return Set.of(TreeConstant.class.getName(), TreeConstantSource.class.getName());
+	}
+
+	@Override
+	public Set<String> getSupportedOptions() {
+		Set<String> options = new HashSet<>(OPTIONS);
+
+		// Gradle queries this to determine the type of a "dynamic" processor
+		if (!isInitialized())
+			options.add("org.gradle.annotation.processing.aggregating");
+		else if (isIncremental())
+			options.add("org.gradle.annotation.processing." + processingEnv.getOptions()
+					.getOrDefault(OPTION_INCREMENTAL, "aggregating"));
+
+		return options;
+	}
+
+	/**
+	 * Check whether the processor declares itself incremental to Gradle. Inputs
+	 * that are read outside of the compilation would not trigger reprocessing,
+	 * so options that read them disable incremental processing.
+	 * 
+	 * @return Whether the processor is incremental
+	 */
+	private boolean isIncremental() {
+		Map<String, String> options = processingEnv.getOptions();
+		String mode = options.getOrDefault(OPTION_INCREMENTAL, "aggregating");
+		if (!mode.equals("aggregating") && !mode.equals("isolating"))
+			return false;
+
+		for (String option : UNTRACKED_INPUTS)
+			if (options.containsKey(option))
+				return false;
+		return true;
 	}
 
 	@Override
@@ -89,7 +321,7 @@ public final class TreeConstantProcessor extends AbstractProcessor {
 		}
 
 		// Check whether the source has already been emitted
-		if (trees == null) {
+		if (builder == null) {
 			// Warn if some constants will be skipped
 			if (!annotations.isEmpty())
 				System.out.println(
@@ -97,79 +329,201 @@ public final class TreeConstantProcessor extends AbstractProcessor {
 			return false;
 		}
 
-		round.getElementsAnnotatedWith(TreeConstant.class).stream().map(VariableElement.class::cast).forEach(elem -> {
-			TreeConstant annotation = elem.getAnnotation(TreeConstant.class);
+		long roundStart = stats.start();
+		Set<? extends Element> elements = round.getElementsAnnotatedWith(TreeConstant.class);
+		stats.stop(Phase.COLLECT, roundStart);
 
-			if (!elem.getModifiers().contains(FINAL))
-				throw new RuntimeException("@TreeConstant requires field (" + elem.getSimpleName() + ") to be final");
+		elements.forEach(builder::addConstant);
 
-			String packageName = annotation.packageName();
-			if (packageName.isEmpty())
-				// If an explicit package is not specified, use the field's package
-				packageName = processingEnv.getElementUtils().getPackageOf(elem).getQualifiedName().toString();
+		// Resource files go last so that they can be merged into trees with fields
+		Set<? extends Element> sources = round.getElementsAnnotatedWith(TreeConstantSource.class);
+		Map<String, List<TypeElement>> sourceTrees = new TreeMap<>();
+		for (Element type : sources)
+			sourceTrees.computeIfAbsent(builder.getSourceTreeName((TypeElement) type), key -> new ArrayList<>())
+					.add((TypeElement) type);
+		sourceTrees.forEach(this::readSources);
+		stats.round(elements.size() + sources.size(), roundStart);
 
-			String rootName = annotation.name();
-			if (rootName.isEmpty())
-				// Set a default name
-				rootName = getDefaultName(elem.getEnclosingElement().getSimpleName().toString());
+		if (EMIT_FIRST_ROUND)
+			// Time to write the source files
+			emitSource();
 
-			Node root = trees.get(packageName + "." + rootName);
-			if (root == null) {
-				root = new Node(rootName, packageName);
-				trees.put(packageName + "." + rootName, root);
-			}
+		return true;
+	}
 
-			// Convert the underscore separated field name into a dot separated path
-			String[] path = elem.getSimpleName().toString().replace('_', '.').replaceAll("\\.\\.", "_").split("\\.");
+	/**
+	 * Build a tree from the resource files named by {@link TreeConstantSource}
+	 * annotations.
+	 * 
+	 * @param treeName The tree's fully qualified name
+	 * @param types    The annotated types that contribute to the tree
+	 */
+	private void readSources(String treeName, List<TypeElement> types) {
+		types.sort(Comparator.comparing(type -> type.getQualifiedName().toString()));
 
-			// Move n down the tree, building nodes if necessary along the way, until the
-			// last element of path is reached. The last element will become a field.
-			Node n = root;
-			for (int i = 0; i < path.length; i++) {
-
-				// Java keywords are not allowed
-				if (!SourceVersion.isName(path[i]))
-					path[i] = path[i] + "_";
-
-				if (i == path.length - 1) {
-					// Build the field
-					var field = FieldSpec.builder(TypeName.get(elem.asType()), path[i]).addModifiers(PUBLIC, STATIC,
-							FINAL);
-
-					if (elem.asType().getKind().isPrimitive())
-						field.initializer("$L", elem.getConstantValue());
-					else if (elem.getConstantValue() instanceof String)
-						field.initializer("\"$L\"", elem.getConstantValue());
-					else
-						// TODO throw exception if source field is not visible
-						field.initializer("$L", processingEnv.getElementUtils().getPackageOf(elem).getSimpleName() + "."
-								+ elem.getSimpleName());
-
-					// Add comment if present
-					String javadoc = processingEnv.getElementUtils().getDocComment(elem);
-					if (javadoc != null)
-						field.addJavadoc("$L", javadoc);
-
-					n.fields.add(field.build());
-					break;
-				} else {
-					Optional<Node> opt = n.getChild(path[i]);
-					if (opt.isEmpty()) {
-						Node sub = new Node(path[i]);
-						n.children.add(sub);
-						n = sub;
-					} else {
-						n = opt.get();
-					}
-				}
+		List<String> resources = new ArrayList<>();
+		for (TypeElement type : types)
+			resources.addAll(List.of(type.getAnnotation(TreeConstantSource.class).value()));
+
+		if (isEnabled(OPTION_SKIP_UNCHANGED) && !builder.contains(treeName)) {
+			String hash = hashSources(resources);
+			if (hash != null && hash.equals(readStamp(treeName)) && isOnSourcePath(treeName))
+				// The previous output was built from the same resources
+				return;
+
+			inputHashes.put(treeName, hash);
+		}
+
+		// An incremental build would not reprocess the tree when the files change
+		if (isIncremental())
+			processingEnv.getMessager().printMessage(WARNING, "Tree " + treeName
+					+ " is built from resource files that incremental builds don't track. Pass -A"
+					+ OPTION_RESOURCE_PATH + " or -A" + OPTION_INCREMENTAL + "=none to rebuild it when they change.",
+					types.get(0));
+
+		int split = treeName.lastIndexOf('.');
+		Node root = builder.getTree(treeName.substring(0, split), treeName.substring(split + 1));
+		for (TypeElement type : types) {
+			root.originatingElements.add(type);
+			for (String resource : type.getAnnotation(TreeConstantSource.class).value())
+				readSource(root, treeName, resource, type);
+		}
+	}
+
+	/**
+	 * Add the keys of a resource file to a tree.
+	 * 
+	 * @param root     The root {@link Node}
+	 * @param treeName The tree's fully qualified name
+	 * @param resource The resource name
+	 * @param type     The annotated type
+	 */
+	private void readSource(Node root, String treeName, String resource, TypeElement type) {
+		long start = stats.start();
+		try (Reader reader = new BufferedReader(new InputStreamReader(openResource(resource), UTF_8))) {
+			builder.addKeys(root, treeName, reader, resource.endsWith(".json"), type);
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(ERROR, "Failed to read " + resource + ": " + e.getMessage(),
+					type);
+		}
+		stats.stop(Phase.BUILD, start);
+	}
+
+	/**
+	 * Open a resource file from the {@code treeconstants.resourcePath}
+	 * directories, the source path or the class path.
+	 * 
+	 * @param name The resource name
+	 * @return A new stream
+	 * @throws IOException If the resource could not be found
+	 */
+	private InputStream openResource(String name) throws IOException {
+		if (name.startsWith("/"))
+			name = name.substring(1);
+
+		String path = processingEnv.getOptions().get(OPTION_RESOURCE_PATH);
+		if (path != null) {
+			for (String directory : path.split(File.pathSeparator)) {
+				Path file = Paths.get(directory, name);
+				if (Files.isRegularFile(file))
+					return Files.newInputStream(file);
 			}
+		}
+
+		for (Location location : List.of(SOURCE_PATH, CLASS_PATH)) {
+			try {
+				return processingEnv.getFiler().getResource(location, "", name).openInputStream();
+			} catch (IOException | IllegalArgumentException e) {
+				// Try the next location
+			}
+		}
+		throw new FileNotFoundException("Resource not found");
+	}
+
+	/**
+	 * Hash the given resource files together with the processor's options.
+	 * 
+	 * @param resources The resource names
+	 * @return The hash as hex or {@code null} if a resource could not be read
+	 */
+	private String hashSources(List<String> resources) {
+		MessageDigest digest = TreeRenderer.newDigest();
+		new TreeMap<>(processingEnv.getOptions()).forEach((option, value) -> {
+			if (option.startsWith("treeconstants."))
+				digest.update((option + "=" + value + "\n").getBytes(UTF_8));
 		});
 
-		if (EMIT_FIRST_ROUND)
-			// Time to write the source files
-			emitSource();
+		byte[] buffer = new byte[8192];
+		for (String resource : resources) {
+			digest.update(resource.getBytes(UTF_8));
+			try (InputStream in = openResource(resource)) {
+				int read;
+				while ((read = in.read(buffer)) != -1)
+					digest.update(buffer, 0, read);
+			} catch (IOException e) {
+				return null;
+			}
+		}
+		return TreeRenderer.toHex(digest.digest());
+	}
 
-		return true;
+	/**
+	 * Read the input hash that was recorded when a tree was last generated from
+	 * resource files.
+	 * 
+	 * @param treeName The tree's fully qualified name
+	 * @return The hash or {@code null}
+	 */
+	private String readStamp(String treeName) {
+		try (var reader = new BufferedReader(processingEnv.getFiler()
+				.getResource(CLASS_OUTPUT, "", TreeFile.RESOURCE_DIRECTORY + treeName + ".inputs").openReader(true))) {
+			return reader.readLine();
+		} catch (IOException | IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Add the leaves that an upstream module published for the same tree. Leaves
+	 * that the tree already has must have the same value since upstream code has
+	 * already inlined it.
+	 * 
+	 * @param root   The root {@link Node}
+	 * @param module The upstream module's name
+	 */
+	private void merge(Node root, String module) {
+		String treeName = root.packageName + "." + root.name;
+
+		TreeFile upstream;
+		try (InputStream in = processingEnv.getFiler()
+				.getResource(CLASS_PATH, "", TreeFile.RESOURCE_DIRECTORY + module + "/" + treeName + ".bin")
+				.openInputStream()) {
+			upstream = TreeFile.of(ByteBuffer.wrap(in.readAllBytes()));
+		} catch (IOException | IllegalArgumentException e) {
+			// The module doesn't contribute to this tree
+			return;
+		}
+
+		for (int entry = 0; entry < upstream.size(); entry++) {
+			String path = upstream.path(entry);
+			Object value = upstream.getValue(entry);
+
+			Node n = root;
+			int start = 0;
+			for (int end = path.indexOf('.'); end != -1; end = path.indexOf('.', start)) {
+				n = n.child(path.substring(start, end));
+				start = end + 1;
+			}
+
+			String name = path.substring(start);
+			Leaf leaf = n.getLeaf(name);
+			if (leaf == null) {
+				n.addLeaf(new Leaf(name, value));
+			} else if (!value.equals(leaf.element == null ? leaf.value : resolver.getConstantValue(leaf.element))) {
+				processingEnv.getMessager().printMessage(ERROR, "Tree constant " + treeName + "." + path
+						+ " conflicts with the value published by " + module, leaf.element);
+			}
+		}
 	}
 
 	/**
@@ -177,81 +531,339 @@ public final class TreeConstantProcessor extends AbstractProcessor {
 	 * processing.
 	 */
 	private void emitSource() {
-		if (trees == null)
+		if (builder == null)
 			throw new IllegalStateException("Source has already been emitted");
 
-		for (Node root : trees.values()) {
+		String merge = processingEnv.getOptions().get(OPTION_MERGE);
+		Set<String> usage = readUsage();
+
+		List<Node> roots = new ArrayList<>(builder.roots().size());
+		for (Node root : builder.roots()) {
+			if (!isIncrementalSafe(root))
+				continue;
+
+			if (merge != null)
+				for (String module : merge.split(","))
+					merge(root, module.trim());
+			if (usage != null)
+				checkUsage(root, usage);
+
+			// Everything that needs javac's element API happens on this thread
+			resolver.resolve(root);
+			roots.add(root);
+		}
+
+		// The Filer is not thread-safe, so write the results serially
+		for (Emission emission : renderer.render(roots)) {
+			emission.messages.flush(processingEnv.getMessager());
+
+			long start = stats.start();
+			if (!isEnabled(OPTION_SKIP_UNCHANGED) || !isUnchanged(emission)) {
+				Element[] origins = emission.root.originatingElements.toArray(Element[]::new);
+				emission.sources.forEach((name, source) -> emitSource(name, source, origins));
+				emission.classes.forEach((name, bytes) -> emitClass(name, bytes, origins));
+				emission.resources.forEach((name, bytes) -> emitResource(name, bytes, origins));
+			}
+
+			String inputHash = inputHashes.get(emission.root.packageName + "." + emission.root.name);
+			if (inputHash != null)
+				emitResource(emission.root.packageName + "." + emission.root.name + ".inputs",
+						(inputHash + "\n").getBytes(UTF_8), emission.root.originatingElements.toArray(Element[]::new));
+			stats.stop(Phase.WRITE, start);
+
+			stats.tree(emission);
+		}
+		builder.clear();
+		builder = null;
+
+		if (stats.isEnabled()) {
+			processingEnv.getMessager().printMessage(NOTE, stats.summary());
+			try {
+				stats.write();
+			} catch (IOException e) {
+				processingEnv.getMessager().printMessage(WARNING, "Failed to write statistics: " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Read the usage indexes listed in the {@code treeconstants.usage} option.
+	 * 
+	 * @return Every recorded reference or {@code null} if the option is not set
+	 */
+	private Set<String> readUsage() {
+		String files = processingEnv.getOptions().get(OPTION_USAGE);
+		if (files == null) {
+			if (isEnabled(OPTION_PRUNE))
+				processingEnv.getMessager().printMessage(WARNING,
+						"-A" + OPTION_PRUNE + " has no effect without -A" + OPTION_USAGE);
+			return null;
+		}
+
+		if (isEnabled(OPTION_PRUNE)) {
+			if (isEnabled(OPTION_BINARY))
+				processingEnv.getMessager().printMessage(WARNING, "-A" + OPTION_PRUNE + " is ignored because -A"
+						+ OPTION_BINARY + " exports every leaf for lookups by path that no usage index records");
+			else if (isEnabled(OPTION_LOOKUP) || isEnabled(OPTION_INDEX) || isEnabled(OPTION_BITS))
+				processingEnv.getMessager().printMessage(WARNING, "-A" + OPTION_PRUNE
+						+ " keeps subtrees that are read with keys(), values(), mask(), intersects() or a lookup by"
+						+ " value, but only if the caller was compiled with the usage plugin");
+		}
+
+		Set<String> usage = new HashSet<>();
+		for (String file : files.split(File.pathSeparator)) {
 			try {
-				JavaFile.builder(root.packageName, root.toTypeSpec().build()).build().writeTo(processingEnv.getFiler());
-			} catch (FilerException e) {
-				// Ignore
+				usage.addAll(TreeConstantUsagePlugin.read(Paths.get(file)));
 			} catch (IOException e) {
-				e.printStackTrace();
+				// Pruning with a missing index would remove constants that are in use
+				processingEnv.getMessager().printMessage(ERROR, "Failed to read usage index: " + file);
+				return null;
+			}
+		}
+		return usage;
+	}
+
+	/**
+	 * Find the leaves of a tree that no usage index references and either report
+	 * or prune them. A leaf is used if it's referenced through the tree, its
+	 * ordinal mirror or its bits mirror, or if one of the {@link #SUBTREE_METHODS}
+	 * is called on a node above it.
+	 * 
+	 * @param root  The root {@link Node}
+	 * @param usage Every recorded reference
+	 */
+	private void checkUsage(Node root, Set<String> usage) {
+		String treeName = root.packageName + "." + root.name;
+		List<String> mirrors = List.of(treeName + TreeConstantUsagePlugin.SEPARATOR,
+				treeName + "Ordinal" + TreeConstantUsagePlugin.SEPARATOR,
+				treeName + "Bits" + TreeConstantUsagePlugin.SEPARATOR);
+
+		// The paths of leaves and the prefixes of subtrees that are read as a whole
+		Set<String> used = new HashSet<>();
+		Set<String> subtrees = new HashSet<>();
+		for (String reference : usage) {
+			for (String mirror : mirrors) {
+				if (reference.startsWith(mirror)) {
+					String path = reference.substring(mirror.length());
+					int dot = path.lastIndexOf('.');
+					if (SUBTREE_METHODS.contains(path.substring(dot + 1)))
+						subtrees.add(path.substring(0, dot + 1));
+					used.add(path);
+				}
 			}
 		}
-		trees.clear();
-		trees = null;
+
+		Set<String> unused = new TreeSet<>();
+		int[] total = new int[1];
+		root.visitLeaves("", (path, leaf) -> {
+			total[0]++;
+			if (!used.contains(path) && !isInSubtree(path, subtrees))
+				unused.add(path);
+		});
+
+		if (unused.isEmpty())
+			return;
+
+		if (isEnabled(OPTION_PRUNE) && !isEnabled(OPTION_BINARY)) {
+			root.prune("", path -> !unused.contains(path));
+			processingEnv.getMessager().printMessage(NOTE,
+					"Pruned " + unused.size() + " of " + total[0] + " constants from tree " + treeName);
+		} else {
+			processingEnv.getMessager().printMessage(NOTE, "Tree " + treeName + " has " + unused.size()
+					+ " unused constants:\n  " + String.join("\n  ", unused));
+		}
+	}
+
+	/**
+	 * Check whether a leaf is below a node whose whole subtree is used.
+	 * 
+	 * @param path     The leaf's path
+	 * @param subtrees The prefixes of used subtrees, like {@code ""} or
+	 *                 {@code "a.b."}
+	 * @return Whether the leaf is used
+	 */
+	private static boolean isInSubtree(String path, Set<String> subtrees) {
+		for (int dot = path.indexOf('.'); dot != -1; dot = path.indexOf('.', dot + 1))
+			if (subtrees.contains(path.substring(0, dot + 1)))
+				return true;
+		return subtrees.contains("");
 	}
 
 	/**
-	 * Get the default class name for the root of a constant tree.
+	 * Check whether the output directories already contain exactly what was
+	 * rendered for a tree.
 	 * 
-	 * @param className The name of the class that contains a {@link TreeConstant}
-	 * @return The default class name
-	 */
-	private String getDefaultName(String className) {
-		if (className.endsWith("Constants"))
-			return className.substring(0, className.length() - 1);
-		else
-			return className + "Constant";
+	 * @param emission The rendered tree
+	 * @return Whether the tree's files can be left untouched
+	 */
+	private boolean isUnchanged(Emission emission) {
+		Filer filer = processingEnv.getFiler();
+		try {
+			for (var source : emission.sources.entrySet()) {
+				String name = source.getKey();
+				FileObject file = filer.getResource(SOURCE_OUTPUT, name.substring(0, name.lastIndexOf('.')),
+						name.substring(name.lastIndexOf('.') + 1) + ".java");
+
+				if (!source.getValue().contentEquals(file.getCharContent(true)))
+					return false;
+			}
+
+			for (var content : emission.classes.entrySet()) {
+				String name = content.getKey();
+				FileObject file = filer.getResource(CLASS_OUTPUT, name.substring(0, name.lastIndexOf('.')),
+						name.substring(name.lastIndexOf('.') + 1) + ".class");
+				try (InputStream in = file.openInputStream()) {
+					if (!Arrays.equals(content.getValue(), in.readAllBytes()))
+						return false;
+				}
+			}
+
+			for (var content : emission.resources.entrySet()) {
+				FileObject file = filer.getResource(CLASS_OUTPUT, "", TreeFile.RESOURCE_DIRECTORY + content.getKey());
+				try (InputStream in = file.openInputStream()) {
+					if (!Arrays.equals(content.getValue(), in.readAllBytes()))
+						return false;
+				}
+			}
+		} catch (IOException e) {
+			// Missing or unreadable
+			return false;
+		}
+
+		// Skipped sources must still be compiled
+		for (String name : emission.sources.keySet())
+			if (!isOnSourcePath(name))
+				return false;
+		return true;
 	}
 
 	/**
-	 * A temporary container for nodes while the constant tree is still being
-	 * parsed.
+	 * Check whether javac finds a generated source file on the source path, so it
+	 * still compiles the file if it isn't written again. Warns once if the
+	 * generated sources directory is not on the source path.
+	 * 
+	 * @param name The fully qualified class name
+	 * @return Whether the generated file exists and is on the source path
 	 */
-	private static class Node {
+	private boolean isOnSourcePath(String name) {
+		Filer filer = processingEnv.getFiler();
+		String packageName = name.substring(0, name.lastIndexOf('.'));
+		String fileName = name.substring(name.lastIndexOf('.') + 1) + ".java";
+
+		try {
+			FileObject output = filer.getResource(SOURCE_OUTPUT, packageName, fileName);
+			try {
+				output.openInputStream().close();
+			} catch (IOException e) {
+				// Not generated yet
+				return false;
+			}
 
-		private final String name;
-		private final String packageName;
-		private final List<Node> children;
-		private final List<FieldSpec> fields;
+			FileObject input = filer.getResource(SOURCE_PATH, packageName, fileName);
+			if (output.toUri().normalize().equals(input.toUri().normalize()))
+				return true;
+		} catch (IOException | IllegalArgumentException e) {
+			// Not on the source path
+		}
 
-		public Node(String name) {
-			this(name, null);
+		if (!reportedSourcePath) {
+			reportedSourcePath = true;
+			processingEnv.getMessager().printMessage(WARNING, "-A" + OPTION_SKIP_UNCHANGED
+					+ " has no effect on generated sources because the generated sources directory"
+					+ " is not on the source path");
 		}
+		return false;
+	}
 
-		public Node(String name, String packageName) {
-			this.name = Objects.requireNonNull(name);
-			this.packageName = packageName;
-			this.children = new ArrayList<>();
-			this.fields = new ArrayList<>();
+	/**
+	 * Write a rendered source file.
+	 * 
+	 * @param name    The fully qualified class name
+	 * @param source  The rendered source
+	 * @param origins The originating elements
+	 */
+	private void emitSource(String name, String source, Element[] origins) {
+		try (Writer writer = processingEnv.getFiler().createSourceFile(name, origins).openWriter()) {
+			writer.write(source);
+		} catch (FilerException e) {
+			// Ignore
+		} catch (IOException e) {
+			e.printStackTrace();
 		}
+	}
 
-		/**
-		 * Get a child {@link Node} by name.
-		 * 
-		 * @param name The name to look for
-		 * @return The node
-		 */
-		public Optional<Node> getChild(String name) {
-			return children.stream().filter(node -> node.name.equals(name)).findAny();
+	/**
+	 * Write a class file built by the {@link BytecodeGenerator}.
+	 * 
+	 * @param name    The binary class name
+	 * @param content The class file
+	 * @param origins The originating elements
+	 */
+	private void emitClass(String name, byte[] content, Element[] origins) {
+		try (OutputStream out = processingEnv.getFiler().createClassFile(name, origins).openOutputStream()) {
+			out.write(content);
+		} catch (FilerException e) {
+			// Ignore
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Write a file to the {@link TreeFile#RESOURCE_DIRECTORY}.
+	 * 
+	 * @param name    The file name
+	 * @param content The file content
+	 * @param origins The originating elements
+	 */
+	private void emitResource(String name, byte[] content, Element[] origins) {
+		try (OutputStream out = processingEnv.getFiler()
+				.createResource(CLASS_OUTPUT, "", TreeFile.RESOURCE_DIRECTORY + name, origins).openOutputStream()) {
+			out.write(content);
+		} catch (FilerException e) {
+			// Ignore
+		} catch (IOException e) {
+			e.printStackTrace();
 		}
+	}
+
+	/**
+	 * Check whether a boolean processor option is enabled.
+	 * 
+	 * @param option The option name
+	 * @return Whether the option is {@code true}
+	 */
+	private boolean isEnabled(String option) {
+		return Boolean.parseBoolean(processingEnv.getOptions().get(option));
+	}
 
-		/**
-		 * Convert the {@link Node} into a new {@link TypeSpec} builder.
-		 * 
-		 * @return A new {@link TypeSpec.Builder}
-		 */
-		public TypeSpec.Builder toTypeSpec() {
-			return TypeSpec.classBuilder(name).addModifiers(PUBLIC, FINAL)
-					// Add constants
-					.addFields(fields)
-					// Add children
-					.addTypes(() -> children.stream().map(node -> node.toTypeSpec().addModifiers(STATIC).build())
-							.iterator())
-					// Add private constructor
-					.addMethod(MethodSpec.constructorBuilder().addModifiers(PRIVATE).build());
+	/**
+	 * Check that the given tree can be emitted under the current incremental
+	 * processing mode. An isolating processor must generate each file from the
+	 * fields of a single top-level class.
+	 * 
+	 * @param root The root {@link Node}
+	 * @return Whether the tree may be emitted
+	 */
+	private boolean isIncrementalSafe(Node root) {
+		if (!isIncremental() || !"isolating".equals(processingEnv.getOptions().get(OPTION_INCREMENTAL)))
+			return true;
+
+		Element origin = null;
+		for (Element elem : root.originatingElements) {
+			Element type = elem;
+			while (!(type.getEnclosingElement() instanceof PackageElement))
+				type = type.getEnclosingElement();
+
+			if (origin == null) {
+				origin = type;
+			} else if (!origin.equals(type)) {
+				processingEnv.getMessager().printMessage(ERROR, "Tree " + root.packageName + "." + root.name
+						+ " is built from more than one class, which requires -A" + OPTION_INCREMENTAL + "=aggregating",
+						elem);
+				return false;
+			}
 		}
+		return true;
 	}
 }
@@ -0,0 +1,258 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.Plugin;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreePathScanner;
+import com.sun.source.util.Trees;
+
+/**
+ * A javac plugin that records which static fields and methods a compilation
+ * references. The resulting usage index lets the processor find and prune tree
+ * constants that no consumer reads. Enable it with:
+ * 
+ * <pre>
+ * -Xplugin:"TreeConstantUsage &lt;index file&gt; [&lt;package prefix&gt;...]"
+ * </pre>
+ * 
+ * Only members of classes in the given packages are recorded, or every member
+ * if no prefix is given. Each reference is recorded with the source file that
+ * contains it. An incremental compilation only sees the files that changed, so
+ * the plugin replaces the references of the files that it compiled and of files
+ * that no longer exist, and keeps the rest of an existing index.
+ * 
+ * @author cilki
+ * @since 1.0.0
+ */
+public final class TreeConstantUsagePlugin implements Plugin, TaskListener {
+
+	/**
+	 * Separates the root class from the leaf path in each line of a usage index.
+	 */
+	static final char SEPARATOR = '#';
+
+	/**
+	 * Separates a reference from its source file in each line of a usage index.
+	 */
+	private static final char SOURCE_SEPARATOR = '\t';
+
+	/**
+	 * The recorded references and their source files, sorted so that the index
+	 * is deterministic.
+	 */
+	private final Set<String> references = new TreeSet<>();
+
+	/**
+	 * The source files of this compilation, whose previous references are
+	 * replaced.
+	 */
+	private final Set<String> compiled = new HashSet<>();
+
+	/**
+	 * The source file that is being scanned.
+	 */
+	private String source;
+
+	private Trees trees;
+
+	private Path index;
+
+	private String[] prefixes;
+
+	@Override
+	public String getName() {
+		return "TreeConstantUsage";
+	}
+
+	@Override
+	public void init(JavacTask task, String... args) {
+		if (args.length == 0)
+			throw new IllegalArgumentException(getName() + " requires the path of the usage index");
+
+		this.trees = Trees.instance(task);
+		this.index = Paths.get(args[0]);
+		this.prefixes = new String[args.length - 1];
+		System.arraycopy(args, 1, prefixes, 0, prefixes.length);
+		task.addTaskListener(this);
+	}
+
+	@Override
+	public void finished(TaskEvent e) {
+		switch (e.getKind()) {
+		case ANALYZE:
+			// Attributed trees are only available after analysis
+			source = source(e.getCompilationUnit().getSourceFile().toUri());
+			compiled.add(source);
+			new Scanner().scan(new TreePath(e.getCompilationUnit()), null);
+			break;
+		case COMPILATION:
+			write();
+			break;
+		default:
+			break;
+		}
+	}
+
+	private void write() {
+		try {
+			if (Files.isRegularFile(index)) {
+				for (String line : Files.readAllLines(index, UTF_8)) {
+					int separator = line.indexOf(SOURCE_SEPARATOR);
+					if (separator == -1 || isCurrent(line.substring(separator + 1)))
+						references.add(line);
+				}
+			}
+			if (index.getParent() != null)
+				Files.createDirectories(index.getParent());
+			Files.write(index, references, UTF_8);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Record a reference to a member of a generated class.
+	 * 
+	 * @param site   The class that the member was selected from
+	 * @param member The field or method
+	 */
+	private void record(TypeElement site, Element member) {
+		// Methods are lazy accessors or read whole subtrees, like keys() and lookup(String)
+		if (!member.getModifiers().contains(Modifier.STATIC))
+			return;
+		if (member.getKind() != ElementKind.FIELD && member.getKind() != ElementKind.METHOD)
+			return;
+
+		// Build the leaf path from the nested classes below the top-level class
+		Deque<String> path = new ArrayDeque<>();
+		path.push(member.getSimpleName().toString());
+		TypeElement type = site;
+		while (type.getNestingKind().isNested()) {
+			path.push(type.getSimpleName().toString());
+			type = (TypeElement) type.getEnclosingElement();
+		}
+
+		String root = type.getQualifiedName().toString();
+		if (prefixes.length != 0) {
+			boolean included = false;
+			for (String prefix : prefixes)
+				included |= root.startsWith(prefix);
+			if (!included)
+				return;
+		}
+		references.add(root + SEPARATOR + String.join(".", path) + SOURCE_SEPARATOR + source);
+	}
+
+	/**
+	 * Check whether the references of a source file in an existing index are
+	 * still valid.
+	 * 
+	 * @param source The source file
+	 * @return Whether the file was not compiled again and still exists
+	 */
+	private boolean isCurrent(String source) {
+		if (compiled.contains(source))
+			return false;
+
+		try {
+			return Files.exists(Paths.get(source));
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @param uri The URI of a source file
+	 * @return The file's path, or its URI if it's not a local file
+	 */
+	private static String source(URI uri) {
+		return "file".equals(uri.getScheme()) ? Paths.get(uri).toString() : uri.toString();
+	}
+
+	/**
+	 * Finds the members referenced by a compilation unit.
+	 */
+	private final class Scanner extends TreePathScanner<Void, Void> {
+
+		@Override
+		public Void visitMemberSelect(MemberSelectTree node, Void p) {
+			Element member = trees.getElement(getCurrentPath());
+			if (member != null) {
+				// Use the qualifying type rather than the declaring type, which is a shard
+				// interface for fields of a sharded node
+				TypeMirror site = trees.getTypeMirror(new TreePath(getCurrentPath(), node.getExpression()));
+				if (site instanceof DeclaredType)
+					record((TypeElement) ((DeclaredType) site).asElement(), member);
+			}
+			return super.visitMemberSelect(node, p);
+		}
+
+		@Override
+		public Void visitIdentifier(IdentifierTree node, Void p) {
+			// Static imports and references from within the generated class
+			Element member = trees.getElement(getCurrentPath());
+			if (member != null && member.getEnclosingElement() instanceof TypeElement)
+				record((TypeElement) member.getEnclosingElement(), member);
+			return super.visitIdentifier(node, p);
+		}
+	}
+
+	/**
+	 * Read a usage index.
+	 * 
+	 * @param file The index file
+	 * @return Each reference as {@code <root class>#<leaf path>}
+	 * @throws IOException If the file could not be read
+	 */
+	static Set<String> read(Path file) throws IOException {
+		Set<String> references = new TreeSet<>();
+		for (String line : Files.readAllLines(file, UTF_8)) {
+			int separator = line.indexOf(SOURCE_SEPARATOR);
+			if (!line.isEmpty())
+				references.add(separator == -1 ? line : line.substring(0, separator));
+		}
+		return references;
+	}
+}
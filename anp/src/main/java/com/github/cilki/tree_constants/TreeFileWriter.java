@@ -0,0 +1,193 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Encodes a constant tree in the format read by {@link TreeFile}.
+ * 
+ * @author cilki
+ * @since 1.0.0
+ */
+final class TreeFileWriter {
+
+	/**
+	 * Orders segment names by their UTF-8 bytes, which is the order that
+	 * {@link TreeFile} searches them in.
+	 */
+	private final Map<byte[], Integer> segments = new TreeMap<>(Arrays::compareUnsigned);
+
+	/**
+	 * Canonical UTF-8 encodings of segment names.
+	 */
+	private final Map<String, byte[]> encoded = new HashMap<>();
+
+	private final List<byte[][]> paths = new ArrayList<>();
+
+	private final List<Object> values = new ArrayList<>();
+
+	/**
+	 * Add a leaf to the file.
+	 * 
+	 * @param path  The dot separated path of the leaf
+	 * @param value The leaf's constant value
+	 */
+	public void add(String path, Object value) {
+		String[] names = path.split("\\.");
+		byte[][] segments = new byte[names.length][];
+		for (int i = 0; i < names.length; i++) {
+			segments[i] = encoded.computeIfAbsent(names[i], name -> name.getBytes(UTF_8));
+			this.segments.put(segments[i], 0);
+		}
+
+		paths.add(segments);
+		values.add(value);
+	}
+
+	/**
+	 * Add every leaf of a tree that has a constant value.
+	 * 
+	 * @param root The root of the tree
+	 * @return The paths of the leaves that were left out
+	 */
+	public List<String> addAll(Node root) {
+		List<String> skipped = new ArrayList<>();
+		root.visitLeaves("", (path, leaf) -> {
+			Object value = leaf.value;
+			if (value != null)
+				add(path, value);
+			else
+				skipped.add(path);
+		});
+		return skipped;
+	}
+
+	/**
+	 * Encode the tree.
+	 * 
+	 * @return The file contents
+	 */
+	public byte[] toByteArray() {
+		// Assign segment ids in sorted order
+		var segmentData = new ByteArrayOutputStream();
+		ByteBuffer segmentOffsets = ByteBuffer.allocate(4 * (segments.size() + 1));
+		int id = 0;
+		for (var segment : segments.entrySet()) {
+			segment.setValue(id++);
+			segmentOffsets.putInt(segmentData.size());
+			segmentData.writeBytes(segment.getKey());
+		}
+		segmentOffsets.putInt(segmentData.size());
+
+		// Sort entries by their segment ids
+		int[][] ids = new int[paths.size()][];
+		Integer[] order = new Integer[paths.size()];
+		for (int i = 0; i < ids.length; i++) {
+			byte[][] path = paths.get(i);
+			ids[i] = new int[path.length];
+			for (int j = 0; j < path.length; j++)
+				ids[i][j] = segments.get(path[j]);
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> Arrays.compare(ids[a], ids[b]));
+
+		ByteBuffer entries = ByteBuffer.allocate(TreeFile.ENTRY_SIZE * ids.length);
+		var pathData = new ByteArrayOutputStream();
+		var stringData = new ByteArrayOutputStream();
+		for (int i : order) {
+			entries.putInt(pathData.size());
+
+			ByteBuffer path = ByteBuffer.allocate(4 + 4 * ids[i].length).putInt(ids[i].length);
+			for (int segment : ids[i])
+				path.putInt(segment);
+			pathData.writeBytes(path.array());
+
+			Object value = values.get(i);
+			if (value instanceof String) {
+				byte[] string = ((String) value).getBytes(UTF_8);
+				entries.put(TreeFile.TYPE_STRING).put(new byte[3]);
+				entries.putInt(stringData.size()).putInt(string.length);
+				stringData.writeBytes(string);
+			} else {
+				entries.put(type(value)).put(new byte[3]).putLong(payload(value));
+			}
+		}
+
+		int segmentOffsetsStart = TreeFile.HEADER_SIZE;
+		int segmentDataStart = segmentOffsetsStart + segmentOffsets.capacity();
+		int entriesStart = align(segmentDataStart + segmentData.size());
+		int pathsStart = entriesStart + entries.capacity();
+		int stringsStart = pathsStart + pathData.size();
+		int size = stringsStart + stringData.size();
+
+		ByteBuffer file = ByteBuffer.allocate(size);
+		file.putInt(TreeFile.MAGIC).putShort((short) TreeFile.VERSION).putShort((short) 0);
+		file.putInt(segments.size()).putInt(ids.length);
+		file.putInt(segmentOffsetsStart).putInt(segmentDataStart).putInt(entriesStart).putInt(pathsStart)
+				.putInt(stringsStart).putInt(size);
+
+		file.put(segmentOffsets.array()).put(segmentData.toByteArray());
+		file.position(entriesStart);
+		file.put(entries.array()).put(pathData.toByteArray()).put(stringData.toByteArray());
+		return file.array();
+	}
+
+	private static int align(int offset) {
+		return (offset + 7) & ~7;
+	}
+
+	private static byte type(Object value) {
+		if (value instanceof Integer)
+			return TreeFile.TYPE_INT;
+		if (value instanceof Long)
+			return TreeFile.TYPE_LONG;
+		if (value instanceof Boolean)
+			return TreeFile.TYPE_BOOLEAN;
+		if (value instanceof Character)
+			return TreeFile.TYPE_CHAR;
+		if (value instanceof Double)
+			return TreeFile.TYPE_DOUBLE;
+		if (value instanceof Float)
+			return TreeFile.TYPE_FLOAT;
+		if (value instanceof Short)
+			return TreeFile.TYPE_SHORT;
+		if (value instanceof Byte)
+			return TreeFile.TYPE_BYTE;
+		throw new IllegalArgumentException("Not a constant: " + value);
+	}
+
+	private static long payload(Object value) {
+		if (value instanceof Boolean)
+			return (Boolean) value ? 1 : 0;
+		if (value instanceof Character)
+			return (Character) value;
+		if (value instanceof Float || value instanceof Double)
+			return Double.doubleToRawLongBits(((Number) value).doubleValue());
+		return ((Number) value).longValue();
+	}
+}
@@ -0,0 +1,508 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.tools.Diagnostic.Kind.ERROR;
+import static javax.tools.Diagnostic.Kind.NOTE;
+import static javax.tools.Diagnostic.Kind.WARNING;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+import javax.annotation.processing.Messager;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import com.sun.source.util.JavacTask;
+
+/**
+ * Generates constant trees outside of an annotation processing compilation.
+ * Inputs are source files with {@link TreeConstant} fields and key files that
+ * are added to a named tree. Source files are only parsed and attributed,
+ * resource key files are read concurrently and trees are rendered on a
+ * fork-join pool, so many modules can be generated in one batch. The output
+ * is the same as the {@link TreeConstantProcessor} would write for the same
+ * options.
+ * <p>
+ * Source files must attribute without errors against the class path, so
+ * sources that refer to generated trees need the previously generated classes
+ * on it. Options that depend on a running compilation or the class path, like
+ * {@code treeconstants.merge} and {@code treeconstants.usage}, are not
+ * supported.
+ * 
+ * @author cilki
+ * @since 1.0.0
+ */
+public final class TreeGenerator {
+
+	private static final String USAGE = String.join("\n", //
+			"Usage: TreeGenerator [options] <inputs>", //
+			"  -s <dir>            Where to write generated sources", //
+			"  -d <dir>            Where to write class files and resources (defaults to -s)", //
+			"  -cp <path>          The class path for attributing source inputs", //
+			"  --release <n>       The class file version of the bytecode backend", //
+			"  -A<key>[=<value>]   A processor option, e.g. -Atreeconstants.index=true", //
+			"Inputs:", //
+			"  <file>.java         A source file with @TreeConstant fields", //
+			"  <tree>=<file>       A .properties or .json file whose keys are added to the", //
+			"                      fully qualified tree", //
+			"  @<file>             A file with more arguments, one per line");
+
+	/**
+	 * Options that need a running compilation.
+	 */
+	private static final List<String> UNSUPPORTED = List.of(TreeConstantProcessor.OPTION_MERGE,
+			TreeConstantProcessor.OPTION_USAGE, TreeConstantProcessor.OPTION_PRUNE,
+			TreeConstantProcessor.OPTION_SKIP_UNCHANGED, TreeConstantProcessor.OPTION_INCREMENTAL);
+
+	private final Map<String, String> options;
+
+	private final List<Path> sources = new ArrayList<>();
+
+	/**
+	 * Key files indexed by the fully qualified name of their tree.
+	 */
+	private final Map<String, List<Path>> keys = new TreeMap<>();
+
+	private final ConsoleMessager messager = new ConsoleMessager();
+
+	private String classpath;
+
+	private SourceVersion release = SourceVersion.latestSupported();
+
+	/**
+	 * @param options The {@code treeconstants.*} options
+	 */
+	public TreeGenerator(Map<String, String> options) {
+		this.options = new HashMap<>(options);
+	}
+
+	/**
+	 * Add a source file whose {@link TreeConstant} fields and
+	 * {@link TreeConstantSource} types contribute to trees.
+	 * 
+	 * @param file The source file
+	 * @return {@code this}
+	 */
+	public TreeGenerator addSource(Path file) {
+		sources.add(file);
+		return this;
+	}
+
+	/**
+	 * Add the keys of a {@code .properties} or {@code .json} file to a tree.
+	 * 
+	 * @param treeName The tree's fully qualified name
+	 * @param file     The key file
+	 * @return {@code this}
+	 */
+	public TreeGenerator addKeys(String treeName, Path file) {
+		keys.computeIfAbsent(treeName, key -> new ArrayList<>()).add(file);
+		return this;
+	}
+
+	/**
+	 * Set the class path that source files are attributed against. The
+	 * generator's own class path is always appended.
+	 * 
+	 * @param classpath The class path
+	 * @return {@code this}
+	 */
+	public TreeGenerator classpath(String classpath) {
+		this.classpath = classpath;
+		return this;
+	}
+
+	/**
+	 * Set the class file version that the bytecode backend writes.
+	 * 
+	 * @param release The source version
+	 * @return {@code this}
+	 */
+	public TreeGenerator release(SourceVersion release) {
+		this.release = release;
+		return this;
+	}
+
+	/**
+	 * Build, render and write every tree. Files whose content has not changed
+	 * are not rewritten.
+	 * 
+	 * @param sourceOutput The directory for generated sources
+	 * @param classOutput  The directory for class files and resources
+	 * @return Whether the trees were generated without errors
+	 * @throws IOException If an output file could not be written
+	 */
+	public boolean generate(Path sourceOutput, Path classOutput) throws IOException {
+		for (String option : UNSUPPORTED)
+			if (options.containsKey(option))
+				messager.printMessage(WARNING, "-A" + option + " is not supported by the standalone generator");
+
+		var stats = new ProcessorStats(options.get(TreeConstantProcessor.OPTION_STATS));
+		var renderer = new TreeRenderer(options, release, stats, messager);
+		Elements elements = null;
+		Types types = null;
+		List<Element> annotated = new ArrayList<>();
+		List<TypeElement> sourceTypes = new ArrayList<>();
+
+		if (!sources.isEmpty()) {
+			// Attribute the sources without generating anything
+			JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+			StandardJavaFileManager files = compiler.getStandardFileManager(null, null, UTF_8);
+			String path = System.getProperty("java.class.path");
+			if (classpath != null)
+				path = classpath + File.pathSeparator + path;
+
+			var task = (JavacTask) compiler.getTask(null, files, this::report,
+					List.of("-proc:none", "-implicit:none", "-classpath", path), null,
+					files.getJavaFileObjectsFromFiles(sources.stream().map(Path::toFile)::iterator));
+
+			int errors = messager.errors;
+			long start = stats.start();
+			for (TypeElement type : ElementFilter.typesIn(task.analyze()))
+				collect(type, annotated, sourceTypes);
+			stats.stop(ProcessorStats.Phase.COLLECT, start);
+
+			// Constants read from sources that don't attribute may be wrong
+			if (messager.errors != errors)
+				return false;
+
+			elements = task.getElements();
+			types = task.getTypes();
+		}
+
+		var builder = new TreeBuilder(elements, messager, stats);
+		annotated.forEach(builder::addConstant);
+		for (TypeElement type : sourceTypes) {
+			String treeName = builder.getSourceTreeName(type);
+			for (String resource : type.getAnnotation(TreeConstantSource.class).value())
+				keys.computeIfAbsent(treeName, key -> new ArrayList<>()).add(findResource(resource));
+		}
+
+		readKeys(builder, elements, stats, renderer.parallelism());
+
+		// Everything that needs javac's element API happens on this thread
+		var resolver = new TreeResolver(elements, types, messager, options, stats);
+		List<Node> roots = new ArrayList<>(builder.roots());
+		roots.forEach(resolver::resolve);
+
+		for (Emission emission : renderer.render(roots)) {
+			emission.messages.flush(messager);
+
+			long start = stats.start();
+			for (var source : emission.sources.entrySet())
+				write(sourceOutput.resolve(source.getKey().replace('.', '/') + ".java"),
+						source.getValue().getBytes(UTF_8));
+			for (var content : emission.classes.entrySet())
+				write(classOutput.resolve(content.getKey().replace('.', '/') + ".class"), content.getValue());
+			for (var content : emission.resources.entrySet())
+				write(classOutput.resolve(TreeFile.RESOURCE_DIRECTORY + content.getKey()), content.getValue());
+			stats.stop(ProcessorStats.Phase.WRITE, start);
+			stats.tree(emission);
+		}
+
+		if (stats.isEnabled()) {
+			messager.printMessage(NOTE, stats.summary());
+			stats.write();
+		}
+		return messager.errors == 0;
+	}
+
+	/**
+	 * Find the annotated members of a type and its nested types.
+	 * 
+	 * @param type        The type
+	 * @param annotated   Receives {@link TreeConstant} fields and methods
+	 * @param sourceTypes Receives {@link TreeConstantSource} types
+	 */
+	private static void collect(TypeElement type, List<Element> annotated, List<TypeElement> sourceTypes) {
+		if (type.getAnnotation(TreeConstantSource.class) != null)
+			sourceTypes.add(type);
+
+		for (Element member : type.getEnclosedElements()) {
+			if (member instanceof TypeElement)
+				collect((TypeElement) member, annotated, sourceTypes);
+			else if (member.getAnnotation(TreeConstant.class) != null)
+				annotated.add(member);
+		}
+	}
+
+	/**
+	 * Read every key file on a fork-join pool. Each tree is built by one task with
+	 * its own {@link TreeBuilder}, so tasks never share a node.
+	 * 
+	 * @param builder     The builder that owns the trees
+	 * @param elements    The element utilities or {@code null}
+	 * @param stats       Records build timings
+	 * @param parallelism The number of threads
+	 */
+	private void readKeys(TreeBuilder builder, Elements elements, ProcessorStats stats, int parallelism) {
+		Map<Node, String> roots = new LinkedHashMap<>();
+		keys.forEach((treeName, files) -> {
+			int split = treeName.lastIndexOf('.');
+			roots.put(builder.getTree(split == -1 ? "" : treeName.substring(0, split), treeName.substring(split + 1)),
+					treeName);
+		});
+
+		var pool = new ForkJoinPool(parallelism);
+		try {
+			pool.submit(() -> roots.entrySet().parallelStream().forEach(entry -> {
+				var local = new TreeBuilder(elements, messager, stats);
+				for (Path file : keys.get(entry.getValue())) {
+					long start = stats.start();
+					try (Reader reader = Files.newBufferedReader(file, UTF_8)) {
+						local.addKeys(entry.getKey(), entry.getValue(), reader, file.toString().endsWith(".json"),
+								null);
+					} catch (IOException e) {
+						messager.printMessage(ERROR, "Failed to read " + file + ": " + e.getMessage());
+					}
+					stats.stop(ProcessorStats.Phase.BUILD, start);
+				}
+			})).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Find a {@link TreeConstantSource} resource in the
+	 * {@code treeconstants.resourcePath} directories or the working directory.
+	 * 
+	 * @param name The resource name
+	 * @return The resource file, which may not exist
+	 */
+	private Path findResource(String name) {
+		if (name.startsWith("/"))
+			name = name.substring(1);
+
+		String path = options.get(TreeConstantProcessor.OPTION_RESOURCE_PATH);
+		if (path != null) {
+			for (String directory : path.split(File.pathSeparator)) {
+				Path file = Paths.get(directory, name);
+				if (Files.isRegularFile(file))
+					return file;
+			}
+		}
+		return Paths.get(name);
+	}
+
+	/**
+	 * Write a file unless it already has the given content.
+	 * 
+	 * @param file    The output file
+	 * @param content The file content
+	 * @throws IOException If the file could not be written
+	 */
+	private static void write(Path file, byte[] content) throws IOException {
+		if (Files.isRegularFile(file) && Arrays.equals(content, Files.readAllBytes(file)))
+			return;
+
+		Files.createDirectories(file.getParent());
+		Files.write(file, content);
+	}
+
+	/**
+	 * Report a diagnostic from attributing the sources. Sources must attribute
+	 * without errors, so those that refer to generated trees need the previously
+	 * generated classes on the class path.
+	 * 
+	 * @param diagnostic The diagnostic
+	 */
+	private void report(Diagnostic<?> diagnostic) {
+		if (diagnostic.getKind() == Kind.ERROR)
+			messager.printMessage(ERROR, diagnostic.toString());
+		else if (diagnostic.getKind() == Kind.WARNING || diagnostic.getKind() == Kind.MANDATORY_WARNING)
+			messager.printMessage(WARNING, diagnostic.toString());
+	}
+
+	/**
+	 * Generate trees from the command line.
+	 * 
+	 * @param args The arguments described by {@code -help}
+	 * @throws IOException If an argument file could not be read or an output
+	 *                     file could not be written
+	 */
+	public static void main(String[] args) throws IOException {
+		int status = run(args);
+		if (status != 0)
+			System.exit(status);
+	}
+
+	/**
+	 * Generate trees from command line arguments.
+	 * 
+	 * @param args The arguments described by {@code -help}
+	 * @return The exit status: 0 on success, 1 if generation failed and 2 if the
+	 *         arguments are invalid
+	 * @throws IOException If an argument file could not be read or an output
+	 *                     file could not be written
+	 */
+	static int run(String... args) throws IOException {
+		List<String> arguments = new ArrayList<>();
+		expand(List.of(args), arguments);
+
+		Map<String, String> options = new HashMap<>();
+		Path sourceOutput = null;
+		Path classOutput = null;
+		String classpath = null;
+		SourceVersion release = null;
+		List<String> inputs = new ArrayList<>();
+
+		for (int i = 0; i < arguments.size(); i++) {
+			String arg = arguments.get(i);
+			if (arg.equals("-help") || arg.equals("--help")) {
+				System.out.println(USAGE);
+				return 0;
+			} else if (arg.startsWith("-A")) {
+				int split = arg.indexOf('=');
+				if (split == -1)
+					options.put(arg.substring(2), null);
+				else
+					options.put(arg.substring(2, split), arg.substring(split + 1));
+			} else if (i + 1 < arguments.size() && arg.equals("-s")) {
+				sourceOutput = Paths.get(arguments.get(++i));
+			} else if (i + 1 < arguments.size() && arg.equals("-d")) {
+				classOutput = Paths.get(arguments.get(++i));
+			} else if (i + 1 < arguments.size() && (arg.equals("-cp") || arg.equals("-classpath"))) {
+				classpath = arguments.get(++i);
+			} else if (i + 1 < arguments.size() && arg.equals("--release")) {
+				String version = arguments.get(++i);
+				try {
+					release = SourceVersion.valueOf("RELEASE_" + version);
+				} catch (IllegalArgumentException e) {
+					return usage("Unsupported release: " + version);
+				}
+			} else if (arg.startsWith("-")) {
+				return usage("Unknown option: " + arg);
+			} else {
+				inputs.add(arg);
+			}
+		}
+
+		if (sourceOutput == null || inputs.isEmpty())
+			return usage(USAGE);
+
+		var generator = new TreeGenerator(options).classpath(classpath);
+		if (release != null)
+			generator.release(release);
+
+		for (String input : inputs) {
+			int split = input.indexOf('=');
+			if (split != -1)
+				generator.addKeys(input.substring(0, split), Paths.get(input.substring(split + 1)));
+			else if (input.endsWith(".java"))
+				generator.addSource(Paths.get(input));
+			else
+				return usage("Not a source file or <tree>=<file>: " + input);
+		}
+
+		return generator.generate(sourceOutput, classOutput == null ? sourceOutput : classOutput) ? 0 : 1;
+	}
+
+	/**
+	 * Replace each {@code @file} argument with the lines of the file.
+	 * 
+	 * @param args      The arguments
+	 * @param arguments Receives the expanded arguments
+	 * @throws IOException If an argument file could not be read
+	 */
+	private static void expand(List<String> args, List<String> arguments) throws IOException {
+		for (String arg : args) {
+			if (arg.startsWith("@")) {
+				List<String> lines = new ArrayList<>();
+				for (String line : Files.readAllLines(Paths.get(arg.substring(1)), UTF_8))
+					if (!line.isBlank())
+						lines.add(line.strip());
+				expand(lines, arguments);
+			} else {
+				arguments.add(arg);
+			}
+		}
+	}
+
+	private static int usage(String message) {
+		System.err.println(message);
+		return 2;
+	}
+
+	/**
+	 * Prints messages to the standard error stream and counts errors.
+	 */
+	private static final class ConsoleMessager implements Messager {
+
+		int errors;
+
+		@Override
+		public void printMessage(Kind kind, CharSequence msg) {
+			printMessage(kind, msg, null);
+		}
+
+		@Override
+		public synchronized void printMessage(Kind kind, CharSequence msg, Element e) {
+			if (kind == Kind.ERROR)
+				errors++;
+
+			String location = "";
+			if (e != null)
+				location = (e.getEnclosingElement() instanceof TypeElement
+						? ((TypeElement) e.getEnclosingElement()).getQualifiedName() + "." + e.getSimpleName()
+						: e.toString()) + ": ";
+			System.err.println(kind.toString().toLowerCase() + ": " + location + msg);
+		}
+
+		@Override
+		public void printMessage(Kind kind, CharSequence msg, Element e, AnnotationMirror a) {
+			printMessage(kind, msg, e);
+		}
+
+		@Override
+		public void printMessage(Kind kind, CharSequence msg, Element e, AnnotationMirror a, AnnotationValue v) {
+			printMessage(kind, msg, e);
+		}
+	}
+}
@@ -0,0 +1,336 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.tools.Diagnostic.Kind.ERROR;
+import static javax.tools.Diagnostic.Kind.NOTE;
+import static javax.tools.Diagnostic.Kind.WARNING;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import javax.annotation.processing.Messager;
+import javax.lang.model.SourceVersion;
+
+import com.github.cilki.tree_constants.ProcessorStats.Phase;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.TypeSpec;
+
+/**
+ * Renders resolved trees into source files, class files and resources. A
+ * renderer only reads the {@link Node} model and its options, so it's shared by
+ * the annotation processor and the standalone {@link TreeGenerator}, and trees
+ * can be rendered on any thread.
+ * 
+ * @author cilki
+ * @since 1.0.0
+ */
+final class TreeRenderer {
+
+	/**
+	 * The first line of every generated source file, followed by the content hash
+	 * of its tree.
+	 */
+	private static final String HASH_HEADER = "// Content hash: ";
+
+	private final Map<String, String> options;
+
+	private final SourceVersion sourceVersion;
+
+	private final ProcessorStats stats;
+
+	/**
+	 * The maximum number of fields in a generated class.
+	 */
+	private final int shardSize;
+
+	/**
+	 * The number of threads that render trees.
+	 */
+	private final int parallelism;
+
+	/**
+	 * @param options       The {@code treeconstants.*} options
+	 * @param sourceVersion The version of class files to write
+	 * @param stats         Records render timings
+	 * @param messager      Receives errors about invalid options
+	 */
+	public TreeRenderer(Map<String, String> options, SourceVersion sourceVersion, ProcessorStats stats,
+			Messager messager) {
+		this.options = options;
+		this.sourceVersion = sourceVersion;
+		this.stats = stats;
+		this.shardSize = intOption(options, TreeConstantProcessor.OPTION_SHARD_SIZE, Sharder.DEFAULT_SHARD_SIZE,
+				messager);
+		this.parallelism = intOption(options, TreeConstantProcessor.OPTION_PARALLELISM,
+				Runtime.getRuntime().availableProcessors(), messager);
+	}
+
+	/**
+	 * @return The number of threads that render trees
+	 */
+	public int parallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Render the given trees on a fork-join pool sized by
+	 * {@code treeconstants.parallelism}.
+	 * 
+	 * @param roots The resolved trees
+	 * @return The rendered trees in the same order
+	 */
+	public List<Emission> render(List<Node> roots) {
+		if (parallelism <= 1 || roots.size() <= 1)
+			return roots.stream().map(this::render).collect(Collectors.toList());
+
+		var pool = new ForkJoinPool(parallelism);
+		try {
+			// A parallel stream runs in the pool that it was started from
+			return pool.submit(() -> roots.parallelStream().map(this::render).collect(Collectors.toList())).get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException(e.getCause());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Build and render all output of a resolved tree without touching the Filer
+	 * or javac's element API.
+	 * 
+	 * @param root The root {@link Node}
+	 * @return The rendered output
+	 */
+	private Emission render(Node root) {
+		long start = stats.start();
+		var emission = new Emission(root);
+
+		int[] lanes = root.assignOrdinals();
+		int leaves = lanes[lanes.length - 1];
+		emission.leaves = leaves;
+		IndexGenerator index = isEnabled(TreeConstantProcessor.OPTION_INDEX) ? new IndexGenerator(root) : null;
+
+		String treeName = root.packageName + "." + root.name;
+		boolean bytecode = isBytecodeBackend();
+		if (bytecode && (index != null || isEnabled(TreeConstantProcessor.OPTION_LOOKUP))) {
+			List<String> unsupported = new ArrayList<>();
+			if (index != null)
+				unsupported.add("-A" + TreeConstantProcessor.OPTION_INDEX);
+			if (isEnabled(TreeConstantProcessor.OPTION_LOOKUP))
+				unsupported.add("-A" + TreeConstantProcessor.OPTION_LOOKUP);
+
+			emission.messages.printMessage(WARNING, "Tree " + treeName + " uses the source backend because "
+					+ String.join(" and ", unsupported) + (unsupported.size() == 1 ? " is" : " are")
+					+ " not supported by the bytecode backend");
+			bytecode = false;
+		}
+		if (bytecode && root.hasLazyLeaves()) {
+			emission.messages.printMessage(WARNING, "Tree " + treeName
+					+ " uses the source backend because lazy leaves are not supported by the bytecode backend");
+			bytecode = false;
+		}
+
+		if (bytecode) {
+			Map<String, byte[]> classes = new BytecodeGenerator(sourceVersion).generate(root);
+			if (classes != null) {
+				emission.classes.putAll(classes);
+			} else {
+				emission.messages.printMessage(NOTE,
+						"Tree " + treeName + " exceeds a class file limit, so it uses the source backend");
+				bytecode = false;
+			}
+		}
+
+		List<TypeSpec.Builder> types = new ArrayList<>();
+		if (!bytecode) {
+			var sharder = new Sharder(root, shardSize);
+
+			TypeSpec.Builder type = root.toTypeSpec(sharder, (node, builder) -> {
+				if (index != null)
+					index.decorate(node, builder);
+			});
+
+			if (index != null)
+				index.generate(type);
+			if (isEnabled(TreeConstantProcessor.OPTION_LOOKUP))
+				LookupGenerator.generate(root, type, leaves, emission.messages);
+
+			types.add(type);
+			addShards(sharder, types, emission);
+		}
+
+		if (isEnabled(TreeConstantProcessor.OPTION_STORE) || isEnabled(TreeConstantProcessor.OPTION_CONFIG)) {
+			// The configuration class packs its tables into arrays, so only the mirror needs shards
+			var sharder = new Sharder(ClassName.get(root.packageName, root.name + "Ordinal"), shardSize);
+			types.add(StoreGenerator.ordinals(root, sharder));
+			addShards(sharder, types, emission);
+		}
+		if (isEnabled(TreeConstantProcessor.OPTION_STORE))
+			types.add(StoreGenerator.store(root, lanes));
+		if (isEnabled(TreeConstantProcessor.OPTION_CONFIG))
+			types.add(ConfigGenerator.generate(root, leaves));
+		if (isEnabled(TreeConstantProcessor.OPTION_BITS)) {
+			var sharder = new Sharder(ClassName.get(root.packageName, root.name + "Bits"), shardSize);
+			TypeSpec.Builder bits = BitsGenerator.generate(root, sharder);
+			if (bits != null) {
+				types.add(bits);
+				addShards(sharder, types, emission);
+			}
+		}
+
+		for (TypeSpec.Builder generated : types) {
+			// Record where the tree came from for incremental compilation
+			root.originatingElements.forEach(generated::addOriginatingElement);
+
+			JavaFile file = JavaFile.builder(root.packageName, generated.build()).build();
+			emission.sources.put(root.packageName + "." + file.typeSpec.name, file.toString());
+		}
+
+		String module = options.get(TreeConstantProcessor.OPTION_MODULE);
+		if (isEnabled(TreeConstantProcessor.OPTION_BINARY) || module != null) {
+			var writer = new TreeFileWriter();
+			List<String> skipped = writer.addAll(root);
+			if (!skipped.isEmpty())
+				emission.messages.printMessage(WARNING, "Tree " + treeName + " exports only compile-time constants, so "
+						+ skipped.size() + " leaves can't be found in its tree file:\n  "
+						+ String.join("\n  ", skipped));
+			byte[] content = writer.toByteArray();
+
+			if (isEnabled(TreeConstantProcessor.OPTION_BINARY))
+				emission.resources.put(treeName + ".bin", content);
+			if (module != null)
+				// Publish the tree for downstream modules to merge
+				emission.resources.put(module + "/" + treeName + ".bin", content);
+		}
+
+		// Stamp every source file with a hash of everything generated for the tree
+		String hash = hash(emission);
+		emission.sources.replaceAll((name, source) -> HASH_HEADER + hash + "\n" + source);
+
+		stats.stop(Phase.RENDER, start);
+		return emission;
+	}
+
+	/**
+	 * Add the shards of a generated class to the output.
+	 * 
+	 * @param sharder  The class's sharder
+	 * @param types    The generated classes
+	 * @param emission Receives a summary of the sharding
+	 */
+	private static void addShards(Sharder sharder, List<TypeSpec.Builder> types, Emission emission) {
+		types.addAll(sharder.shards());
+		if (sharder.summary() != null)
+			emission.messages.printMessage(NOTE, sharder.summary());
+	}
+
+	/**
+	 * Compute the content hash of everything generated for a tree.
+	 * 
+	 * @param emission The rendered tree
+	 * @return The hash as hex
+	 */
+	static String hash(Emission emission) {
+		MessageDigest digest = newDigest();
+
+		emission.sources.forEach((name, source) -> {
+			digest.update(name.getBytes(UTF_8));
+			digest.update(source.getBytes(UTF_8));
+		});
+		emission.classes.forEach((name, content) -> {
+			digest.update(name.getBytes(UTF_8));
+			digest.update(content);
+		});
+		emission.resources.forEach((name, content) -> {
+			digest.update(name.getBytes(UTF_8));
+			digest.update(content);
+		});
+
+		return toHex(digest.digest());
+	}
+
+	static MessageDigest newDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	static String toHex(byte[] digest) {
+		var hex = new StringBuilder(digest.length * 2);
+		for (byte b : digest)
+			hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		return hex.toString();
+	}
+
+	/**
+	 * Read a positive integer option.
+	 * 
+	 * @param options  The {@code treeconstants.*} options
+	 * @param option   The option name
+	 * @param fallback The value if the option is missing or invalid
+	 * @param messager Receives an error if the option is invalid
+	 * @return The option's value
+	 */
+	static int intOption(Map<String, String> options, String option, int fallback, Messager messager) {
+		String value = options.get(option);
+		if (value == null)
+			return fallback;
+
+		try {
+			int parsed = Integer.parseInt(value.trim());
+			if (parsed > 0)
+				return parsed;
+		} catch (NumberFormatException e) {
+			// Reported below
+		}
+
+		messager.printMessage(ERROR, "Invalid value for -A" + option + ": '" + value + "' is not a positive integer");
+		return fallback;
+	}
+
+	/**
+	 * Check whether a boolean processor option is enabled.
+	 * 
+	 * @param option The option name
+	 * @return Whether the option is {@code true}
+	 */
+	boolean isEnabled(String option) {
+		return Boolean.parseBoolean(options.get(option));
+	}
+
+	/**
+	 * @return Whether trees are written as class files instead of source
+	 */
+	boolean isBytecodeBackend() {
+		return "bytecode".equals(options.get(TreeConstantProcessor.OPTION_BACKEND));
+	}
+}
@@ -0,0 +1,205 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static javax.lang.model.element.Modifier.FINAL;
+import static javax.lang.model.element.Modifier.PRIVATE;
+import static javax.lang.model.element.Modifier.PUBLIC;
+import static javax.lang.model.element.Modifier.STATIC;
+import static javax.tools.Diagnostic.Kind.ERROR;
+
+import java.util.Map;
+
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+import com.github.cilki.tree_constants.Node.Leaf;
+import com.github.cilki.tree_constants.ProcessorStats.Phase;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.TypeName;
+
+/**
+ * Reads everything that rendering needs from the elements of a tree. javac's
+ * element API is not thread-safe, so a tree must be resolved on the thread that
+ * owns the elements before it's handed to a {@link TreeRenderer}.
+ * 
+ * @author cilki
+ * @since 1.0.0
+ */
+final class TreeResolver {
+
+	private final Elements elements;
+
+	private final Types types;
+
+	private final Messager messager;
+
+	private final Map<String, String> options;
+
+	private final ProcessorStats stats;
+
+	/**
+	 * @param elements The element utilities of the compilation
+	 * @param types    The type utilities of the compilation
+	 * @param messager Reports invalid leaves
+	 * @param options  The {@code treeconstants.*} options
+	 * @param stats    Records element timings
+	 */
+	public TreeResolver(Elements elements, Types types, Messager messager, Map<String, String> options,
+			ProcessorStats stats) {
+		this.elements = elements;
+		this.types = types;
+		this.messager = messager;
+		this.options = options;
+		this.stats = stats;
+	}
+
+	/**
+	 * Resolve every leaf of a tree.
+	 * 
+	 * @param root The root {@link Node}
+	 */
+	public void resolve(Node root) {
+		root.resolve(this::getConstantValue, this::toFieldSpec);
+		if ("bytecode".equals(options.get(TreeConstantProcessor.OPTION_BACKEND)))
+			root.visitLeaves("", (path, leaf) -> describe(leaf));
+	}
+
+	/**
+	 * Record the type descriptor and declaring class of a leaf for the
+	 * {@link BytecodeGenerator}.
+	 * 
+	 * @param leaf The leaf
+	 */
+	private void describe(Leaf leaf) {
+		if (leaf.element == null) {
+			char tag = Literals.tag(leaf.value);
+			leaf.descriptor = tag == 'T' ? "Ljava/lang/String;" : String.valueOf(tag);
+			return;
+		}
+
+		leaf.descriptor = getDescriptor(types.erasure(leaf.type()));
+		leaf.owner = elements
+				.getBinaryName((TypeElement) leaf.element.getEnclosingElement()).toString().replace('.', '/');
+	}
+
+	/**
+	 * Get the JVM descriptor of an erased type.
+	 * 
+	 * @param type The type
+	 * @return The descriptor
+	 */
+	private String getDescriptor(TypeMirror type) {
+		switch (type.getKind()) {
+		case BOOLEAN:
+			return "Z";
+		case BYTE:
+			return "B";
+		case SHORT:
+			return "S";
+		case CHAR:
+			return "C";
+		case INT:
+			return "I";
+		case LONG:
+			return "J";
+		case FLOAT:
+			return "F";
+		case DOUBLE:
+			return "D";
+		case ARRAY:
+			return "[" + getDescriptor(((ArrayType) type).getComponentType());
+		case DECLARED:
+			return "L" + elements
+					.getBinaryName((TypeElement) ((DeclaredType) type).asElement()).toString().replace('.', '/')
+					+ ";";
+		default:
+			throw new IllegalArgumentException("Unsupported field type: " + type);
+		}
+	}
+
+	/**
+	 * Get the constant value of a leaf's element.
+	 * 
+	 * @param elem The element
+	 * @return The constant value or {@code null} if the element is a method
+	 */
+	public Object getConstantValue(Element elem) {
+		if (!(elem instanceof VariableElement))
+			return null;
+
+		long start = stats.start();
+		Object value = ((VariableElement) elem).getConstantValue();
+		stats.stop(Phase.CONSTANT_VALUE, start);
+		return value;
+	}
+
+	/**
+	 * Build the field for a leaf of a constant tree.
+	 * 
+	 * @param leaf The leaf
+	 * @return The field
+	 */
+	private FieldSpec toFieldSpec(Leaf leaf) {
+		Element elem = leaf.element;
+		if (elem == null) {
+			// The leaf came from a resource file or an upstream tree
+			TypeName type = leaf.value instanceof String ? TypeName.get(String.class)
+					: TypeName.get(leaf.value.getClass()).unbox();
+			return FieldSpec.builder(type, leaf.name).addModifiers(PUBLIC, STATIC, FINAL)
+					.initializer(Literals.constant(leaf.value)).build();
+		}
+
+		var field = FieldSpec.builder(TypeName.get(leaf.type()), leaf.name).addModifiers(PUBLIC, STATIC, FINAL);
+
+		if (leaf.value != null) {
+			field.initializer(Literals.constant(leaf.value));
+		} else {
+			// Reading the field will initialize the generated class and the source class.
+			// Lazy leaves opt into that on first access, so strict mode allows them.
+			if (Boolean.parseBoolean(options.get(TreeConstantProcessor.OPTION_STRICT)) && !leaf.lazy)
+				messager.printMessage(ERROR, "Tree constant " + elem.getSimpleName()
+						+ " is not a compile-time constant, so reading it will load " + elem.getEnclosingElement(),
+						elem);
+			else if (elem.getModifiers().contains(PRIVATE) || !elem.getModifiers().contains(STATIC))
+				messager.printMessage(ERROR, "Tree constant " + elem.getSimpleName()
+						+ " is not a compile-time constant and must be a static, non-private field", elem);
+
+			field.initializer(elem.getKind() == ElementKind.METHOD ? "$T.$N()" : "$T.$N",
+					ClassName.get((TypeElement) elem.getEnclosingElement()), elem.getSimpleName().toString());
+		}
+
+		// Add comment if present
+		long start = stats.start();
+		String javadoc = elements.getDocComment(elem);
+		stats.stop(Phase.DOC_COMMENT, start);
+		if (javadoc != null)
+			field.addJavadoc("$L", javadoc);
+
+		return field.build();
+	}
+}
@@ -0,0 +1,141 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BitsGeneratorTest {
+
+	private static final String BITS = "test.PermissionConstantBits";
+
+	private static TestCompiler.Result compile(Path directory, String shardSize) throws Exception {
+		var result = new TestCompiler(directory).option(TreeConstantProcessor.OPTION_BITS, "true")
+				.option(TreeConstantProcessor.OPTION_SHARD_SIZE, shardSize)
+				.source("test.PermissionConstants", //
+						"package test;", //
+						"import com.github.cilki.tree_constants.TreeConstant;", //
+						"class PermissionConstants {", //
+						"	@TreeConstant static final int fs_read = 10;", //
+						"	@TreeConstant static final int fs_write = 20;", //
+						"	@TreeConstant static final int fs_exec = 30;", //
+						"	@TreeConstant static final int net_connect = 40;", //
+						"	@TreeConstant static final int net_bind = 10;", //
+						"	@TreeConstant static final String net_name = \"net\";", //
+						"	@TreeConstant static final int SIZE = 50;", //
+						"}")
+				.compile();
+		assertTrue(result.success, result.diagnostics::toString);
+		return result;
+	}
+
+	private static Object call(TestCompiler.Result result, String className, String name, Object... args)
+			throws Exception {
+		Class<?>[] types = Arrays.stream(args).map(arg -> arg instanceof Integer ? int.class : long[].class)
+				.toArray(Class<?>[]::new);
+		try {
+			return result.call(className, name, types, args);
+		} catch (InvocationTargetException e) {
+			throw (Exception) e.getCause();
+		}
+	}
+
+	@Test
+	@DisplayName("Mirror the bit index of every int leaf")
+	void test_1(@TempDir Path directory) throws Exception {
+		var result = compile(directory, "4096");
+		assertEquals(5, result.get(BITS, "$SIZE"));
+		assertEquals(1, result.get(BITS, "$WORDS"));
+
+		for (String[] leaf : new String[][] { { "fs", "read", "10" }, { "fs", "write", "20" },
+				{ "fs", "exec", "30" }, { "net", "connect", "40" }, { "net", "bind", "10" } }) {
+			assertEquals(call(result, BITS, "bit", Integer.parseInt(leaf[2])),
+					result.get(BITS + "$" + leaf[0], leaf[1]));
+		}
+
+		// Leaves with the same value share a bit
+		assertEquals(result.get(BITS + "$fs", "read"), result.get(BITS + "$net", "bind"));
+		assertThrows(NoSuchFieldException.class, () -> result.get(BITS + "$net", "name"));
+
+		// Root leaves may be named like the fields of the bit set class
+		assertEquals(call(result, BITS, "bit", 50), result.get(BITS, "SIZE"));
+	}
+
+	@Test
+	@DisplayName("Add, remove and test constants by bit index")
+	void test_2(@TempDir Path directory) throws Exception {
+		var result = compile(directory, "4096");
+		long[] set = (long[]) call(result, BITS, "newSet");
+		int write = (int) result.get(BITS + "$fs", "write");
+
+		call(result, BITS, "addBit", set, write);
+		assertTrue((boolean) call(result, BITS, "containsBit", set, write));
+		assertTrue((boolean) call(result, BITS, "contains", set, 20));
+		assertFalse((boolean) call(result, BITS, "contains", set, 10));
+
+		call(result, BITS, "add", set, 40);
+		assertTrue((boolean) call(result, BITS, "containsBit", set, result.get(BITS + "$net", "connect")));
+
+		call(result, BITS, "removeBit", set, write);
+		assertFalse((boolean) call(result, BITS, "contains", set, 20));
+		assertThrows(IllegalArgumentException.class, () -> call(result, BITS, "add", set, 99));
+	}
+
+	@Test
+	@DisplayName("Test subtrees without exposing their masks")
+	void test_3(@TempDir Path directory) throws Exception {
+		var result = compile(directory, "4096");
+		long[] set = (long[]) call(result, BITS, "newSet");
+		assertFalse((boolean) call(result, BITS + "$net", "intersects", set));
+
+		call(result, BITS, "add", set, 10);
+		assertTrue((boolean) call(result, BITS + "$fs", "intersects", set));
+		assertTrue((boolean) call(result, BITS + "$net", "intersects", set));
+		assertFalse((boolean) call(result, BITS, "containsAll", set, call(result, BITS + "$fs", "mask")));
+
+		// Masks are copies
+		long[] mask = (long[]) call(result, BITS + "$net", "mask");
+		long[] original = mask.clone();
+		Arrays.fill(mask, 0);
+		assertArrayEquals(original, (long[]) call(result, BITS + "$net", "mask"));
+		assertTrue((boolean) call(result, BITS + "$net", "intersects", set));
+	}
+
+	@Test
+	@DisplayName("Shard the bit index fields")
+	void test_4(@TempDir Path directory) throws Exception {
+		var result = compile(directory, "2");
+		Set<String> shards = Arrays.stream(result.load(BITS + "$fs").getInterfaces()).map(Class::getSimpleName)
+				.collect(Collectors.toSet());
+		assertEquals(Set.of("PermissionConstantBitsShard0", "PermissionConstantBitsShard1"), shards);
+		assertEquals(call(result, BITS, "bit", 30), result.get(BITS + "$fs", "exec"));
+	}
+}
@@ -0,0 +1,110 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.tools.Diagnostic.Kind;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BytecodeGeneratorTest {
+
+	private static TestCompiler compiler(Path directory) throws IOException {
+		return new TestCompiler(directory).option(TreeConstantProcessor.OPTION_BACKEND, "bytecode")
+				.source("test.LimitConstants", //
+						"package test;", //
+						"import com.github.cilki.tree_constants.TreeConstant;", //
+						"class LimitConstants {", //
+						"	@TreeConstant static final String name = \"limits\";", //
+						"	@TreeConstant static final int net_retries = 3;", //
+						"	@TreeConstant static final long net_timeout = 2500L;", //
+						"	@TreeConstant static final double cpu_share = 0.5;", //
+						"	@TreeConstant static final float cpu_weight = 1.5f;", //
+						"	@TreeConstant static final boolean cpu_pinned = true;", //
+						"	@TreeConstant static final char cpu_mode = 'x';", //
+						"	@TreeConstant static final String user_home = System.getProperty(\"user.home\");", //
+						"}");
+	}
+
+	@Test
+	@DisplayName("Write the tree as class files")
+	void test_1(@TempDir Path directory) throws Exception {
+		var compiler = compiler(directory);
+		var result = compiler.compile();
+		assertTrue(result.success, result.diagnostics::toString);
+
+		assertFalse(result.hasSource("test.LimitConstant"));
+		assertTrue(Files.exists(compiler.classOutput().resolve("test/LimitConstant.class")));
+		assertTrue(Files.exists(compiler.classOutput().resolve("test/LimitConstant$net.class")));
+
+		assertEquals("limits", result.get("test.LimitConstant", "name"));
+		assertEquals(3, result.get("test.LimitConstant$net", "retries"));
+		assertEquals(2500L, result.get("test.LimitConstant$net", "timeout"));
+		assertEquals(0.5, result.get("test.LimitConstant$cpu", "share"));
+		assertEquals(1.5f, result.get("test.LimitConstant$cpu", "weight"));
+		assertEquals(true, result.get("test.LimitConstant$cpu", "pinned"));
+		assertEquals('x', result.get("test.LimitConstant$cpu", "mode"));
+
+		// Leaves without a constant value are copied from their source field
+		assertEquals(System.getProperty("user.home"), result.get("test.LimitConstant$user", "home"));
+	}
+
+	@Test
+	@DisplayName("Generate classes that match compiled source")
+	void test_2(@TempDir Path directory) throws Exception {
+		var result = compiler(directory).compile();
+		assertTrue(result.success, result.diagnostics::toString);
+
+		Class<?> net = result.load("test.LimitConstant$net");
+		assertTrue(Modifier.isPublic(net.getModifiers()));
+		assertTrue(Modifier.isFinal(net.getModifiers()));
+		assertEquals(1, net.getDeclaredConstructors().length);
+		assertTrue(Modifier.isPrivate(net.getDeclaredConstructors()[0].getModifiers()));
+
+		int modifiers = net.getField("retries").getModifiers();
+		assertTrue(Modifier.isPublic(modifiers) && Modifier.isStatic(modifiers) && Modifier.isFinal(modifiers));
+	}
+
+	@Test
+	@DisplayName("Name the options that need the source backend")
+	void test_3(@TempDir Path directory) throws Exception {
+		var result = compiler(directory.resolve("index")).option(TreeConstantProcessor.OPTION_INDEX, "true")
+				.compile();
+		assertTrue(result.success, result.diagnostics::toString);
+		assertTrue(result.hasSource("test.LimitConstant"));
+		assertTrue(result.messages(Kind.WARNING).contains("Tree test.LimitConstant uses the source backend because -A"
+				+ TreeConstantProcessor.OPTION_INDEX + " is not supported by the bytecode backend"),
+				result.diagnostics::toString);
+
+		result = compiler(directory.resolve("both")).option(TreeConstantProcessor.OPTION_INDEX, "true")
+				.option(TreeConstantProcessor.OPTION_LOOKUP, "true").compile();
+		assertTrue(result.messages(Kind.WARNING).contains("Tree test.LimitConstant uses the source backend because -A"
+				+ TreeConstantProcessor.OPTION_INDEX + " and -A" + TreeConstantProcessor.OPTION_LOOKUP
+				+ " are not supported by the bytecode backend"), result.diagnostics::toString);
+	}
+}
@@ -0,0 +1,217 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ConfigGeneratorTest {
+
+	private static final int WRITERS = 8;
+
+	private static TestCompiler.Result compile(Path directory) throws Exception {
+		List<String> lines = new ArrayList<>(List.of( //
+				"package test;", //
+				"import com.github.cilki.tree_constants.TreeConstant;", //
+				"class LimitConstants {", //
+				"	@TreeConstant static final String name = \"limits\";"));
+		// Half of the writers change leaves under net and half under disk
+		for (int i = 0; i < WRITERS; i++)
+			lines.add("	@TreeConstant static final int " + (i % 2 == 0 ? "net" : "disk") + "_w" + i + " = 0;");
+		lines.add("}");
+
+		var result = new TestCompiler(directory).option(TreeConstantProcessor.OPTION_CONFIG, "true")
+				.source("test.LimitConstants", lines.toArray(String[]::new)).compile();
+		assertTrue(result.success, result.diagnostics::toString);
+		return result;
+	}
+
+	/**
+	 * Drives a generated {@code LimitConstantConfig} through reflection.
+	 */
+	private static final class Config {
+
+		private final TestCompiler.Result result;
+
+		private final Object config;
+
+		Config(TestCompiler.Result result) throws ReflectiveOperationException {
+			this.result = result;
+			this.config = result.load("test.LimitConstantConfig").getConstructor().newInstance();
+		}
+
+		int ordinal(String node, String leaf) throws ReflectiveOperationException {
+			return (int) result.get("test.LimitConstantOrdinal" + (node.isEmpty() ? "" : "$" + node), leaf);
+		}
+
+		Object snapshot() throws ReflectiveOperationException {
+			return config.getClass().getMethod("snapshot").invoke(config);
+		}
+
+		Object get(Object snapshot, int ordinal) throws ReflectiveOperationException {
+			return snapshot.getClass().getMethod("get", int.class).invoke(snapshot, ordinal);
+		}
+
+		long version(Object snapshot) throws ReflectiveOperationException {
+			return (long) snapshot.getClass().getMethod("version").invoke(snapshot);
+		}
+
+		Object commit(Object... changes) throws ReflectiveOperationException {
+			Object editor = config.getClass().getMethod("edit").invoke(config);
+			for (int i = 0; i < changes.length; i += 2)
+				editor.getClass().getMethod("set", int.class, Object.class).invoke(editor, changes[i], changes[i + 1]);
+			return editor.getClass().getMethod("commit").invoke(editor);
+		}
+
+		Object listener(AtomicInteger calls) throws ReflectiveOperationException {
+			Class<?> type = result.load("test.LimitConstantConfig$Listener");
+			return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type }, (proxy, method, args) -> {
+				if (!method.getName().equals("changed"))
+					throw new UnsupportedOperationException(method.getName());
+				calls.incrementAndGet();
+				return null;
+			});
+		}
+
+		void subscribe(String method, String path, Object listener) throws ReflectiveOperationException {
+			Class<?> type = result.load("test.LimitConstantConfig$Listener");
+			config.getClass().getMethod(method, String.class, type).invoke(config, path, listener);
+		}
+	}
+
+	@Test
+	@DisplayName("Publish changes as new snapshots")
+	void test_1(@TempDir Path directory) throws Exception {
+		var config = new Config(compile(directory));
+		int name = config.ordinal("", "name");
+		int w0 = config.ordinal("net", "w0");
+
+		Object initial = config.snapshot();
+		assertEquals(0L, config.version(initial));
+		assertNull(config.get(initial, name));
+
+		Object next = config.commit(name, "limits", w0, 5);
+		assertSame(next, config.snapshot());
+		assertEquals(1L, config.version(next));
+		assertEquals("limits", config.get(next, name));
+		assertEquals(5, config.get(next, w0));
+
+		// Snapshots never change
+		assertNull(config.get(initial, name));
+
+		// Setting the same values publishes nothing
+		assertSame(next, config.commit(name, "limits"));
+	}
+
+	@Test
+	@DisplayName("Notify only the listeners above a changed leaf")
+	void test_2(@TempDir Path directory) throws Exception {
+		var config = new Config(compile(directory));
+		var root = new AtomicInteger();
+		var net = new AtomicInteger();
+		var disk = new AtomicInteger();
+		config.subscribe("subscribe", "", config.listener(root));
+		config.subscribe("subscribe", "net", config.listener(net));
+		Object diskListener = config.listener(disk);
+		config.subscribe("subscribe", "disk", diskListener);
+
+		config.commit(config.ordinal("net", "w0"), 1, config.ordinal("net", "w2"), 1);
+		assertEquals(1, root.get());
+		assertEquals(1, net.get());
+		assertEquals(0, disk.get());
+
+		config.commit(config.ordinal("", "name"), "limits");
+		assertEquals(2, root.get());
+		assertEquals(1, net.get());
+		assertEquals(0, disk.get());
+
+		config.commit(config.ordinal("disk", "w1"), 1);
+		assertEquals(1, disk.get());
+
+		config.subscribe("unsubscribe", "disk", diskListener);
+		config.commit(config.ordinal("disk", "w1"), 2);
+		assertEquals(1, disk.get());
+		assertEquals(4, root.get());
+
+		var e = assertThrows(InvocationTargetException.class,
+				() -> config.subscribe("subscribe", "cpu", config.listener(root)));
+		assertTrue(e.getCause() instanceof IllegalArgumentException);
+	}
+
+	@Test
+	@DisplayName("Don't lose updates from concurrent writers")
+	void test_3(@TempDir Path directory) throws Exception {
+		var config = new Config(compile(directory));
+		var root = new AtomicInteger();
+		var net = new AtomicInteger();
+		var disk = new AtomicInteger();
+		config.subscribe("subscribe", "", config.listener(root));
+		config.subscribe("subscribe", "net", config.listener(net));
+		config.subscribe("subscribe", "disk", config.listener(disk));
+
+		int commits = 2000;
+		var start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+		try {
+			List<Future<?>> writers = new ArrayList<>();
+			for (int i = 0; i < WRITERS; i++) {
+				int ordinal = config.ordinal(i % 2 == 0 ? "net" : "disk", "w" + i);
+				writers.add(executor.submit(() -> {
+					start.await();
+					for (int value = 1; value <= commits; value++)
+						config.commit(ordinal, value);
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> writer : writers)
+				writer.get(1, TimeUnit.MINUTES);
+		} finally {
+			executor.shutdownNow();
+		}
+
+		// Every commit changed one leaf, so none were applied to a stale snapshot
+		Object snapshot = config.snapshot();
+		assertEquals(WRITERS * commits, config.version(snapshot));
+		for (int i = 0; i < WRITERS; i++)
+			assertEquals(commits, config.get(snapshot, config.ordinal(i % 2 == 0 ? "net" : "disk", "w" + i)));
+
+		assertEquals(WRITERS * commits, root.get());
+		assertEquals(WRITERS / 2 * commits, net.get());
+		assertEquals(WRITERS / 2 * commits, disk.get());
+	}
+}
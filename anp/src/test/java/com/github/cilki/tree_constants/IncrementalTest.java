@@ -0,0 +1,127 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import javax.tools.Diagnostic.Kind;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class IncrementalTest {
+
+	private static final String AGGREGATING = "org.gradle.annotation.processing.aggregating";
+
+	private static final String ISOLATING = "org.gradle.annotation.processing.isolating";
+
+	private static Set<String> supportedOptions(Path directory, String option, String value) throws Exception {
+		var compiler = new TestCompiler(directory).source("test.Constants", //
+				"package test;", //
+				"import com.github.cilki.tree_constants.TreeConstant;", //
+				"class Constants {", //
+				"	@TreeConstant static final String a_b = \"a.b\";", //
+				"}");
+		if (option != null)
+			compiler.option(option, value);
+
+		var result = compiler.compile();
+		assertTrue(result.success, result.diagnostics::toString);
+		return result.processor.getSupportedOptions();
+	}
+
+	@Test
+	@DisplayName("Declare the Gradle processing type")
+	void test_1(@TempDir Path directory) throws Exception {
+		assertTrue(supportedOptions(directory.resolve("1"), null, null).contains(AGGREGATING));
+		assertTrue(supportedOptions(directory.resolve("2"), TreeConstantProcessor.OPTION_INCREMENTAL, "isolating")
+				.contains(ISOLATING));
+
+		Set<String> none = supportedOptions(directory.resolve("3"), TreeConstantProcessor.OPTION_INCREMENTAL, "none");
+		assertFalse(none.contains(AGGREGATING) || none.contains(ISOLATING));
+	}
+
+	@Test
+	@DisplayName("Don't register as incremental when reading untracked inputs")
+	void test_2(@TempDir Path directory) throws Exception {
+		Path usage = Files.createFile(directory.resolve("usage"));
+		for (String option : new String[] { TreeConstantProcessor.OPTION_RESOURCE_PATH,
+				TreeConstantProcessor.OPTION_MERGE, TreeConstantProcessor.OPTION_USAGE }) {
+			Set<String> options = supportedOptions(directory.resolve(option), option, usage.toString());
+			assertFalse(options.contains(AGGREGATING) || options.contains(ISOLATING), option);
+		}
+	}
+
+	@Test
+	@DisplayName("Rebuild a tree from class files")
+	void test_3(@TempDir Path directory) throws Exception {
+		var full = new TestCompiler(directory.resolve("full")).source("test.Constants", //
+				"package test;", //
+				"import com.github.cilki.tree_constants.TreeConstant;", //
+				"class Constants {", //
+				"	/** The first constant */", //
+				"	@TreeConstant static final String a_b = \"a.b\";", //
+				"	@TreeConstant static final int a_c = 5;", //
+				"}").compile();
+		assertTrue(full.success, full.diagnostics::toString);
+		assertTrue(full.source("test.Constant").contains("The first constant"));
+
+		// Gradle passes unchanged classes by name instead of as sources
+		var incremental = new TestCompiler(directory.resolve("incremental"))
+				.classpath(directory.resolve("full").resolve("classes")).process("test.Constants").compile();
+		assertTrue(incremental.success, incremental.diagnostics::toString);
+
+		assertEquals("a.b", incremental.get("test.Constant$a", "b"));
+		assertEquals(5, incremental.get("test.Constant$a", "c"));
+	}
+
+	@Test
+	@DisplayName("Warn about untracked resource files")
+	void test_4(@TempDir Path directory) throws Exception {
+		var incremental = new TestCompiler(directory.resolve("1")).resource("messages.properties", "ui.title=Title\n")
+				.source("test.Messages", //
+						"package test;", //
+						"import com.github.cilki.tree_constants.TreeConstantSource;", //
+						"@TreeConstantSource(\"messages.properties\")", //
+						"class Messages {", //
+						"}")
+				.compile();
+		assertTrue(incremental.success, incremental.diagnostics::toString);
+		assertEquals(1, incremental.messages(Kind.WARNING).size());
+		assertTrue(incremental.messages(Kind.WARNING).get(0).startsWith("Tree test.MessagesConstant is built from "
+				+ "resource files that incremental builds don't track"));
+
+		var none = new TestCompiler(directory.resolve("2")).resource("messages.properties", "ui.title=Title\n")
+				.source("test.Messages", //
+						"package test;", //
+						"import com.github.cilki.tree_constants.TreeConstantSource;", //
+						"@TreeConstantSource(\"messages.properties\")", //
+						"class Messages {", //
+						"}")
+				.option(TreeConstantProcessor.OPTION_INCREMENTAL, "none").compile();
+		assertTrue(none.success, none.diagnostics::toString);
+		assertTrue(none.messages(Kind.WARNING).isEmpty(), none.diagnostics::toString);
+	}
+}
@@ -0,0 +1,93 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class IndexGeneratorTest {
+
+	private static TestCompiler.Result compile(Path directory) throws Exception {
+		var result = new TestCompiler(directory).option(TreeConstantProcessor.OPTION_INDEX, "true")
+				.source("test.LimitConstants", //
+						"package test;", //
+						"import com.github.cilki.tree_constants.TreeConstant;", //
+						"class LimitConstants {", //
+						"	static int computed;", //
+						"	@TreeConstant static final int net_retries = 3;", //
+						"	@TreeConstant static final String net_host = String.valueOf(\"local\");", //
+						"	@TreeConstant(lazy = true)", //
+						"	static String net_pattern() {", //
+						"		computed++;", //
+						"		return \"[a-z]+\";", //
+						"	}", //
+						"	@TreeConstant static final long disk_quota = 5L;", //
+						"}")
+				.compile();
+		assertTrue(result.success, result.diagnostics::toString);
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<Object> list(TestCompiler.Result result, String className, String method)
+			throws ReflectiveOperationException {
+		return (List<Object>) result.call(className, method, new Class<?>[0]);
+	}
+
+	@Test
+	@DisplayName("List the keys and values of each subtree")
+	void test_1(@TempDir Path directory) throws Exception {
+		var result = compile(directory);
+
+		assertEquals(List.of("disk.quota", "net.host", "net.pattern", "net.retries"),
+				list(result, "test.LimitConstant", "keys"));
+		assertEquals(List.of("disk.quota"), list(result, "test.LimitConstant$disk", "keys"));
+		assertEquals(List.of(5L, "local", "[a-z]+", 3), list(result, "test.LimitConstant", "values"));
+		assertEquals(List.of("local", "[a-z]+", 3), list(result, "test.LimitConstant$net", "values"));
+
+		assertThrows(UnsupportedOperationException.class,
+				() -> list(result, "test.LimitConstant", "values").set(0, null));
+	}
+
+	@Test
+	@DisplayName("Compute lazy leaves only when their value is read")
+	void test_2(@TempDir Path directory) throws Exception {
+		var result = compile(directory);
+		Field computed = result.load("test.LimitConstants").getDeclaredField("computed");
+		computed.setAccessible(true);
+
+		assertEquals(4, list(result, "test.LimitConstant", "keys").size());
+		List<Object> values = list(result, "test.LimitConstant$net", "values");
+		assertEquals(3, values.size());
+		assertEquals("local", values.get(0));
+		assertEquals(0, computed.get(null));
+
+		assertEquals("[a-z]+", values.get(1));
+		assertEquals("[a-z]+", list(result, "test.LimitConstant", "values").get(2));
+		assertEquals(1, computed.get(null));
+	}
+}
@@ -0,0 +1,149 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class KeyReaderTest {
+
+	private static List<String> properties(String content) throws IOException {
+		List<String> keys = new ArrayList<>();
+		KeyReader.readProperties(new StringReader(content), keys::add);
+		return keys;
+	}
+
+	private static List<String> json(String content) throws IOException {
+		List<String> keys = new ArrayList<>();
+		KeyReader.readJson(new StringReader(content), keys::add);
+		return keys;
+	}
+
+	@Test
+	@DisplayName("Read the keys of a properties file like java.util.Properties")
+	void test_1() throws IOException {
+		String content = String.join("\n", //
+				"# comment", //
+				"! comment \\", //
+				"a.b=1", //
+				"  a.c : 2", //
+				"a.d 3", //
+				"a.e=multi \\", //
+				"    line \\", //
+				"    value", //
+				"a.f\\", //
+				"    g=4", //
+				"a.h\\u0041=5", //
+				"a.i\\:j=6", //
+				"", //
+				"a.k");
+
+		var expected = new Properties();
+		expected.load(new StringReader(content));
+
+		List<String> keys = properties(content);
+		assertEquals(List.of("a.b", "a.c", "a.d", "a.e", "a.fg", "a.hA", "a.i:j", "a.k"), keys);
+		assertEquals(new TreeSet<>(expected.stringPropertyNames()), new TreeSet<>(keys));
+	}
+
+	@Test
+	@DisplayName("Read properties with any line separator")
+	void test_2() throws IOException {
+		assertEquals(List.of("a", "b", "c"), properties("a=1\r\nb=2\rc=3"));
+		assertEquals(List.of("ab"), properties("a\\\r\n b=1"));
+	}
+
+	@Test
+	@DisplayName("Read the path of every value in a JSON file")
+	void test_3() throws IOException {
+		assertEquals(List.of("a.b", "a.c.d", "a.e", "f", "g", "i.x"), json(String.join("\n", //
+				"{", //
+				"  \"a\": {", //
+				"    \"b\": \"x\\\"y\",", //
+				"    \"c\": { \"d\": -1.5e3 },", //
+				"    \"e\": [1, {\"z\": 2}, [\"w\"]]", //
+				"  },", //
+				"  \"f\": true,", //
+				"  \"g\": null,", //
+				"  \"h\": {},", //
+				"  \"\\u0069\": {\"x\": 1}", //
+				"}")));
+		assertTrue(json("{}").isEmpty());
+	}
+
+	@Test
+	@DisplayName("Report the line of malformed JSON")
+	void test_4() {
+		assertEquals("Expected an object on line 1", assertThrows(IOException.class, () -> json("[1]")).getMessage());
+		assertEquals("Expected ':' on line 2",
+				assertThrows(IOException.class, () -> json("{\n\"a\" 1}")).getMessage());
+		assertEquals("Unterminated string on line 1",
+				assertThrows(IOException.class, () -> json("{\"a\": \"b")).getMessage());
+		assertEquals("Expected ',' or '}' on line 3",
+				assertThrows(IOException.class, () -> json("{\n\"a\": 1\n\"b\": 2}")).getMessage());
+		assertEquals("Unexpected content after the root object on line 1",
+				assertThrows(IOException.class, () -> json("{} {}")).getMessage());
+	}
+
+	@Test
+	@DisplayName("Read keys that span buffer boundaries")
+	void test_5() throws IOException {
+		var content = new StringBuilder();
+		List<String> expected = new ArrayList<>();
+		for (int i = 0; i < 5000; i++) {
+			String key = "node" + i % 7 + ".leaf" + i;
+			content.append(key).append('=').append("x".repeat(i % 13)).append('\n');
+			expected.add(key);
+		}
+		assertEquals(expected, properties(content.toString()));
+	}
+
+	@Test
+	@DisplayName("Build trees from resource files")
+	void test_6(@TempDir Path directory) throws Exception {
+		var result = new TestCompiler(directory) //
+				.resource("messages.properties", "ui.title=Title\nui.view.main=Main\n") //
+				.resource("errors.json", "{\"net\": {\"timeout\": \"Timed out\", \"refused\": \"Refused\"}}") //
+				.source("test.Messages", //
+						"package test;", //
+						"import com.github.cilki.tree_constants.TreeConstantSource;", //
+						"@TreeConstantSource({\"messages.properties\", \"errors.json\"})", //
+						"class Messages {", //
+						"}")
+				.compile();
+		assertTrue(result.success, result.diagnostics::toString);
+
+		assertEquals("ui.title", result.get("test.MessagesConstant$ui", "title"));
+		assertEquals("ui.view.main", result.get("test.MessagesConstant$ui$view", "main"));
+		assertEquals("net.timeout", result.get("test.MessagesConstant$net", "timeout"));
+		assertEquals("net.refused", result.get("test.MessagesConstant$net", "refused"));
+	}
+}
@@ -0,0 +1,126 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LiteralsTest {
+
+	private static TestCompiler.Result compile(Path directory) throws Exception {
+		var result = new TestCompiler(directory).source("test.ValueConstants", //
+				"package test;", //
+				"import com.github.cilki.tree_constants.TreeConstant;", //
+				"class ValueConstants {", //
+				"	@TreeConstant static final char char_separator = '\\u2028';", //
+				"	@TreeConstant static final char char_quote = '\\'';", //
+				"	@TreeConstant static final char char_backslash = '\\\\';", //
+				"	@TreeConstant static final char char_newline = '\\n';", //
+				"	@TreeConstant static final char char_nul = '\\0';", //
+				"	@TreeConstant static final long long_min = Long.MIN_VALUE;", //
+				"	@TreeConstant static final long long_big = 1L << 40;", //
+				"	@TreeConstant static final int int_min = Integer.MIN_VALUE;", //
+				"	@TreeConstant static final float float_nan = Float.NaN;", //
+				"	@TreeConstant static final float float_inf = Float.POSITIVE_INFINITY;", //
+				"	@TreeConstant static final float float_tiny = Float.MIN_VALUE;", //
+				"	@TreeConstant static final double double_nan = Double.NaN;", //
+				"	@TreeConstant static final double double_ninf = Double.NEGATIVE_INFINITY;", //
+				"	@TreeConstant static final double double_nzero = -0.0;", //
+				"	@TreeConstant static final double double_large = 1e300;", //
+				"	@TreeConstant static final byte byte_min = Byte.MIN_VALUE;", //
+				"	@TreeConstant static final short short_min = Short.MIN_VALUE;", //
+				"	@TreeConstant static final String string_escapes = \"tab\\t\\\"quote\\\"\\u2028\";", //
+				"}").compile();
+		assertTrue(result.success, result.diagnostics::toString);
+		return result;
+	}
+
+	@Test
+	@DisplayName("Keep the value of every constant type")
+	void test_1(@TempDir Path directory) throws Exception {
+		var result = compile(directory);
+
+		assertEquals('\u2028', result.get("test.ValueConstant$char_", "separator"));
+		assertEquals('\'', result.get("test.ValueConstant$char_", "quote"));
+		assertEquals('\\', result.get("test.ValueConstant$char_", "backslash"));
+		assertEquals('\n', result.get("test.ValueConstant$char_", "newline"));
+		assertEquals('\0', result.get("test.ValueConstant$char_", "nul"));
+		assertEquals(Long.MIN_VALUE, result.get("test.ValueConstant$long_", "min"));
+		assertEquals(1L << 40, result.get("test.ValueConstant$long_", "big"));
+		assertEquals(Integer.MIN_VALUE, result.get("test.ValueConstant$int_", "min"));
+		assertEquals(Float.NaN, result.get("test.ValueConstant$float_", "nan"));
+		assertEquals(Float.POSITIVE_INFINITY, result.get("test.ValueConstant$float_", "inf"));
+		assertEquals(Float.MIN_VALUE, result.get("test.ValueConstant$float_", "tiny"));
+		assertEquals(Double.NaN, result.get("test.ValueConstant$double_", "nan"));
+		assertEquals(Double.NEGATIVE_INFINITY, result.get("test.ValueConstant$double_", "ninf"));
+		assertEquals(1e300, result.get("test.ValueConstant$double_", "large"));
+		assertEquals(Byte.MIN_VALUE, result.get("test.ValueConstant$byte_", "min"));
+		assertEquals(Short.MIN_VALUE, result.get("test.ValueConstant$short_", "min"));
+		assertEquals("tab\t\"quote\"\u2028", result.get("test.ValueConstant$string", "escapes"));
+
+		// The sign of zero is kept
+		double zero = (double) result.get("test.ValueConstant$double_", "nzero");
+		assertEquals(Double.doubleToRawLongBits(-0.0), Double.doubleToRawLongBits(zero));
+	}
+
+	@Test
+	@DisplayName("Write literals of the declared type")
+	void test_2(@TempDir Path directory) throws Exception {
+		String source = compile(directory).source("test.ValueConstant");
+
+		assertTrue(source.contains("char separator = '\\u2028';"), source);
+		assertTrue(source.contains("char quote = '\\'';"), source);
+		assertTrue(source.contains("long min = -9223372036854775808L;"), source);
+		assertTrue(source.contains("float nan = 0.0f / 0.0f;"), source);
+		assertTrue(source.contains("float inf = 1.0f / 0.0f;"), source);
+		assertTrue(source.contains("double ninf = -1.0d / 0.0d;"), source);
+		assertTrue(source.contains("double nzero = -0.0d;"), source);
+		assertTrue(source.contains("byte min = (byte) -128;"), source);
+		assertTrue(source.contains("short min = (short) -32768;"), source);
+		assertTrue(source.contains("String escapes = \"tab\\t\\\"quote\\\"\\u2028\";"), source);
+	}
+
+	@Test
+	@DisplayName("Escape line separators in packed string tables")
+	void test_3(@TempDir Path directory) throws Exception {
+		List<String> lines = new ArrayList<>(List.of( //
+				"package test;", //
+				"import com.github.cilki.tree_constants.TreeConstant;", //
+				"class TextConstants {"));
+		for (int i = 0; i < 100; i++)
+			lines.add("	@TreeConstant static final String text_t" + i + " = \"" + i + "\\u2028\\u0085\";");
+		lines.add("}");
+
+		var result = new TestCompiler(directory).option(TreeConstantProcessor.OPTION_INDEX, "true")
+				.source("test.TextConstants", lines.toArray(String[]::new)).compile();
+		assertTrue(result.success, result.diagnostics::toString);
+
+		@SuppressWarnings("unchecked")
+		var values = (List<Object>) result.call("test.TextConstant", "values", new Class<?>[0]);
+		assertEquals(100, values.size());
+		assertTrue(values.contains("42\u2028\u0085"), values::toString);
+	}
+}
@@ -0,0 +1,81 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+
+import javax.tools.Diagnostic.Kind;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LookupGeneratorTest {
+
+	private static final Class<?>[] STRING = { String.class };
+
+	private static final Class<?>[] INT = { int.class };
+
+	@Test
+	@DisplayName("Look up leaves by value")
+	void test_1(@TempDir Path directory) throws Exception {
+		var result = new TestCompiler(directory).option(TreeConstantProcessor.OPTION_LOOKUP, "true")
+				.source("test.PropertyConstants", //
+						"package test;", //
+						"import com.github.cilki.tree_constants.TreeConstant;", //
+						"class PropertyConstants {", //
+						"	@TreeConstant static final String java_home = \"java.home\";", //
+						"	@TreeConstant static final String user_dir = \"user.dir\";", //
+						"	@TreeConstant static final String user_home = \"user.home\";", //
+						"	@TreeConstant static final int user_count = 5;", //
+						"}")
+				.compile();
+		assertTrue(result.success, result.diagnostics::toString);
+
+		for (String path : new String[] { "java.home", "user.dir", "user.home" }) {
+			Object ordinal = result.call("test.PropertyConstant", "lookup", STRING, path);
+			assertEquals(path, result.call("test.PropertyConstant", "path", INT, ordinal));
+		}
+
+		assertEquals(-1, result.call("test.PropertyConstant", "lookup", STRING, "user"));
+		assertEquals(-1, result.call("test.PropertyConstant", "lookup", STRING, "5"));
+		assertEquals(-1, result.call("test.PropertyConstant", "lookup", STRING, (Object) null));
+	}
+
+	@Test
+	@DisplayName("Warn about values that can't be looked up")
+	void test_2(@TempDir Path directory) throws Exception {
+		var result = new TestCompiler(directory).option(TreeConstantProcessor.OPTION_LOOKUP, "true")
+				.source("test.DuplicateConstants", //
+						"package test;", //
+						"import com.github.cilki.tree_constants.TreeConstant;", //
+						"class DuplicateConstants {", //
+						"	@TreeConstant static final String a = \"same\";", //
+						"	@TreeConstant static final String b = \"same\";", //
+						"}")
+				.compile();
+		assertTrue(result.success, result.diagnostics::toString);
+
+		assertEquals(1, result.messages(Kind.WARNING).size());
+		assertEquals("a", result.call("test.DuplicateConstant", "path", INT,
+				result.call("test.DuplicateConstant", "lookup", STRING, "same")));
+	}
+}
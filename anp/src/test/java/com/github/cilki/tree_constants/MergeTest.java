@@ -0,0 +1,117 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.tools.Diagnostic.Kind;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MergeTest {
+
+	/**
+	 * Compile an upstream module that publishes its tree as {@code core}.
+	 */
+	private static Path upstream(Path directory) throws IOException {
+		var compiler = new TestCompiler(directory.resolve("core")).option(TreeConstantProcessor.OPTION_MODULE, "core")
+				.source("test.LimitConstants", //
+						"package test;", //
+						"import com.github.cilki.tree_constants.TreeConstant;", //
+						"class LimitConstants {", //
+						"	@TreeConstant static final int net_retries = 3;", //
+						"	@TreeConstant static final String name = \"core\";", //
+						"}");
+		var result = compiler.compile();
+		assertTrue(result.success, result.diagnostics::toString);
+		return compiler.classOutput();
+	}
+
+	private static TestCompiler downstream(Path directory, Path upstream, String... leaves) throws IOException {
+		String[] lines = new String[leaves.length + 4];
+		lines[0] = "package test;";
+		lines[1] = "import com.github.cilki.tree_constants.TreeConstant;";
+		lines[2] = "class LimitConstants {";
+		for (int i = 0; i < leaves.length; i++)
+			lines[i + 3] = "	@TreeConstant static final " + leaves[i] + ";";
+		lines[lines.length - 1] = "}";
+
+		return new TestCompiler(directory.resolve("app")).classpath(upstream)
+				.option(TreeConstantProcessor.OPTION_MERGE, "core").source("test.LimitConstants", lines);
+	}
+
+	@Test
+	@DisplayName("Publish trees for downstream modules")
+	void test_1(@TempDir Path directory) throws Exception {
+		Path classes = upstream(directory);
+		var file = TreeFile.open(classes.resolve(TreeFile.RESOURCE_DIRECTORY + "core/test.LimitConstant.bin"));
+		assertEquals(2, file.size());
+		assertEquals(3, file.getInt(file.find("net.retries")));
+	}
+
+	@Test
+	@DisplayName("Merge upstream leaves into a tree")
+	void test_2(@TempDir Path directory) throws Exception {
+		var result = downstream(directory, upstream(directory), "int net_timeout = 10", "int disk_quota = 5")
+				.compile();
+		assertTrue(result.success, result.diagnostics::toString);
+
+		assertEquals(3, result.get("test.LimitConstant$net", "retries"));
+		assertEquals(10, result.get("test.LimitConstant$net", "timeout"));
+		assertEquals(5, result.get("test.LimitConstant$disk", "quota"));
+		assertEquals("core", result.get("test.LimitConstant", "name"));
+	}
+
+	@Test
+	@DisplayName("Accept leaves that repeat an upstream value")
+	void test_3(@TempDir Path directory) throws Exception {
+		var result = downstream(directory, upstream(directory), "int net_retries = 3").compile();
+		assertTrue(result.success, result.diagnostics::toString);
+		assertEquals(3, result.get("test.LimitConstant$net", "retries"));
+	}
+
+	@Test
+	@DisplayName("Reject leaves that conflict with an upstream value")
+	void test_4(@TempDir Path directory) throws Exception {
+		var result = downstream(directory, upstream(directory), "int net_retries = 4", "String name = \"app\"")
+				.compile();
+		assertFalse(result.success);
+		assertEquals(2, result.messages(Kind.ERROR).size(), result.diagnostics::toString);
+		assertTrue(result.messages(Kind.ERROR).contains(
+				"Tree constant test.LimitConstant.net.retries conflicts with the value published by core"));
+		assertTrue(result.messages(Kind.ERROR)
+				.contains("Tree constant test.LimitConstant.name conflicts with the value published by core"));
+	}
+
+	@Test
+	@DisplayName("Ignore modules that don't publish the tree")
+	void test_5(@TempDir Path directory) throws Exception {
+		Path empty = Files.createDirectories(directory.resolve("empty"));
+		var result = downstream(directory, empty, "int net_timeout = 10").compile();
+		assertTrue(result.success, result.diagnostics::toString);
+		assertEquals(10, result.get("test.LimitConstant$net", "timeout"));
+	}
+}
@@ -0,0 +1,76 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class PathTokenizerTest {
+
+	private static List<String> split(PathTokenizer tokenizer, String name) {
+		List<String> segments = new ArrayList<>();
+		tokenizer.reset(name);
+		while (tokenizer.hasNext())
+			segments.add(tokenizer.next());
+		return segments;
+	}
+
+	@Test
+	@DisplayName("Split field names on single underscores")
+	void test_1() {
+		var tokenizer = new PathTokenizer();
+		assertEquals(List.of("java", "io", "tmpdir"), split(tokenizer, "java_io_tmpdir"));
+		assertEquals(List.of("java", "class_path"), split(tokenizer, "java_class__path"));
+		assertEquals(List.of("a", "b__c"), split(tokenizer, "a_b____c"));
+		assertEquals(List.of("a_", "b"), split(tokenizer, "a___b"));
+		assertEquals(List.of("single"), split(tokenizer, "single"));
+	}
+
+	@Test
+	@DisplayName("Append an underscore to keywords")
+	void test_2() {
+		var tokenizer = new PathTokenizer();
+		assertEquals(List.of("x", "class_"), split(tokenizer, "x_class"));
+		assertEquals(List.of("int_", "value"), split(tokenizer, "int_value"));
+	}
+
+	@Test
+	@DisplayName("Convert resource keys into names")
+	void test_3() {
+		var tokenizer = new PathTokenizer();
+		assertEquals("main_view", tokenizer.segment("main-view", 0, 9));
+		assertEquals("_1st", tokenizer.segment("1st", 0, 3));
+		// A lone underscore is a keyword
+		assertEquals("__", tokenizer.segment("", 0, 0));
+		assertEquals("new_", tokenizer.segment("new", 0, 3));
+	}
+
+	@Test
+	@DisplayName("Intern segments")
+	void test_4() {
+		var tokenizer = new PathTokenizer();
+		String first = split(tokenizer, "a_name").get(1);
+		assertSame(first, split(tokenizer, "b_name").get(1));
+	}
+}
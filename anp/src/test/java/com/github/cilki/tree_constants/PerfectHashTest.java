@@ -0,0 +1,60 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class PerfectHashTest {
+
+	private static void assertPerfect(List<String> keys) {
+		PerfectHash hash = PerfectHash.build(keys);
+		assertEquals(keys.size(), hash.slots.length);
+
+		for (String key : keys) {
+			int h = PerfectHash.hash(key, hash.seed);
+			int displacement = hash.displacements[PerfectHash.bucket(h, hash.displacements.length)];
+			assertEquals(key, keys.get(hash.slots[PerfectHash.slot(h, displacement, keys.size())]));
+		}
+	}
+
+	@Test
+	@DisplayName("Place every key in its own slot")
+	void test_1() {
+		assertPerfect(List.of("a"));
+		assertPerfect(List.of("a", "b"));
+		assertPerfect(List.of("java.home", "java.io.tmpdir", "user.dir", "user.home", "os.name"));
+
+		List<String> keys = new ArrayList<>();
+		for (int i = 0; i < 20000; i++)
+			keys.add("key." + i);
+		assertPerfect(keys);
+	}
+
+	@Test
+	@DisplayName("Reject keys that can't be separated")
+	void test_2() {
+		assertThrows(IllegalArgumentException.class, () -> PerfectHash.build(List.of("a", "b", "a")));
+	}
+}
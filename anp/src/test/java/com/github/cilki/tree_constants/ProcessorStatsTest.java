@@ -0,0 +1,112 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.tools.Diagnostic.Kind;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ProcessorStatsTest {
+
+	private static TestCompiler compiler(Path directory, String report) throws IOException {
+		return new TestCompiler(directory).option(TreeConstantProcessor.OPTION_STATS, report)
+				.source("test.LimitConstants", //
+						"package test;", //
+						"import com.github.cilki.tree_constants.TreeConstant;", //
+						"class LimitConstants {", //
+						"	@TreeConstant static final int net_port = 80;", //
+						"	@TreeConstant static final String net_host = \"local\";", //
+						"	@TreeConstant static final long disk_quota = 5L;", //
+						"}")
+				.source("test.UserConstants", //
+						"package test;", //
+						"import com.github.cilki.tree_constants.TreeConstant;", //
+						"class UserConstants {", //
+						"	@TreeConstant static final String name = \"user\";", //
+						"}");
+	}
+
+	private static Matcher find(String regex, String input) {
+		Matcher matcher = Pattern.compile(regex).matcher(input);
+		assertTrue(matcher.find(), () -> regex + " in " + input);
+		return matcher;
+	}
+
+	@Test
+	@DisplayName("Write a JSON report")
+	void test_1(@TempDir Path directory) throws Exception {
+		Path report = directory.resolve("reports/stats.json");
+		var compiler = compiler(directory, report.toString());
+		var result = compiler.compile();
+		assertTrue(result.success, result.diagnostics::toString);
+
+		String json = Files.readString(report);
+		find("\"elapsedNanos\": \\d+", json);
+		for (String phase : new String[] { "collect", "build", "getConstantValue", "getDocComment", "render",
+				"write" })
+			find("\"" + phase + "\": \\{ \"count\": \\d+, \"nanos\": \\d+ \\}", json);
+
+		// Both sources are collected in the first round
+		find("\"rounds\": \\[\\n    \\{ \"elements\": 4, \"nanos\": \\d+ \\}", json);
+
+		// The root, net and disk
+		Matcher limit = find("\\{ \"name\": \"test.LimitConstant\", \"nodes\": 3, \"leaves\": 3, \"files\": 1, "
+				+ "\"bytes\": (\\d+) \\}", json);
+		assertEquals(Files.size(compiler.sourceOutput().resolve("test/LimitConstant.java")),
+				Long.parseLong(limit.group(1)));
+		find("\\{ \"name\": \"test.UserConstant\", \"nodes\": 1, \"leaves\": 1, \"files\": 1, \"bytes\": \\d+ \\}",
+				json);
+	}
+
+	@Test
+	@DisplayName("Print a summary")
+	void test_2(@TempDir Path directory) throws Exception {
+		Path report = directory.resolve("stats.json");
+		var result = compiler(directory, report.toString()).compile();
+		assertTrue(result.success, result.diagnostics::toString);
+
+		var notes = result.messages(Kind.NOTE);
+		assertEquals(1, notes.size(), notes::toString);
+		find("^Tree constants: 2 trees, 4 nodes, 4 leaves, 2 files, \\d+ bytes in \\d+ ms \\("
+				+ Pattern.quote(report.toString()) + "\\)$", notes.get(0));
+	}
+
+	@Test
+	@DisplayName("Reject a relative report path")
+	void test_3(@TempDir Path directory) throws Exception {
+		var result = compiler(directory, "build/stats.json").compile();
+		assertFalse(result.success);
+		assertEquals(1, result.messages(Kind.ERROR).size(), result.diagnostics::toString);
+		assertEquals("-Atreeconstants.stats must be an absolute path: build/stats.json",
+				result.messages(Kind.ERROR).get(0));
+		assertTrue(result.messages(Kind.NOTE).isEmpty());
+		assertFalse(Files.exists(Path.of("build/stats.json")));
+	}
+}
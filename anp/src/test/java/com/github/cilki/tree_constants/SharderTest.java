@@ -0,0 +1,109 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.tools.Diagnostic.Kind;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SharderTest {
+
+	private static TestCompiler compiler(Path directory) throws IOException {
+		return new TestCompiler(directory).source("test.LimitConstants", //
+				"package test;", //
+				"import com.github.cilki.tree_constants.TreeConstant;", //
+				"class LimitConstants {", //
+				"	@TreeConstant static final int net_a = 1;", //
+				"	@TreeConstant static final int net_b = 2;", //
+				"	@TreeConstant static final int net_c = 3;", //
+				"	@TreeConstant static final int net_d = 4;", //
+				"	@TreeConstant static final int net_e = 5;", //
+				"	@TreeConstant static final int disk = 6;", //
+				"}");
+	}
+
+	private static Set<String> interfaces(Class<?> type) {
+		return Arrays.stream(type.getInterfaces()).map(Class::getSimpleName).collect(Collectors.toSet());
+	}
+
+	@Test
+	@DisplayName("Split oversized nodes into shards")
+	void test_1(@TempDir Path directory) throws Exception {
+		var result = compiler(directory).option(TreeConstantProcessor.OPTION_SHARD_SIZE, "2").compile();
+		assertTrue(result.success, result.diagnostics::toString);
+
+		// Only the node with five leaves is split
+		assertEquals(Set.of("LimitConstantShard0", "LimitConstantShard1", "LimitConstantShard2"),
+				interfaces(result.load("test.LimitConstant$net")));
+		assertTrue(interfaces(result.load("test.LimitConstant")).isEmpty());
+		assertTrue(result.messages(Kind.NOTE).stream().anyMatch(message -> message.contains("3 shard(s)")));
+
+		// Fields are still reachable through the node
+		assertEquals(1, result.get("test.LimitConstant$net", "a"));
+		assertEquals(5, result.get("test.LimitConstant$net", "e"));
+		assertEquals(6, result.get("test.LimitConstant", "disk"));
+	}
+
+	@Test
+	@DisplayName("Shard the ordinal mirror")
+	void test_2(@TempDir Path directory) throws Exception {
+		var result = compiler(directory).option(TreeConstantProcessor.OPTION_SHARD_SIZE, "2")
+				.option(TreeConstantProcessor.OPTION_STORE, "true").compile();
+		assertTrue(result.success, result.diagnostics::toString);
+
+		assertEquals(Set.of("LimitConstantOrdinalShard0", "LimitConstantOrdinalShard1", "LimitConstantOrdinalShard2"),
+				interfaces(result.load("test.LimitConstantOrdinal$net")));
+		assertEquals(5, Set.of(result.get("test.LimitConstantOrdinal$net", "a"),
+				result.get("test.LimitConstantOrdinal$net", "b"), result.get("test.LimitConstantOrdinal$net", "c"),
+				result.get("test.LimitConstantOrdinal$net", "d"), result.get("test.LimitConstantOrdinal$net", "e"))
+				.size());
+	}
+
+	@Test
+	@DisplayName("Leave small nodes alone")
+	void test_3(@TempDir Path directory) throws Exception {
+		var result = compiler(directory).compile();
+		assertTrue(result.success, result.diagnostics::toString);
+		assertTrue(interfaces(result.load("test.LimitConstant$net")).isEmpty());
+		assertFalse(result.hasSource("test.LimitConstantShard0"));
+	}
+
+	@Test
+	@DisplayName("Reject an invalid shard size")
+	void test_4(@TempDir Path directory) throws Exception {
+		for (String size : new String[] { "abc", "0", "-4" }) {
+			var result = compiler(directory.resolve(size))
+					.option(TreeConstantProcessor.OPTION_SHARD_SIZE, size).compile();
+			assertFalse(result.success);
+			assertEquals(1, result.messages(Kind.ERROR).size(), result.diagnostics::toString);
+			assertTrue(result.messages(Kind.ERROR).get(0).contains(TreeConstantProcessor.OPTION_SHARD_SIZE));
+		}
+	}
+}
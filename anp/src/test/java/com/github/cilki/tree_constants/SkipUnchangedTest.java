@@ -0,0 +1,98 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import javax.tools.Diagnostic.Kind;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SkipUnchangedTest {
+
+	private static final FileTime PAST = FileTime.fromMillis(1_000_000_000_000L);
+
+	private static TestCompiler compiler(Path directory, int retries) throws IOException {
+		return new TestCompiler(directory).option(TreeConstantProcessor.OPTION_SKIP_UNCHANGED, "true")
+				.source("test.LimitConstants", //
+						"package test;", //
+						"import com.github.cilki.tree_constants.TreeConstant;", //
+						"class LimitConstants {", //
+						"	@TreeConstant static final int net_retries = " + retries + ";", //
+						"}")
+				.source("test.Usage", //
+						"package test;", //
+						"public class Usage {", //
+						"	public static int retries() {", //
+						"		return LimitConstant.net.retries;", //
+						"	}", //
+						"}");
+	}
+
+	@Test
+	@DisplayName("Skip unchanged sources that are on the source path")
+	void test_1(@TempDir Path directory) throws Exception {
+		var result = compiler(directory, 3).sourceRoot().compile();
+		assertTrue(result.success, result.diagnostics::toString);
+
+		Path generated = directory.resolve("generated/test/LimitConstant.java");
+		Files.setLastModifiedTime(generated, PAST);
+
+		result = compiler(directory, 3).sourceRoot().compile();
+		assertTrue(result.success, result.diagnostics::toString);
+		assertEquals(PAST, Files.getLastModifiedTime(generated));
+		assertEquals(3, result.call("test.Usage", "retries", new Class<?>[0]));
+	}
+
+	@Test
+	@DisplayName("Write changed sources")
+	void test_2(@TempDir Path directory) throws Exception {
+		var result = compiler(directory, 3).sourceRoot().compile();
+		assertTrue(result.success, result.diagnostics::toString);
+
+		Path generated = directory.resolve("generated/test/LimitConstant.java");
+		Files.setLastModifiedTime(generated, PAST);
+
+		result = compiler(directory, 4).sourceRoot().compile();
+		assertTrue(result.success, result.diagnostics::toString);
+		assertTrue(Files.getLastModifiedTime(generated).compareTo(PAST) > 0);
+		assertEquals(4, result.call("test.Usage", "retries", new Class<?>[0]));
+	}
+
+	@Test
+	@DisplayName("Write every source if the output is not on the source path")
+	void test_3(@TempDir Path directory) throws Exception {
+		var result = compiler(directory, 3).compile();
+		assertTrue(result.success, result.diagnostics::toString);
+
+		// A skipped file would not be compiled, so Usage would not compile either
+		result = compiler(directory, 3).compile();
+		assertTrue(result.success, result.diagnostics::toString);
+		assertEquals(3, result.call("test.Usage", "retries", new Class<?>[0]));
+		assertEquals(1, result.messages(Kind.WARNING).stream()
+				.filter(message -> message.contains(TreeConstantProcessor.OPTION_SKIP_UNCHANGED)).count());
+	}
+}
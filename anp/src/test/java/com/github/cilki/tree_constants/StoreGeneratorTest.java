@@ -0,0 +1,103 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class StoreGeneratorTest {
+
+	private static TestCompiler.Result compile(Path directory) throws Exception {
+		var result = new TestCompiler(directory).option(TreeConstantProcessor.OPTION_STORE, "true")
+				.source("test.LimitConstants", //
+						"package test;", //
+						"import com.github.cilki.tree_constants.TreeConstant;", //
+						"class LimitConstants {", //
+						"	@TreeConstant static final String name = \"limits\";", //
+						"	@TreeConstant static final int net_connections = 1;", //
+						"	@TreeConstant static final int net_retries = 2;", //
+						"	@TreeConstant static final long disk_quota = 3L;", //
+						"	@TreeConstant static final double cpu_share = 0.5;", //
+						"	@TreeConstant static final boolean cpu_pinned = false;", //
+						"}")
+				.compile();
+		assertTrue(result.success, result.diagnostics::toString);
+		return result;
+	}
+
+	@Test
+	@DisplayName("Assign a distinct ordinal to every leaf")
+	void test_1(@TempDir Path directory) throws Exception {
+		var result = compile(directory);
+		int size = (int) result.get("test.LimitConstantStore", "SIZE");
+		assertEquals(6, size);
+
+		Set<Object> ordinals = new HashSet<>();
+		ordinals.add(result.get("test.LimitConstantOrdinal", "name"));
+		ordinals.add(result.get("test.LimitConstantOrdinal$net", "connections"));
+		ordinals.add(result.get("test.LimitConstantOrdinal$net", "retries"));
+		ordinals.add(result.get("test.LimitConstantOrdinal$disk", "quota"));
+		ordinals.add(result.get("test.LimitConstantOrdinal$cpu", "share"));
+		ordinals.add(result.get("test.LimitConstantOrdinal$cpu", "pinned"));
+
+		assertEquals(size, ordinals.size());
+		for (Object ordinal : ordinals)
+			assertTrue((int) ordinal >= 0 && (int) ordinal < size);
+
+		// Leaves of the same lane are contiguous
+		assertEquals(1, Math.abs((int) result.get("test.LimitConstantOrdinal$net", "connections")
+				- (int) result.get("test.LimitConstantOrdinal$net", "retries")));
+	}
+
+	@Test
+	@DisplayName("Store one value per leaf")
+	void test_2(@TempDir Path directory) throws Exception {
+		var result = compile(directory);
+		Class<?> type = result.load("test.LimitConstantStore");
+		Object store = type.getConstructor().newInstance();
+
+		int name = (int) result.get("test.LimitConstantOrdinal", "name");
+		int connections = (int) result.get("test.LimitConstantOrdinal$net", "connections");
+		int retries = (int) result.get("test.LimitConstantOrdinal$net", "retries");
+		int quota = (int) result.get("test.LimitConstantOrdinal$disk", "quota");
+		int share = (int) result.get("test.LimitConstantOrdinal$cpu", "share");
+		int pinned = (int) result.get("test.LimitConstantOrdinal$cpu", "pinned");
+
+		type.getMethod("set", int.class, Object.class).invoke(store, name, "custom");
+		type.getMethod("setInt", int.class, int.class).invoke(store, connections, 10);
+		type.getMethod("setInt", int.class, int.class).invoke(store, retries, 20);
+		type.getMethod("setLong", int.class, long.class).invoke(store, quota, 30L);
+		type.getMethod("setDouble", int.class, double.class).invoke(store, share, 0.25);
+		type.getMethod("setBoolean", int.class, boolean.class).invoke(store, pinned, true);
+
+		assertEquals("custom", type.getMethod("get", int.class).invoke(store, name));
+		assertEquals(10, type.getMethod("getInt", int.class).invoke(store, connections));
+		assertEquals(20, type.getMethod("getInt", int.class).invoke(store, retries));
+		assertEquals(30L, type.getMethod("getLong", int.class).invoke(store, quota));
+		assertEquals(0.25, type.getMethod("getDouble", int.class).invoke(store, share));
+		assertEquals(true, type.getMethod("getBoolean", int.class).invoke(store, pinned));
+	}
+}
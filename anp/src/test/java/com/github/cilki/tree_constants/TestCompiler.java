@@ -0,0 +1,344 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.tools.Diagnostic;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.Plugin;
+
+/**
+ * Runs the {@link TreeConstantProcessor} on small inputs in a working
+ * directory. Output directories are kept between compilations, so a second
+ * compilation sees what the first one wrote.
+ */
+final class TestCompiler {
+
+	private final Path directory;
+
+	private final Path sourcePath;
+
+	private final Map<String, String> options = new LinkedHashMap<>();
+
+	private final List<Path> classpath = new ArrayList<>();
+
+	private final List<String> classes = new ArrayList<>();
+
+	private final List<Path> sources = new ArrayList<>();
+
+	private boolean sourceRoot;
+
+	private final Map<Plugin, String[]> plugins = new LinkedHashMap<>();
+
+	/**
+	 * @param directory The working directory
+	 */
+	TestCompiler(Path directory) {
+		this.directory = directory;
+		this.sourcePath = directory.resolve("src");
+	}
+
+	/**
+	 * Add a source file.
+	 * 
+	 * @param className The fully qualified name of the file's class
+	 * @param lines     The file content
+	 * @return {@code this}
+	 */
+	TestCompiler source(String className, String... lines) throws IOException {
+		Path file = write(className.replace('.', '/') + ".java", String.join("\n", lines));
+		if (!sources.contains(file))
+			sources.add(file);
+		return this;
+	}
+
+	/**
+	 * Add a resource to the source path.
+	 * 
+	 * @param name    The resource name
+	 * @param content The resource content
+	 * @return {@code this}
+	 */
+	TestCompiler resource(String name, String content) throws IOException {
+		write(name, content);
+		return this;
+	}
+
+	/**
+	 * Set a processor option.
+	 * 
+	 * @param key   The option name
+	 * @param value The option value
+	 * @return {@code this}
+	 */
+	TestCompiler option(String key, String value) {
+		options.put(key, value);
+		return this;
+	}
+
+	/**
+	 * Add a directory of classes to the class path.
+	 * 
+	 * @param path The directory
+	 * @return {@code this}
+	 */
+	TestCompiler classpath(Path path) {
+		classpath.add(path);
+		return this;
+	}
+
+	/**
+	 * Process a class from the class path, which is how Gradle reprocesses
+	 * unchanged classes in an incremental build.
+	 * 
+	 * @param className The class name
+	 * @return {@code this}
+	 */
+	TestCompiler process(String className) {
+		classes.add(className);
+		return this;
+	}
+
+	/**
+	 * Run a javac plugin during the compilation.
+	 * 
+	 * @param plugin    The plugin
+	 * @param arguments The plugin's arguments
+	 * @return {@code this}
+	 */
+	TestCompiler plugin(Plugin plugin, String... arguments) {
+		plugins.put(plugin, arguments);
+		return this;
+	}
+
+	/**
+	 * Add the generated sources directory to the source path, which is how Maven
+	 * compiles generated sources.
+	 * 
+	 * @return {@code this}
+	 */
+	TestCompiler sourceRoot() {
+		sourceRoot = true;
+		return this;
+	}
+
+	/**
+	 * @return The directory that receives class files and resources
+	 */
+	Path classOutput() {
+		return directory.resolve("classes");
+	}
+
+	/**
+	 * @return The directory that receives generated sources
+	 */
+	Path sourceOutput() {
+		return directory.resolve("generated");
+	}
+
+	/**
+	 * Compile the sources with the processor.
+	 * 
+	 * @return The result
+	 */
+	Result compile() throws IOException {
+		Files.createDirectories(classOutput());
+		Files.createDirectories(sourceOutput());
+		Files.createDirectories(sourcePath);
+
+		List<String> args = new ArrayList<>(List.of("-d", classOutput().toString(), "-s", sourceOutput().toString(),
+				"-sourcepath", sourcePath(), "-classpath", classpath(), "-implicit:class"));
+		options.forEach((key, value) -> args.add(value == null ? "-A" + key : "-A" + key + "=" + value));
+
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		var diagnostics = new DiagnosticCollector<JavaFileObject>();
+		var processor = new TreeConstantProcessor();
+		try (StandardJavaFileManager files = compiler.getStandardFileManager(null, null, UTF_8)) {
+			var task = compiler.getTask(null, files, diagnostics, args, classes.isEmpty() ? null : classes,
+					files.getJavaFileObjectsFromPaths(sources));
+			task.setProcessors(List.of(processor));
+			plugins.forEach((plugin, arguments) -> plugin.init((JavacTask) task, arguments));
+			return new Result(task.call(), diagnostics.getDiagnostics(), processor);
+		}
+	}
+
+	private String sourcePath() {
+		if (sourceRoot)
+			return sourcePath + File.pathSeparator + sourceOutput();
+		return sourcePath.toString();
+	}
+
+	private String classpath() {
+		List<String> entries = new ArrayList<>();
+		entries.add(location(TreeConstant.class).toString());
+		for (Path path : classpath)
+			entries.add(path.toString());
+		return String.join(File.pathSeparator, entries);
+	}
+
+	private Path write(String name, String content) throws IOException {
+		Path file = sourcePath.resolve(name);
+		Files.createDirectories(file.getParent());
+		Files.writeString(file, content);
+		return file;
+	}
+
+	/**
+	 * Get the class path entry that contains a class.
+	 * 
+	 * @param type The class
+	 * @return The directory or jar
+	 */
+	static Path location(Class<?> type) {
+		try {
+			return Paths.get(type.getProtectionDomain().getCodeSource().getLocation().toURI());
+		} catch (URISyntaxException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * The outcome of a compilation.
+	 */
+	final class Result {
+
+		final boolean success;
+
+		final List<Diagnostic<? extends JavaFileObject>> diagnostics;
+
+		/**
+		 * The processor instance, which still has its processing environment.
+		 */
+		final TreeConstantProcessor processor;
+
+		private ClassLoader loader;
+
+		private Result(boolean success, List<Diagnostic<? extends JavaFileObject>> diagnostics,
+				TreeConstantProcessor processor) {
+			this.success = success;
+			this.diagnostics = diagnostics;
+			this.processor = processor;
+		}
+
+		/**
+		 * Get the messages of a kind.
+		 * 
+		 * @param kind The diagnostic kind
+		 * @return The messages
+		 */
+		List<String> messages(Kind kind) {
+			return diagnostics.stream().filter(diagnostic -> diagnostic.getKind() == kind)
+					.map(diagnostic -> diagnostic.getMessage(null)).collect(Collectors.toList());
+		}
+
+		/**
+		 * Check whether a generated source file exists.
+		 * 
+		 * @param className The fully qualified class name
+		 * @return Whether the file exists
+		 */
+		boolean hasSource(String className) {
+			return Files.exists(sourceFile(className));
+		}
+
+		/**
+		 * Read a generated source file.
+		 * 
+		 * @param className The fully qualified class name
+		 * @return The source
+		 */
+		String source(String className) throws IOException {
+			return Files.readString(sourceFile(className));
+		}
+
+		private Path sourceFile(String className) {
+			return sourceOutput().resolve(className.replace('.', '/') + ".java");
+		}
+
+		/**
+		 * Load a compiled class.
+		 * 
+		 * @param className The binary class name
+		 * @return The class
+		 */
+		Class<?> load(String className) throws ClassNotFoundException {
+			if (loader == null) {
+				List<URL> urls = new ArrayList<>();
+				try {
+					urls.add(classOutput().toUri().toURL());
+					for (Path path : classpath)
+						urls.add(path.toUri().toURL());
+				} catch (MalformedURLException e) {
+					throw new IllegalStateException(e);
+				}
+				loader = new URLClassLoader(urls.toArray(URL[]::new), TestCompiler.class.getClassLoader());
+			}
+			return Class.forName(className, false, loader);
+		}
+
+		/**
+		 * Read a static field of a compiled class.
+		 * 
+		 * @param className The binary class name
+		 * @param field     The field name
+		 * @return The field's value
+		 */
+		Object get(String className, String field) throws ReflectiveOperationException {
+			return load(className).getField(field).get(null);
+		}
+
+		/**
+		 * Call a public static method of a compiled class.
+		 * 
+		 * @param className The binary class name
+		 * @param name      The method name
+		 * @param types     The parameter types
+		 * @param args      The arguments
+		 * @return The result
+		 */
+		Object call(String className, String name, Class<?>[] types, Object... args)
+				throws ReflectiveOperationException {
+			Method method = load(className).getMethod(name, types);
+			return method.invoke(null, args);
+		}
+	}
+}
@@ -0,0 +1,113 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+
+import javax.tools.Diagnostic.Kind;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TreeBuilderTest {
+
+	@Test
+	@DisplayName("Build nested classes from field names")
+	void test_1(@TempDir Path directory) throws Exception {
+		var result = new TestCompiler(directory).source("test.SettingConstants", //
+				"package test;", //
+				"import com.github.cilki.tree_constants.TreeConstant;", //
+				"class SettingConstants {", //
+				"	@TreeConstant static final String ui_theme = \"ui.theme\";", //
+				"	@TreeConstant static final String ui_font__size = \"ui.font_size\";", //
+				"	@TreeConstant static final int net_proxy_port = 8080;", //
+				"	@TreeConstant static final boolean net_class = true;", //
+				"}").compile();
+		assertTrue(result.success, result.diagnostics::toString);
+
+		assertEquals("ui.theme", result.get("test.SettingConstant$ui", "theme"));
+		assertEquals("ui.font_size", result.get("test.SettingConstant$ui", "font_size"));
+		assertEquals(8080, result.get("test.SettingConstant$net$proxy", "port"));
+		assertEquals(true, result.get("test.SettingConstant$net", "class_"));
+	}
+
+	@Test
+	@DisplayName("Merge fields of several classes into a named tree")
+	void test_2(@TempDir Path directory) throws Exception {
+		var result = new TestCompiler(directory).source("test.A", //
+				"package test;", //
+				"import com.github.cilki.tree_constants.TreeConstant;", //
+				"class A {", //
+				"	@TreeConstant(packageName = \"shared\", name = \"Keys\") static final String a_x = \"x\";", //
+				"}").source("test.B", //
+						"package test;", //
+						"import com.github.cilki.tree_constants.TreeConstant;", //
+						"class B {", //
+						"	@TreeConstant(packageName = \"shared\", name = \"Keys\") static final String a_y = \"y\";", //
+						"}")
+				.compile();
+		assertTrue(result.success, result.diagnostics::toString);
+
+		assertEquals("x", result.get("shared.Keys$a", "x"));
+		assertEquals("y", result.get("shared.Keys$a", "y"));
+	}
+
+	@Test
+	@DisplayName("Report duplicate constants")
+	void test_3(@TempDir Path directory) throws Exception {
+		var result = new TestCompiler(directory).source("test.A", //
+				"package test;", //
+				"import com.github.cilki.tree_constants.TreeConstant;", //
+				"class A {", //
+				"	@TreeConstant(name = \"Keys\") static final String a_x = \"x\";", //
+				"}").source("test.B", //
+						"package test;", //
+						"import com.github.cilki.tree_constants.TreeConstant;", //
+						"class B {", //
+						"	@TreeConstant(name = \"Keys\") static final String a_x = \"y\";", //
+						"}")
+				.compile();
+
+		assertFalse(result.success);
+		assertEquals(1, result.messages(Kind.ERROR).size());
+		assertTrue(result.messages(Kind.ERROR).get(0).contains("test.Keys already contains x"));
+	}
+
+	@Test
+	@DisplayName("Emit fields in sorted order")
+	void test_4(@TempDir Path directory) throws Exception {
+		var result = new TestCompiler(directory).source("test.OrderConstants", //
+				"package test;", //
+				"import com.github.cilki.tree_constants.TreeConstant;", //
+				"class OrderConstants {", //
+				"	@TreeConstant static final int c = 3;", //
+				"	@TreeConstant static final int a = 1;", //
+				"	@TreeConstant static final int b = 2;", //
+				"}").compile();
+		assertTrue(result.success, result.diagnostics::toString);
+
+		String source = result.source("test.OrderConstant");
+		assertTrue(source.indexOf("int a") < source.indexOf("int b"));
+		assertTrue(source.indexOf("int b") < source.indexOf("int c"));
+	}
+}
@@ -0,0 +1,136 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.tools.Diagnostic.Kind;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TreeFileTest {
+
+	private static TreeFile write() {
+		var writer = new TreeFileWriter();
+		writer.add("net.retries", 3);
+		writer.add("net.timeout", 2500L);
+		writer.add("name", "limits");
+		writer.add("cpu.share", 0.5);
+		writer.add("cpu.pinned", true);
+		writer.add("cpu.mode", 'x');
+		writer.add("cpu.weight", 1.5f);
+		return TreeFile.of(ByteBuffer.wrap(writer.toByteArray()));
+	}
+
+	@Test
+	@DisplayName("Read back every value type")
+	void test_1() {
+		var file = write();
+		assertEquals(7, file.size());
+		assertEquals(3, file.getInt(file.find("net.retries")));
+		assertEquals(2500L, file.getLong(file.find("net.timeout")));
+		assertEquals("limits", file.getString(file.find("name")));
+		assertEquals(0.5, file.getDouble(file.find("cpu.share")));
+		assertTrue(file.getBoolean(file.find("cpu.pinned")));
+		assertEquals('x', file.getInt(file.find("cpu.mode")));
+		assertEquals(1.5, file.getDouble(file.find("cpu.weight")));
+		assertEquals(TreeFile.TYPE_CHAR, file.type(file.find("cpu.mode")));
+	}
+
+	@Test
+	@DisplayName("Find only complete paths")
+	void test_2() {
+		var file = write();
+		assertEquals(-1, file.find("net"));
+		assertEquals(-1, file.find("net.retries.x"));
+		assertEquals(-1, file.find("disk.quota"));
+		assertEquals("net.retries", file.path(file.find("net.retries")));
+	}
+
+	@Test
+	@DisplayName("Scan a subtree in path order")
+	void test_3() {
+		var file = write();
+		List<String> paths = new ArrayList<>();
+		file.scan("cpu", entry -> paths.add(file.path(entry)));
+		assertEquals(List.of("cpu.mode", "cpu.pinned", "cpu.share", "cpu.weight"), paths);
+
+		paths.clear();
+		file.scan("", entry -> paths.add(file.path(entry)));
+		assertEquals(7, paths.size());
+	}
+
+	@Test
+	@DisplayName("Reject reads of the wrong type")
+	void test_4() {
+		var file = write();
+		assertThrows(IllegalArgumentException.class, () -> file.getString(file.find("net.retries")));
+		assertThrows(IllegalArgumentException.class, () -> file.getInt(file.find("name")));
+	}
+
+	@Test
+	@DisplayName("Export compile-time constants and warn about the others")
+	void test_5(@TempDir Path directory) throws Exception {
+		var result = new TestCompiler(directory).option(TreeConstantProcessor.OPTION_BINARY, "true")
+				.source("test.LimitConstants", //
+						"package test;", //
+						"import com.github.cilki.tree_constants.TreeConstant;", //
+						"class LimitConstants {", //
+						"	@TreeConstant static final int net_retries = 3;", //
+						"	@TreeConstant static final String user_home = System.getProperty(\"user.home\");", //
+						"}")
+				.compile();
+		assertTrue(result.success, result.diagnostics::toString);
+		assertTrue(result.messages(Kind.WARNING).stream().anyMatch(message -> message.contains("user.home")),
+				result.diagnostics::toString);
+
+		var file = TreeFile.load(result.load("test.LimitConstant").getClassLoader(), "test.LimitConstant");
+		assertEquals(1, file.size());
+		assertEquals(3, file.getInt(file.find("net.retries")));
+		assertEquals(-1, file.find("user.home"));
+	}
+
+	@Test
+	@DisplayName("Find keyword segments by their field names")
+	void test_6(@TempDir Path directory) throws Exception {
+		var result = new TestCompiler(directory).option(TreeConstantProcessor.OPTION_BINARY, "true")
+				.source("test.SystemConstants", //
+						"package test;", //
+						"import com.github.cilki.tree_constants.TreeConstant;", //
+						"class SystemConstants {", //
+						"	@TreeConstant static final String java_class_path = \"java.class.path\";", //
+						"}")
+				.compile();
+		assertTrue(result.success, result.diagnostics::toString);
+		assertEquals("java.class.path", result.get("test.SystemConstant$java$class_", "path"));
+
+		var file = TreeFile.load(result.load("test.SystemConstant").getClassLoader(), "test.SystemConstant");
+		assertEquals("java.class.path", file.getString(file.find("java.class_.path")));
+		assertEquals("java.class_.path", file.path(0));
+		assertEquals(-1, file.find("java.class.path"));
+	}
+}
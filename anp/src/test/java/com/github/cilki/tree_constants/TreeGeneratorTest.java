@@ -0,0 +1,166 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TreeGeneratorTest {
+
+	/**
+	 * Run the command line entry point and capture its error stream.
+	 */
+	private static String run(int status, String... args) throws IOException {
+		var err = new ByteArrayOutputStream();
+		PrintStream stderr = System.err;
+		System.setErr(new PrintStream(err, true, UTF_8));
+		try {
+			assertEquals(status, TreeGenerator.run(args), () -> err.toString(UTF_8));
+		} finally {
+			System.setErr(stderr);
+		}
+		return err.toString(UTF_8);
+	}
+
+	private static String classpath() {
+		return TestCompiler.location(TreeConstant.class).toString();
+	}
+
+	private static Path write(Path file, String... lines) throws IOException {
+		Files.createDirectories(file.getParent());
+		return Files.write(file, String.join("\n", lines).getBytes(UTF_8));
+	}
+
+	private static Path source(Path directory) throws IOException {
+		return write(directory.resolve("src/test/LimitConstants.java"), //
+				"package test;", //
+				"import com.github.cilki.tree_constants.TreeConstant;", //
+				"class LimitConstants {", //
+				"	@TreeConstant static final int net_max = 4;", //
+				"	@TreeConstant static final String net_name = \"eth0\";", //
+				"}");
+	}
+
+	@Test
+	@DisplayName("Generate trees from sources and key files")
+	void test_1(@TempDir Path directory) throws Exception {
+		Path source = source(directory);
+		Path keys = write(directory.resolve("messages.properties"), "greeting.hello=Hello", "greeting.bye=Bye");
+		Path output = directory.resolve("generated");
+
+		run(0, "-s", output.toString(), "-cp", classpath(), "-Atreeconstants.index=true", source.toString(),
+				"test.MessageConstant=" + keys);
+
+		String limit = Files.readString(output.resolve("test/LimitConstant.java"));
+		assertTrue(limit.contains("int max = 4;"), limit);
+		assertTrue(limit.contains("String name = \"eth0\";"), limit);
+		String message = Files.readString(output.resolve("test/MessageConstant.java"));
+		assertTrue(message.contains("hello"), message);
+		assertTrue(message.contains("bye"), message);
+		assertTrue(limit.contains("public static List<String> keys()"), limit);
+	}
+
+	@Test
+	@DisplayName("Read arguments from a file")
+	void test_2(@TempDir Path directory) throws Exception {
+		Path source = source(directory);
+		Path output = directory.resolve("generated");
+		Path arguments = write(directory.resolve("arguments.txt"), //
+				"-s", output.toString(), //
+				"", //
+				"-cp", classpath(), //
+				"  " + source + "  ");
+
+		run(0, "@" + arguments);
+		assertTrue(Files.exists(output.resolve("test/LimitConstant.java")));
+	}
+
+	@Test
+	@DisplayName("Don't rewrite unchanged files")
+	void test_3(@TempDir Path directory) throws Exception {
+		Path source = source(directory);
+		Path output = directory.resolve("generated");
+		run(0, "-s", output.toString(), "-cp", classpath(), source.toString());
+
+		Path file = output.resolve("test/LimitConstant.java");
+		FileTime time = FileTime.fromMillis(1_000_000_000_000L);
+		Files.setLastModifiedTime(file, time);
+
+		run(0, "-s", output.toString(), "-cp", classpath(), source.toString());
+		assertEquals(time, Files.getLastModifiedTime(file));
+	}
+
+	@Test
+	@DisplayName("Fail when a source doesn't attribute")
+	void test_4(@TempDir Path directory) throws Exception {
+		Path source = write(directory.resolve("src/test/LimitConstants.java"), //
+				"package test;", //
+				"import com.github.cilki.tree_constants.TreeConstant;", //
+				"class LimitConstants {", //
+				"	@TreeConstant static final int net_max = MissingConstant.net.max;", //
+				"}");
+		Path output = directory.resolve("generated");
+
+		String err = run(1, "-s", output.toString(), "-cp", classpath(), source.toString());
+		assertTrue(err.contains("MissingConstant"), err);
+		assertFalse(Files.exists(output));
+	}
+
+	@Test
+	@DisplayName("Fail on an invalid parallelism")
+	void test_5(@TempDir Path directory) throws Exception {
+		Path output = directory.resolve("generated");
+		String err = run(1, "-s", output.toString(), "-cp", classpath(), "-Atreeconstants.parallelism=0",
+				source(directory).toString());
+		assertTrue(err.contains("-Atreeconstants.parallelism"), err);
+
+		// The trees are still rendered with the default
+		assertTrue(Files.exists(output.resolve("test/LimitConstant.java")));
+	}
+
+	@Test
+	@DisplayName("Warn about options that need a compilation")
+	void test_6(@TempDir Path directory) throws Exception {
+		String err = run(0, "-s", directory.resolve("generated").toString(), "-cp", classpath(),
+				"-Atreeconstants.merge=true", source(directory).toString());
+		assertTrue(err.contains("-Atreeconstants.merge is not supported"), err);
+	}
+
+	@Test
+	@DisplayName("Reject invalid arguments")
+	void test_7(@TempDir Path directory) throws Exception {
+		String output = directory.resolve("generated").toString();
+		assertTrue(run(2, "-s", output, "-x").contains("Unknown option: -x"));
+		assertTrue(run(2, "-s", output, "--release", "99", "a.java").contains("Unsupported release: 99"));
+		assertTrue(run(2, "-s", output, "keys.properties").contains("Not a source file"));
+		assertTrue(run(2, "a.java").startsWith("Usage:"));
+	}
+}
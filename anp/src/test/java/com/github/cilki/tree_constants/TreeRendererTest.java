@@ -0,0 +1,73 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import javax.tools.Diagnostic.Kind;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TreeRendererTest {
+
+	private static TestCompiler compiler(Path directory, String parallelism) throws IOException {
+		var compiler = new TestCompiler(directory).option(TreeConstantProcessor.OPTION_PARALLELISM, parallelism);
+		for (String name : new String[] { "Limit", "Net", "Disk", "Cpu" })
+			compiler.source("test." + name + "Constants", //
+					"package test;", //
+					"import com.github.cilki.tree_constants.TreeConstant;", //
+					"class " + name + "Constants {", //
+					"	@TreeConstant static final int a_b = 1;", //
+					"	@TreeConstant static final String a_c = \"" + name + "\";", //
+					"}");
+		return compiler;
+	}
+
+	@Test
+	@DisplayName("Render trees in parallel")
+	void test_1(@TempDir Path directory) throws Exception {
+		var serial = compiler(directory.resolve("serial"), "1").compile();
+		var parallel = compiler(directory.resolve("parallel"), "4").compile();
+		assertTrue(serial.success, serial.diagnostics::toString);
+		assertTrue(parallel.success, parallel.diagnostics::toString);
+
+		for (String name : new String[] { "Limit", "Net", "Disk", "Cpu" }) {
+			assertEquals(serial.source("test." + name + "Constant"), parallel.source("test." + name + "Constant"));
+			assertEquals(name, parallel.get("test." + name + "Constant$a", "c"));
+		}
+	}
+
+	@Test
+	@DisplayName("Reject an invalid parallelism")
+	void test_2(@TempDir Path directory) throws Exception {
+		var result = compiler(directory, "many").compile();
+		assertFalse(result.success);
+		assertEquals(1, result.messages(Kind.ERROR).size(), result.diagnostics::toString);
+		assertTrue(result.messages(Kind.ERROR).get(0).contains(TreeConstantProcessor.OPTION_PARALLELISM));
+
+		// The trees are still rendered with the default
+		assertTrue(result.hasSource("test.NetConstant"));
+	}
+}
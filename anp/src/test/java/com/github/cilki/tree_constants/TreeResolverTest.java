@@ -0,0 +1,107 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import javax.tools.Diagnostic.Kind;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TreeResolverTest {
+
+	private static TestCompiler compiler(Path directory, String... members) throws IOException {
+		var lines = new String[members.length + 4];
+		lines[0] = "package test;";
+		lines[1] = "import com.github.cilki.tree_constants.TreeConstant;";
+		lines[2] = "class LimitConstants {";
+		System.arraycopy(members, 0, lines, 3, members.length);
+		lines[lines.length - 1] = "}";
+		return new TestCompiler(directory).source("test.LimitConstants", lines);
+	}
+
+	@Test
+	@DisplayName("Reference fields that are not compile-time constants")
+	void test_1(@TempDir Path directory) throws Exception {
+		var result = compiler(directory, //
+				"	@TreeConstant static final int net_port = 80;", //
+				"	@TreeConstant static final String net_host = String.valueOf(\"local\");").compile();
+		assertTrue(result.success, result.diagnostics::toString);
+
+		assertEquals("local", result.get("test.LimitConstant$net", "host"));
+		String source = result.source("test.LimitConstant");
+		assertTrue(source.contains("String host = LimitConstants.net_host;"), source);
+		assertTrue(source.contains("int port = 80;"), source);
+	}
+
+	@Test
+	@DisplayName("Reject non-constant leaves in strict mode")
+	void test_2(@TempDir Path directory) throws Exception {
+		var result = compiler(directory, //
+				"	@TreeConstant static final int net_port = 80;", //
+				"	@TreeConstant static final String net_host = String.valueOf(\"local\");")
+				.option(TreeConstantProcessor.OPTION_STRICT, "true").compile();
+		assertFalse(result.success);
+
+		var errors = result.messages(Kind.ERROR);
+		assertEquals(1, errors.size(), result.diagnostics::toString);
+		assertEquals("Tree constant net_host is not a compile-time constant, so reading it will load "
+				+ "test.LimitConstants", errors.get(0));
+	}
+
+	@Test
+	@DisplayName("Allow lazy leaves in strict mode")
+	void test_3(@TempDir Path directory) throws Exception {
+		var result = compiler(directory, //
+				"	@TreeConstant static final int net_port = 80;", //
+				"	@TreeConstant(lazy = true)", //
+				"	static String net_host() {", //
+				"		return \"local\";", //
+				"	}").option(TreeConstantProcessor.OPTION_STRICT, "true").compile();
+		assertTrue(result.success, result.diagnostics::toString);
+		assertTrue(result.messages(Kind.ERROR).isEmpty());
+	}
+
+	@Test
+	@DisplayName("Reject non-constant fields that can't be referenced")
+	void test_4(@TempDir Path directory) throws Exception {
+		var result = compiler(directory, //
+				"	@TreeConstant private static final String net_host = String.valueOf(\"local\");", //
+				"	@TreeConstant final String net_name = String.valueOf(\"eth0\");", //
+				"	@TreeConstant private static final int net_port = 80;").compile();
+		assertFalse(result.success);
+
+		var errors = result.messages(Kind.ERROR);
+		assertTrue(errors.contains(
+				"Tree constant net_host is not a compile-time constant and must be a static, non-private field"),
+				result.diagnostics::toString);
+		assertTrue(errors.contains(
+				"Tree constant net_name is not a compile-time constant and must be a static, non-private field"),
+				result.diagnostics::toString);
+
+		// Private compile-time constants are copied, so they don't need to be visible
+		assertTrue(errors.stream().noneMatch(error -> error.contains("net_port")), result.diagnostics::toString);
+	}
+}
@@ -0,0 +1,195 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import javax.tools.Diagnostic.Kind;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class UsageTest {
+
+	/**
+	 * Compile the tree that consumers read.
+	 */
+	private static Path tree(Path directory) throws IOException {
+		var compiler = new TestCompiler(directory.resolve("tree")).option(TreeConstantProcessor.OPTION_INDEX, "true")
+				.source("test.LimitConstants", //
+				"package test;", //
+				"import com.github.cilki.tree_constants.TreeConstant;", //
+				"class LimitConstants {", //
+				"	@TreeConstant static final int net_retries = 3;", //
+				"	@TreeConstant static final int net_timeout = 10;", //
+				"	@TreeConstant static final int disk_quota = 5;", //
+				"}");
+		var result = compiler.compile();
+		assertTrue(result.success, result.diagnostics::toString);
+		return compiler.classOutput();
+	}
+
+	private static String[] consumer(String name, String... leaves) {
+		String[] lines = new String[leaves.length + 3];
+		lines[0] = "package app;";
+		lines[1] = "class " + name + " {";
+		for (int i = 0; i < leaves.length; i++)
+			lines[i + 2] = "	int " + leaves[i].replace('.', '_') + " = test.LimitConstant." + leaves[i] + ";";
+		lines[lines.length - 1] = "}";
+		return lines;
+	}
+
+	/**
+	 * Compile consumers with the usage plugin.
+	 */
+	private static void compile(Path directory, Path tree, Path index, String... sources) throws IOException {
+		var compiler = new TestCompiler(directory.resolve("app")).classpath(tree)
+				.plugin(new TreeConstantUsagePlugin(), index.toString(), "test.");
+		for (int i = 0; i < sources.length; i += 2)
+			compiler.source("app." + sources[i], consumer(sources[i], sources[i + 1].split(",")));
+
+		var result = compiler.compile();
+		assertTrue(result.success, result.diagnostics::toString);
+	}
+
+	@Test
+	@DisplayName("Record references to tree constants")
+	void test_1(@TempDir Path directory) throws Exception {
+		Path index = directory.resolve("usage.txt");
+		compile(directory, tree(directory), index, "A", "net.retries", "B", "disk.quota");
+
+		assertEquals(Set.of("test.LimitConstant#net.retries", "test.LimitConstant#disk.quota"),
+				TreeConstantUsagePlugin.read(index));
+	}
+
+	@Test
+	@DisplayName("Replace the references of recompiled and deleted files")
+	void test_2(@TempDir Path directory) throws Exception {
+		Path tree = tree(directory);
+		Path index = directory.resolve("usage.txt");
+		compile(directory, tree, index, "A", "net.retries", "B", "disk.quota", "C", "net.timeout");
+
+		// Only A is compiled again
+		Files.delete(directory.resolve("app/src/app/C.java"));
+		compile(directory, tree, index, "A", "net.timeout");
+
+		assertEquals(Set.of("test.LimitConstant#net.timeout", "test.LimitConstant#disk.quota"),
+				TreeConstantUsagePlugin.read(index));
+	}
+
+	/**
+	 * Build the tree with a usage index.
+	 */
+	private static TestCompiler producer(Path directory, Path index) throws IOException {
+		return new TestCompiler(directory).option(TreeConstantProcessor.OPTION_USAGE, index.toString())
+				.source("test.LimitConstants", //
+						"package test;", //
+						"import com.github.cilki.tree_constants.TreeConstant;", //
+						"class LimitConstants {", //
+						"	@TreeConstant static final int net_retries = 3;", //
+						"	@TreeConstant static final int disk_quota = 5;", //
+						"}");
+	}
+
+	@Test
+	@DisplayName("Report unused constants")
+	void test_3(@TempDir Path directory) throws Exception {
+		Path index = directory.resolve("usage.txt");
+		compile(directory, tree(directory), index, "A", "net.retries");
+
+		var result = producer(directory.resolve("report"), index).compile();
+		assertTrue(result.success, result.diagnostics::toString);
+		assertTrue(result.messages(Kind.NOTE).stream().anyMatch(message -> message
+				.startsWith("Tree test.LimitConstant has 1 unused constants:") && message.endsWith("disk.quota")),
+				result.diagnostics::toString);
+		assertEquals(5, result.get("test.LimitConstant$disk", "quota"));
+	}
+
+	@Test
+	@DisplayName("Prune unused constants")
+	void test_4(@TempDir Path directory) throws Exception {
+		Path index = directory.resolve("usage.txt");
+		compile(directory, tree(directory), index, "A", "net.retries");
+
+		var result = producer(directory.resolve("prune"), index).option(TreeConstantProcessor.OPTION_PRUNE, "true")
+				.compile();
+		assertTrue(result.success, result.diagnostics::toString);
+		assertTrue(result.messages(Kind.NOTE).contains("Pruned 1 of 2 constants from tree test.LimitConstant"),
+				result.diagnostics::toString);
+		assertEquals(3, result.get("test.LimitConstant$net", "retries"));
+		assertThrows(ClassNotFoundException.class, () -> result.load("test.LimitConstant$disk"));
+	}
+
+	/**
+	 * Compile a consumer that reads the disk subtree through its index.
+	 */
+	private static void compileSubtreeReader(Path directory, Path index) throws IOException {
+		var result = new TestCompiler(directory.resolve("app")).classpath(tree(directory))
+				.plugin(new TreeConstantUsagePlugin(), index.toString(), "test.").source("app.A", //
+						"package app;", //
+						"class A {", //
+						"	Object disk = test.LimitConstant.disk.values();", //
+						"}")
+				.compile();
+		assertTrue(result.success, result.diagnostics::toString);
+	}
+
+	@Test
+	@DisplayName("Keep subtrees that are read as a whole")
+	void test_5(@TempDir Path directory) throws Exception {
+		Path index = directory.resolve("usage.txt");
+		compileSubtreeReader(directory, index);
+		assertEquals(Set.of("test.LimitConstant#disk.values"), TreeConstantUsagePlugin.read(index));
+
+		var result = producer(directory.resolve("prune"), index).option(TreeConstantProcessor.OPTION_INDEX, "true")
+				.option(TreeConstantProcessor.OPTION_PRUNE, "true").compile();
+		assertTrue(result.success, result.diagnostics::toString);
+		assertTrue(result.messages(Kind.NOTE).contains("Pruned 1 of 2 constants from tree test.LimitConstant"),
+				result.diagnostics::toString);
+		assertEquals(1, result.messages(Kind.WARNING).size(), result.diagnostics::toString);
+		assertTrue(result.messages(Kind.WARNING).get(0).contains("values()"));
+
+		assertEquals(5, result.get("test.LimitConstant$disk", "quota"));
+		assertThrows(ClassNotFoundException.class, () -> result.load("test.LimitConstant$net"));
+	}
+
+	@Test
+	@DisplayName("Don't prune trees that are exported to a tree file")
+	void test_6(@TempDir Path directory) throws Exception {
+		Path index = directory.resolve("usage.txt");
+		compileSubtreeReader(directory, index);
+
+		var result = producer(directory.resolve("binary"), index).option(TreeConstantProcessor.OPTION_BINARY, "true")
+				.option(TreeConstantProcessor.OPTION_PRUNE, "true").compile();
+		assertTrue(result.success, result.diagnostics::toString);
+		assertTrue(result.messages(Kind.WARNING).stream().anyMatch(message -> message.startsWith(
+				"-Atreeconstants.prune is ignored because -Atreeconstants.binary")), result.diagnostics::toString);
+		assertTrue(result.messages(Kind.NOTE).stream().anyMatch(message -> message
+				.startsWith("Tree test.LimitConstant has 1 unused constants:") && message.endsWith("net.retries")),
+				result.diagnostics::toString);
+		assertEquals(3, result.get("test.LimitConstant$net", "retries"));
+	}
+}
@@ -18,19 +18,22 @@
 package com.github.cilki.tree_constants;
 
 import static java.lang.annotation.ElementType.FIELD;
-import static java.lang.annotation.RetentionPolicy.SOURCE;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.CLASS;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.Target;
 
 /**
- * Indicates the target field should be transformed into a tree constant.
+ * Indicates the target field should be transformed into a tree constant. A
+ * static method with no parameters can also become a tree constant if it's
+ * {@link #lazy()}.
  * 
  * @author cilki
  * @since 1.0.0
  */
-@Target(FIELD)
-@Retention(SOURCE)
+@Target({ FIELD, METHOD })
+@Retention(CLASS)
 public @interface TreeConstant {
 
 	/**
@@ -47,4 +50,14 @@ public @interface TreeConstant {
 	 * @return The root name
 	 */
 	public String name() default "";
+
+	/**
+	 * Whether the leaf should be computed on first access. A lazy leaf that is
+	 * not a compile-time constant becomes an accessor method backed by its own
+	 * holder class, so its value is computed at most once and reading other
+	 * leaves does not compute it. Compile-time constants are always inlined.
+	 * 
+	 * @return Whether the leaf is lazy
+	 */
+	public boolean lazy() default false;
 }
@@ -0,0 +1,64 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.CLASS;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+/**
+ * Indicates that a tree should be built from the keys of one or more resource
+ * files. Each key becomes a leaf whose value is the key itself, so
+ * {@code ui.view.main} in {@code messages.properties} can be referred to as
+ * {@code MessageConstant.ui.view.main}.
+ * <p>
+ * Files ending in {@code .json} are read as JSON, where the path of every
+ * non-object value is a key. All other files are read as {@code .properties}.
+ * Resource names are relative to the root of the source path or class path.
+ * 
+ * @author cilki
+ * @since 1.0.0
+ */
+@Target(TYPE)
+@Retention(CLASS)
+public @interface TreeConstantSource {
+
+	/**
+	 * The resource files that contain the keys.
+	 * 
+	 * @return The resource names
+	 */
+	public String[] value();
+
+	/**
+	 * The package for the tree's root type.
+	 * 
+	 * @return The package name
+	 */
+	public String packageName() default "";
+
+	/**
+	 * A name for the tree's root type. Defaults to the annotated class name +
+	 * "Constant".
+	 * 
+	 * @return The root name
+	 */
+	public String name() default "";
+}
@@ -0,0 +1,484 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.function.IntConsumer;
+
+/**
+ * A read-only view of a constant tree that was exported by the annotation
+ * processor with {@code -Atreeconstants.binary=true}. Lookups and prefix scans
+ * work directly on the underlying buffer, which is normally a memory-mapped
+ * file that can be shared by every JVM on a host.
+ * <p>
+ * The file consists of a header followed by these sections:
+ * <ol>
+ * <li>The offsets of each segment name</li>
+ * <li>The UTF-8 bytes of every distinct path segment, sorted</li>
+ * <li>One fixed-size entry per leaf sorted by path: the offset of the path, a
+ * type tag and the value (or the location of a string value)</li>
+ * <li>The path of each entry as a sequence of segment ids</li>
+ * <li>The UTF-8 bytes of every string value</li>
+ * </ol>
+ * Since segment ids follow the sorted order of the segment names, paths can be
+ * compared by comparing ids. All values are big-endian.
+ * <p>
+ * Only leaves with compile-time constant values are exported. Other leaves are
+ * only known when their class is initialized, so they can't be found in the
+ * file. The processor warns about every leaf that it leaves out.
+ * <p>
+ * Paths are made of the same names as the generated classes and fields, so a
+ * segment that is a Java keyword has an underscore appended. For example, the
+ * leaf {@code SystemConstant.java.class_.path} is found with
+ * {@code find("java.class_.path")}, not {@code find("java.class.path")}.
+ * Resource keys from {@code TreeConstantSource} have characters that can't
+ * appear in a Java name replaced with underscores in the same way.
+ * <p>
+ * Instances are immutable and safe to share between threads.
+ * 
+ * @author cilki
+ * @since 1.0.0
+ */
+public final class TreeFile {
+
+	/**
+	 * The first four bytes of every tree file, which are {@code TCBT} in ASCII.
+	 */
+	public static final int MAGIC = 0x54434254;
+
+	/**
+	 * The version of the file format, which follows the magic number. Readers
+	 * reject files of any other version.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * The location of tree files within a jar.
+	 */
+	public static final String RESOURCE_DIRECTORY = "META-INF/tree-constants/";
+
+	/**
+	 * The size of the header in bytes.
+	 */
+	public static final int HEADER_SIZE = 40;
+
+	/**
+	 * The size of each leaf's entry in bytes.
+	 */
+	public static final int ENTRY_SIZE = 16;
+
+	/**
+	 * The type tag of {@code String} values. The other tags are the JVM
+	 * descriptors of the primitive types.
+	 */
+	public static final byte TYPE_STRING = 'T';
+	public static final byte TYPE_INT = 'I';
+	public static final byte TYPE_LONG = 'J';
+	public static final byte TYPE_BOOLEAN = 'Z';
+	public static final byte TYPE_CHAR = 'C';
+	public static final byte TYPE_DOUBLE = 'D';
+	public static final byte TYPE_FLOAT = 'F';
+	public static final byte TYPE_SHORT = 'S';
+	public static final byte TYPE_BYTE = 'B';
+
+	private final ByteBuffer buffer;
+
+	private final int segmentCount;
+	private final int entryCount;
+	private final int segmentOffsets;
+	private final int segmentData;
+	private final int entries;
+	private final int paths;
+	private final int strings;
+
+	private TreeFile(ByteBuffer buffer) {
+		this.buffer = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+
+		if (this.buffer.getInt(0) != MAGIC)
+			throw new IllegalArgumentException("Not a tree file");
+		if (this.buffer.getShort(4) != VERSION)
+			throw new IllegalArgumentException("Unsupported tree file version: " + this.buffer.getShort(4));
+
+		this.segmentCount = this.buffer.getInt(8);
+		this.entryCount = this.buffer.getInt(12);
+		this.segmentOffsets = this.buffer.getInt(16);
+		this.segmentData = this.buffer.getInt(20);
+		this.entries = this.buffer.getInt(24);
+		this.paths = this.buffer.getInt(28);
+		this.strings = this.buffer.getInt(32);
+	}
+
+	/**
+	 * Read a tree file from the given buffer without copying it.
+	 * 
+	 * @param buffer The file contents
+	 * @return The tree file
+	 */
+	public static TreeFile of(ByteBuffer buffer) {
+		return new TreeFile(buffer);
+	}
+
+	/**
+	 * Memory-map a tree file.
+	 * 
+	 * @param file The file
+	 * @return The tree file
+	 * @throws IOException If the file could not be mapped
+	 */
+	public static TreeFile open(Path file) throws IOException {
+		try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			// The mapping remains valid after the channel is closed
+			return new TreeFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Load the tree file of a root class from the classpath. The resource is
+	 * memory-mapped if it is a plain file, otherwise it is read into a direct
+	 * buffer.
+	 * 
+	 * @param loader The class loader that contains the resource
+	 * @param root   The fully qualified name of the root class
+	 * @return The tree file
+	 * @throws IOException If the resource could not be read
+	 */
+	public static TreeFile load(ClassLoader loader, String root) throws IOException {
+		URL url = loader.getResource(RESOURCE_DIRECTORY + root + ".bin");
+		if (url == null)
+			throw new IOException("No tree file for: " + root);
+
+		if ("file".equals(url.getProtocol())) {
+			try {
+				return open(Paths.get(url.toURI()));
+			} catch (URISyntaxException e) {
+				throw new IOException(e);
+			}
+		}
+
+		try (InputStream in = url.openStream()) {
+			byte[] content = in.readAllBytes();
+			return new TreeFile(ByteBuffer.allocateDirect(content.length).put(content).flip());
+		}
+	}
+
+	/**
+	 * @return The number of leaves in the tree
+	 */
+	public int size() {
+		return entryCount;
+	}
+
+	/**
+	 * Find a leaf by its dot separated path. Keyword segments must be written
+	 * with their trailing underscore, like {@code "java.class_.path"}.
+	 * 
+	 * @param path The path
+	 * @return The leaf's entry index or {@code -1} if there is no such leaf or
+	 *         its value is not a compile-time constant
+	 */
+	public int find(String path) {
+		int[] query = resolve(path);
+		if (query == null)
+			return -1;
+
+		int entry = lowerBound(query);
+		if (entry < entryCount && compare(entry, query, false) == 0)
+			return entry;
+		return -1;
+	}
+
+	/**
+	 * Visit every leaf whose path begins with the given segments in path order.
+	 * 
+	 * @param prefix  The dot separated path of a subtree (empty for the entire
+	 *                tree)
+	 * @param visitor Receives the entry index of each leaf
+	 */
+	public void scan(String prefix, IntConsumer visitor) {
+		int[] query = prefix.isEmpty() ? new int[0] : resolve(prefix);
+		if (query == null)
+			return;
+
+		for (int entry = lowerBound(query); entry < entryCount && compare(entry, query, true) == 0; entry++)
+			visitor.accept(entry);
+	}
+
+	/**
+	 * Get the dot separated path of an entry.
+	 * 
+	 * @param entry The entry index
+	 * @return The path
+	 */
+	public String path(int entry) {
+		int path = paths + buffer.getInt(entries + entry * ENTRY_SIZE);
+		int depth = buffer.getInt(path);
+
+		var builder = new StringBuilder();
+		for (int i = 0; i < depth; i++) {
+			if (i > 0)
+				builder.append('.');
+			builder.append(decode(segmentData + segmentStart(buffer.getInt(path + 4 + 4 * i)),
+					segmentLength(buffer.getInt(path + 4 + 4 * i))));
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Get the type of an entry's value.
+	 * 
+	 * @param entry The entry index
+	 * @return One of the {@code TYPE_} constants
+	 */
+	public byte type(int entry) {
+		return buffer.get(entries + entry * ENTRY_SIZE + 4);
+	}
+
+	/**
+	 * Get the value of a {@link #TYPE_STRING} entry.
+	 * 
+	 * @param entry The entry index
+	 * @return The value
+	 * @throws IllegalArgumentException If the entry has another type
+	 */
+	public String getString(int entry) {
+		check(entry, TYPE_STRING);
+		long payload = payload(entry);
+		return decode(strings + (int) (payload >>> 32), (int) payload);
+	}
+
+	/**
+	 * Get the value of a {@link #TYPE_INT}, {@link #TYPE_CHAR},
+	 * {@link #TYPE_SHORT} or {@link #TYPE_BYTE} entry.
+	 * 
+	 * @param entry The entry index
+	 * @return The value
+	 * @throws IllegalArgumentException If the entry has another type
+	 */
+	public int getInt(int entry) {
+		switch (type(entry)) {
+		case TYPE_INT:
+		case TYPE_CHAR:
+		case TYPE_SHORT:
+		case TYPE_BYTE:
+			return (int) payload(entry);
+		default:
+			throw new IllegalArgumentException("Entry " + entry + " is not an integer");
+		}
+	}
+
+	/**
+	 * Get the value of a {@link #TYPE_LONG} entry.
+	 * 
+	 * @param entry The entry index
+	 * @return The value
+	 * @throws IllegalArgumentException If the entry has another type
+	 */
+	public long getLong(int entry) {
+		check(entry, TYPE_LONG);
+		return payload(entry);
+	}
+
+	/**
+	 * Get the value of a {@link #TYPE_DOUBLE} or {@link #TYPE_FLOAT} entry.
+	 * 
+	 * @param entry The entry index
+	 * @return The value
+	 * @throws IllegalArgumentException If the entry has another type
+	 */
+	public double getDouble(int entry) {
+		switch (type(entry)) {
+		case TYPE_DOUBLE:
+		case TYPE_FLOAT:
+			return Double.longBitsToDouble(payload(entry));
+		default:
+			throw new IllegalArgumentException("Entry " + entry + " is not a floating point number");
+		}
+	}
+
+	/**
+	 * Get the value of a {@link #TYPE_BOOLEAN} entry.
+	 * 
+	 * @param entry The entry index
+	 * @return The value
+	 * @throws IllegalArgumentException If the entry has another type
+	 */
+	public boolean getBoolean(int entry) {
+		check(entry, TYPE_BOOLEAN);
+		return payload(entry) != 0;
+	}
+
+	/**
+	 * Get the value of an entry as the same boxed type that the leaf was declared
+	 * with.
+	 * 
+	 * @param entry The entry index
+	 * @return The value
+	 */
+	public Object getValue(int entry) {
+		switch (type(entry)) {
+		case TYPE_STRING:
+			return getString(entry);
+		case TYPE_INT:
+			return getInt(entry);
+		case TYPE_LONG:
+			return getLong(entry);
+		case TYPE_BOOLEAN:
+			return getBoolean(entry);
+		case TYPE_CHAR:
+			return (char) getInt(entry);
+		case TYPE_DOUBLE:
+			return getDouble(entry);
+		case TYPE_FLOAT:
+			return (float) getDouble(entry);
+		case TYPE_SHORT:
+			return (short) getInt(entry);
+		case TYPE_BYTE:
+			return (byte) getInt(entry);
+		default:
+			throw new IllegalStateException("Unknown type: " + type(entry));
+		}
+	}
+
+	private void check(int entry, byte type) {
+		if (type(entry) != type)
+			throw new IllegalArgumentException("Entry " + entry + " has type " + (char) type(entry));
+	}
+
+	private long payload(int entry) {
+		return buffer.getLong(entries + entry * ENTRY_SIZE + 8);
+	}
+
+	private int segmentStart(int id) {
+		return buffer.getInt(segmentOffsets + 4 * id);
+	}
+
+	private int segmentLength(int id) {
+		return buffer.getInt(segmentOffsets + 4 * (id + 1)) - segmentStart(id);
+	}
+
+	/**
+	 * Convert a dot separated path into segment ids.
+	 * 
+	 * @param path The path
+	 * @return The segment ids or {@code null} if a segment does not exist
+	 */
+	private int[] resolve(String path) {
+		int depth = 1;
+		for (int i = 0; i < path.length(); i++)
+			if (path.charAt(i) == '.')
+				depth++;
+
+		int[] ids = new int[depth];
+		for (int i = 0, start = 0; i < depth; i++) {
+			int end = path.indexOf('.', start);
+			if (end == -1)
+				end = path.length();
+
+			ids[i] = findSegment(path.substring(start, end).getBytes(UTF_8));
+			if (ids[i] < 0)
+				return null;
+			start = end + 1;
+		}
+		return ids;
+	}
+
+	/**
+	 * Binary search the segment table.
+	 * 
+	 * @param segment The UTF-8 segment name
+	 * @return The segment's id or {@code -1}
+	 */
+	private int findSegment(byte[] segment) {
+		int low = 0;
+		int high = segmentCount - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int start = segmentData + segmentStart(mid);
+			int length = segmentLength(mid);
+
+			int cmp = 0;
+			for (int i = 0; i < Math.min(length, segment.length) && cmp == 0; i++)
+				cmp = Integer.compare(buffer.get(start + i) & 0xFF, segment[i] & 0xFF);
+			if (cmp == 0)
+				cmp = Integer.compare(length, segment.length);
+
+			if (cmp < 0)
+				low = mid + 1;
+			else if (cmp > 0)
+				high = mid - 1;
+			else
+				return mid;
+		}
+		return -1;
+	}
+
+	/**
+	 * Find the first entry whose path is not less than the query.
+	 */
+	private int lowerBound(int[] query) {
+		int low = 0;
+		int high = entryCount;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (compare(mid, query, false) < 0)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	/**
+	 * Compare an entry's path with a query.
+	 * 
+	 * @param entry  The entry index
+	 * @param query  The query's segment ids
+	 * @param prefix Whether an entry that begins with the query is equal to it
+	 * @return The comparison result
+	 */
+	private int compare(int entry, int[] query, boolean prefix) {
+		int path = paths + buffer.getInt(entries + entry * ENTRY_SIZE);
+		int depth = buffer.getInt(path);
+
+		for (int i = 0; i < Math.min(depth, query.length); i++) {
+			int cmp = Integer.compare(buffer.getInt(path + 4 + 4 * i), query[i]);
+			if (cmp != 0)
+				return cmp;
+		}
+		if (prefix && depth >= query.length)
+			return 0;
+		return Integer.compare(depth, query.length);
+	}
+
+	private String decode(int offset, int length) {
+		byte[] bytes = new byte[length];
+		buffer.duplicate().position(offset).get(bytes);
+		return new String(bytes, UTF_8);
+	}
+}
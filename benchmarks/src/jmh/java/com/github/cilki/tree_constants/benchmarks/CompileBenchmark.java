@@ -0,0 +1,54 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import com.github.cilki.tree_constants.TreeConstantProcessor;
+
+/**
+ * Measures a complete compilation of the synthetic input with and without the
+ * annotation processor. The difference is the cost the processor adds to a
+ * build, including compiling the generated tree.
+ * 
+ * @author cilki
+ * @since 1.0.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CompileBenchmark extends TreeShape {
+
+	@Benchmark
+	public long withProcessor() {
+		var files = Javac.newFileManager();
+		Javac.compile(sources, new TreeConstantProcessor(), false, files);
+		return files.writtenBytes;
+	}
+
+	@Benchmark
+	public long withoutProcessor() {
+		var files = Javac.newFileManager();
+		Javac.compile(sources, null, false, files);
+		return files.writtenBytes;
+	}
+}
@@ -0,0 +1,112 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants.benchmarks;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URI;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+
+/**
+ * A file manager that keeps all compiler output in memory.
+ * 
+ * @author cilki
+ * @since 1.0.0
+ */
+final class InMemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+	/**
+	 * The total size of all output files.
+	 */
+	long writtenBytes;
+
+	/**
+	 * The number of generated source files.
+	 */
+	int sourceFiles;
+
+	InMemoryFileManager(StandardJavaFileManager fileManager) {
+		super(fileManager);
+	}
+
+	@Override
+	public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+			FileObject sibling) {
+		if (kind == JavaFileObject.Kind.SOURCE)
+			sourceFiles++;
+
+		return new Output(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind);
+	}
+
+	@Override
+	public FileObject getFileForOutput(Location location, String packageName, String relativeName,
+			FileObject sibling) {
+		return new Output(URI.create("mem:///" + packageName.replace('.', '/') + "/" + relativeName),
+				JavaFileObject.Kind.OTHER);
+	}
+
+	@Override
+	public boolean isSameFile(FileObject a, FileObject b) {
+		if (a instanceof Output || b instanceof Output)
+			return a.toUri().equals(b.toUri());
+
+		return super.isSameFile(a, b);
+	}
+
+	/**
+	 * An output file that is retained so javac can read back generated sources.
+	 */
+	private final class Output extends SimpleJavaFileObject {
+
+		private byte[] content = new byte[0];
+
+		Output(URI uri, Kind kind) {
+			super(uri, kind);
+		}
+
+		@Override
+		public OutputStream openOutputStream() {
+			return new ByteArrayOutputStream() {
+				@Override
+				public void close() {
+					content = toByteArray();
+					writtenBytes += content.length;
+				}
+			};
+		}
+
+		@Override
+		public Writer openWriter() {
+			return new OutputStreamWriter(openOutputStream(), UTF_8);
+		}
+
+		@Override
+		public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+			return new String(content, UTF_8);
+		}
+	}
+}
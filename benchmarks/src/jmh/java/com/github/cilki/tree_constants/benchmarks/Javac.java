@@ -0,0 +1,71 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.processing.Processor;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.ToolProvider;
+
+/**
+ * Runs the system Java compiler in-process.
+ * 
+ * @author cilki
+ * @since 1.0.0
+ */
+final class Javac {
+
+	private static final JavaCompiler COMPILER = ToolProvider.getSystemJavaCompiler();
+
+	/**
+	 * Compile the given sources entirely in memory.
+	 * 
+	 * @param sources   The input sources
+	 * @param processor The annotation processor to run or {@code null} to disable
+	 *                  annotation processing
+	 * @param procOnly  Whether to stop after annotation processing
+	 * @param files     Receives all output
+	 * @param extra     Additional compiler options, like {@code -A} options for
+	 *                  the processor
+	 */
+	static void compile(List<JavaFileObject> sources, Processor processor, boolean procOnly,
+			InMemoryFileManager files, String... extra) {
+		List<String> options = new ArrayList<>();
+		options.add("-classpath");
+		options.add(System.getProperty("java.class.path"));
+		options.add("-proc:" + (processor == null ? "none" : procOnly ? "only" : "full"));
+		options.addAll(List.of(extra));
+
+		JavaCompiler.CompilationTask task = COMPILER.getTask(null, files, null, options, null, sources);
+		if (processor != null)
+			task.setProcessors(List.of(processor));
+
+		if (!task.call())
+			throw new IllegalStateException("Compilation failed");
+	}
+
+	static InMemoryFileManager newFileManager() {
+		return new InMemoryFileManager(COMPILER.getStandardFileManager(null, null, null));
+	}
+
+	private Javac() {
+	}
+}
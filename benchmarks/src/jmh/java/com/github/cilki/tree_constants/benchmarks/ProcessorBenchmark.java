@@ -0,0 +1,76 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+
+import com.github.cilki.tree_constants.TreeConstantProcessor;
+
+/**
+ * Measures the annotation processor alone by stopping javac after annotation
+ * processing.
+ * <p>
+ * If the {@code treeconstants.benchmarks.stats} system property names a
+ * directory, the processor writes its {@code -Atreeconstants.stats} report for
+ * each parameter combination there. The report breaks the time down by phase.
+ * Every invocation rewrites it, so it describes the last invocation of the
+ * trial. Recording the phases adds a little overhead to the measured time.
+ * 
+ * @author cilki
+ * @since 1.0.0
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ProcessorBenchmark extends TreeShape {
+
+	/**
+	 * The processor options of every invocation.
+	 */
+	private String[] options = {};
+
+	@Setup(Level.Trial)
+	public void report() throws IOException {
+		String directory = System.getProperty("treeconstants.benchmarks.stats");
+		if (directory == null)
+			return;
+
+		// The processor requires an absolute report path
+		Path report = Paths.get(directory).toAbsolutePath().resolve(
+				String.format("%d-%d-%d-%s-%b.json", fields, depth, fanout, valueType, javadoc));
+		Files.createDirectories(report.getParent());
+		options = new String[] { "-Atreeconstants.stats=" + report };
+	}
+
+	@Benchmark
+	public int process() {
+		var files = Javac.newFileManager();
+		Javac.compile(sources, new TreeConstantProcessor(), true, files, options);
+		return files.sourceFiles;
+	}
+}
@@ -0,0 +1,128 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants.benchmarks;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+
+/**
+ * Generates input classes whose {@code @TreeConstant} fields form a single tree
+ * of the requested size and shape.
+ * 
+ * @author cilki
+ * @since 1.0.0
+ */
+final class SyntheticTree {
+
+	/**
+	 * The package of the input classes and the generated tree.
+	 */
+	static final String PACKAGE = "bench";
+
+	/**
+	 * The name of the generated tree.
+	 */
+	static final String ROOT = "BenchConstant";
+
+	/**
+	 * The maximum number of fields per input class. Spreading the fields across
+	 * classes keeps each one well within the constant pool limit.
+	 */
+	private static final int FIELDS_PER_CLASS = 2000;
+
+	/**
+	 * Generate the input classes.
+	 * 
+	 * @param fields    The total number of fields
+	 * @param depth     The number of nodes between the root and each leaf
+	 * @param fanout    The number of children of each inner node
+	 * @param valueType The type of each field: {@code String}, {@code int} or
+	 *                  {@code long}
+	 * @param javadoc   Whether each field has a doc comment
+	 * @return The input sources
+	 */
+	static List<JavaFileObject> generate(int fields, int depth, int fanout, String valueType, boolean javadoc) {
+		List<JavaFileObject> sources = new ArrayList<>();
+
+		// The number of nodes at the bottom of the tree
+		int bottom = (int) Math.min(Math.pow(fanout, depth), Integer.MAX_VALUE);
+
+		StringBuilder source = null;
+		for (int i = 0; i < fields; i++) {
+			if (i % FIELDS_PER_CLASS == 0) {
+				if (source != null)
+					sources.add(toSource(sources.size(), source.append("}\n")));
+
+				source = new StringBuilder();
+				source.append("package ").append(PACKAGE).append(";\n\n");
+				source.append("import com.github.cilki.tree_constants.TreeConstant;\n\n");
+				source.append("class Input").append(sources.size()).append(" {\n");
+			}
+
+			// Distribute the leaves evenly over the bottom of the tree
+			StringBuilder name = new StringBuilder();
+			for (int level = 0, node = i % bottom; level < depth; level++, node /= fanout)
+				name.append('n').append(node % fanout).append('_');
+			name.append('k').append(i);
+
+			if (javadoc)
+				source.append("\t/**\n\t * Synthetic constant number ").append(i).append(".\n\t */\n");
+
+			source.append("\t@TreeConstant(packageName = \"").append(PACKAGE).append("\", name = \"").append(ROOT)
+					.append("\")\n");
+			source.append("\tprivate static final ").append(valueType).append(' ').append(name).append(" = ");
+			switch (valueType) {
+			case "String":
+				source.append('"').append(name.toString().replace('_', '.')).append('"');
+				break;
+			case "int":
+				source.append(i);
+				break;
+			case "long":
+				source.append(i * 1_000_000_007L).append('L');
+				break;
+			default:
+				throw new IllegalArgumentException(valueType);
+			}
+			source.append(";\n\n");
+		}
+
+		if (source != null)
+			sources.add(toSource(sources.size(), source.append("}\n")));
+
+		return sources;
+	}
+
+	private static JavaFileObject toSource(int index, CharSequence content) {
+		String text = content.toString();
+		return new SimpleJavaFileObject(URI.create("mem:///" + PACKAGE + "/Input" + index + ".java"),
+				JavaFileObject.Kind.SOURCE) {
+			@Override
+			public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+				return text;
+			}
+		};
+	}
+
+	private SyntheticTree() {
+	}
+}
@@ -0,0 +1,72 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants.benchmarks;
+
+import java.util.List;
+
+import javax.tools.JavaFileObject;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The parameters of the synthetic input shared by all benchmarks.
+ * 
+ * @author cilki
+ * @since 1.0.0
+ */
+@State(Scope.Benchmark)
+public class TreeShape {
+
+	/**
+	 * The total number of {@code @TreeConstant} fields.
+	 */
+	@Param({ "100", "10000", "100000" })
+	public int fields;
+
+	/**
+	 * The number of nodes between the root and each leaf.
+	 */
+	@Param({ "1", "4" })
+	public int depth;
+
+	/**
+	 * The number of children of each inner node.
+	 */
+	@Param({ "4", "32" })
+	public int fanout;
+
+	@Param({ "String", "int", "long" })
+	public String valueType;
+
+	@Param({ "false", "true" })
+	public boolean javadoc;
+
+	/**
+	 * The generated input sources.
+	 */
+	List<JavaFileObject> sources;
+
+	@Setup(Level.Trial)
+	public void generate() {
+		sources = SyntheticTree.generate(fields, depth, fanout, valueType, javadoc);
+	}
+}
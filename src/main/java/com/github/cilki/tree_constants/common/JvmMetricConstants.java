@@ -0,0 +1,172 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants.common;
+
+import com.github.cilki.tree_constants.TreeConstant;
+
+/**
+ * Names of JVM runtime metrics. Times are in milliseconds and sizes are in
+ * bytes. {@link JvmMetricSampler} reads the values of these metrics.
+ */
+public final class JvmMetricConstants {
+
+	/**
+	 * Number of classes that are currently loaded.
+	 */
+	@TreeConstant
+	private static final String classes_loaded = "jvm.classes.loaded";
+
+	/**
+	 * Number of classes that have been loaded since the JVM started.
+	 */
+	@TreeConstant
+	private static final String classes_total = "jvm.classes.total";
+
+	/**
+	 * Number of classes that have been unloaded since the JVM started.
+	 */
+	@TreeConstant
+	private static final String classes_unloaded = "jvm.classes.unloaded";
+
+	/**
+	 * Number of collections by old generation collectors.
+	 */
+	@TreeConstant
+	private static final String gc_old_count = "jvm.gc.old.count";
+
+	/**
+	 * Accumulated pause time of old generation collections.
+	 */
+	@TreeConstant
+	private static final String gc_old_pause = "jvm.gc.old.pause";
+
+	/**
+	 * Accumulated collection time of old generation collectors. For ZGC this is
+	 * the duration of its major cycles, which mostly run concurrently.
+	 */
+	@TreeConstant
+	private static final String gc_old_time = "jvm.gc.old.time";
+
+	/**
+	 * Number of collections by collectors that are not generational, like ZGC and
+	 * Shenandoah, or that run concurrently.
+	 */
+	@TreeConstant
+	private static final String gc_other_count = "jvm.gc.other.count";
+
+	/**
+	 * Accumulated pause time of collectors that are not generational, like ZGC
+	 * and Shenandoah. Collectors that run concurrently without reporting their
+	 * pauses separately are not included.
+	 */
+	@TreeConstant
+	private static final String gc_other_pause = "jvm.gc.other.pause";
+
+	/**
+	 * Accumulated collection time of collectors that are not generational, like
+	 * ZGC and Shenandoah, or that run concurrently. For concurrent collectors this
+	 * is the duration of their cycles, most of which doesn't pause the
+	 * application.
+	 */
+	@TreeConstant
+	private static final String gc_other_time = "jvm.gc.other.time";
+
+	/**
+	 * Number of collections by young generation collectors.
+	 */
+	@TreeConstant
+	private static final String gc_young_count = "jvm.gc.young.count";
+
+	/**
+	 * Accumulated pause time of young generation collections.
+	 */
+	@TreeConstant
+	private static final String gc_young_pause = "jvm.gc.young.pause";
+
+	/**
+	 * Accumulated collection time of young generation collectors. For ZGC this is
+	 * the duration of its minor cycles, which mostly run concurrently.
+	 */
+	@TreeConstant
+	private static final String gc_young_time = "jvm.gc.young.time";
+
+	/**
+	 * Accumulated time spent in the JIT compiler, or {@code -1} if the JVM doesn't
+	 * measure it.
+	 */
+	@TreeConstant
+	private static final String jit_time = "jvm.jit.time";
+
+	@TreeConstant
+	private static final String memory_heap_committed = "jvm.memory.heap.committed";
+
+	/**
+	 * Maximum size of the heap, or {@code -1} if there is no limit.
+	 */
+	@TreeConstant
+	private static final String memory_heap_max = "jvm.memory.heap.max";
+
+	@TreeConstant
+	private static final String memory_heap_used = "jvm.memory.heap.used";
+
+	@TreeConstant
+	private static final String memory_nonheap_committed = "jvm.memory.nonheap.committed";
+
+	@TreeConstant
+	private static final String memory_nonheap_used = "jvm.memory.nonheap.used";
+
+	/**
+	 * Memory used by all code cache segments.
+	 */
+	@TreeConstant
+	private static final String memory_pool_code__cache_used = "jvm.memory.pool.code_cache.used";
+
+	@TreeConstant
+	private static final String memory_pool_compressed__class_used = "jvm.memory.pool.compressed_class.used";
+
+	@TreeConstant
+	private static final String memory_pool_eden_used = "jvm.memory.pool.eden.used";
+
+	@TreeConstant
+	private static final String memory_pool_metaspace_used = "jvm.memory.pool.metaspace.used";
+
+	@TreeConstant
+	private static final String memory_pool_old_used = "jvm.memory.pool.old.used";
+
+	@TreeConstant
+	private static final String memory_pool_survivor_used = "jvm.memory.pool.survivor.used";
+
+	@TreeConstant
+	private static final String threads_daemon = "jvm.threads.daemon";
+
+	@TreeConstant
+	private static final String threads_live = "jvm.threads.live";
+
+	/**
+	 * Highest number of live threads since the JVM started.
+	 */
+	@TreeConstant
+	private static final String threads_peak = "jvm.threads.peak";
+
+	/**
+	 * Number of threads that have been started since the JVM started.
+	 */
+	@TreeConstant
+	private static final String threads_started = "jvm.threads.started";
+
+}
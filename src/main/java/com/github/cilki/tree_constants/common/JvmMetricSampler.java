@@ -0,0 +1,331 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants.common;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.LongSupplier;
+
+/**
+ * Reads the metrics in {@link JvmMetricConstant} from the platform MXBeans.
+ * Callers choose which subtrees to collect when the sampler is created:
+ * 
+ * <pre>
+ * var sampler = new JvmMetricSampler(JvmMetricConstant.gc.values(), JvmMetricConstant.threads.values());
+ * long[] values = sampler.sample();
+ * long pauses = values[JvmMetricConstantOrdinal.gc.young.time];
+ * </pre>
+ * 
+ * The MXBeans are resolved once in the constructor and every sample is written
+ * to the same array, which is indexed by the ordinals in
+ * {@link JvmMetricConstantOrdinal}. Sampling allocates nothing except
+ * in the {@code memory.nonheap} and {@code memory.pool} subtrees, whose MXBeans
+ * return a new {@code MemoryUsage} on every read.
+ * <p>
+ * Collectors and memory pools are grouped by generation because their names
+ * depend on the garbage collector in use. A sampler is not thread-safe.
+ */
+public final class JvmMetricSampler {
+
+	/**
+	 * The number of metrics in {@link JvmMetricConstant}.
+	 */
+	private static final int SIZE = JvmMetricConstant.keys().size();
+
+	/**
+	 * The generation that a garbage collector belongs to.
+	 */
+	private enum Generation {
+		YOUNG, OLD, OTHER;
+
+		static Generation of(String collector) {
+			switch (collector) {
+			case "Copy":
+			case "PS Scavenge":
+			case "ParNew":
+			case "G1 Young Generation":
+			case "ZGC Minor Cycles":
+			case "ZGC Minor Pauses":
+				return YOUNG;
+			case "MarkSweepCompact":
+			case "PS MarkSweep":
+			case "ConcurrentMarkSweep":
+			case "G1 Old Generation":
+			case "ZGC Major Cycles":
+			case "ZGC Major Pauses":
+				return OLD;
+			default:
+				return OTHER;
+			}
+		}
+	}
+
+	/**
+	 * The most recent sample of every collected metric, indexed by ordinal.
+	 */
+	private final long[] values = new long[SIZE];
+
+	/**
+	 * The reader of every collected metric, indexed by ordinal.
+	 */
+	private final LongSupplier[] readers = new LongSupplier[SIZE];
+
+	/**
+	 * The ordinals of the collected metrics.
+	 */
+	private final int[] ordinals;
+
+	/**
+	 * Create a sampler for the given metrics. Pass {@code values()} of the
+	 * subtrees of {@link JvmMetricConstant} that should be collected.
+	 * 
+	 * @param subtrees The metric names to collect
+	 * @throws IllegalArgumentException If a name is not in
+	 *                                  {@link JvmMetricConstant}
+	 */
+	public JvmMetricSampler(Collection<?>... subtrees) {
+		int[] selected = new int[SIZE];
+		int count = 0;
+		for (Collection<?> subtree : subtrees) {
+			for (Object metric : subtree) {
+				int ordinal = metric instanceof String ? JvmMetricConstant.lookup((String) metric) : -1;
+				if (ordinal == -1)
+					throw new IllegalArgumentException("Unknown metric: " + metric);
+
+				if (readers[ordinal] == null) {
+					readers[ordinal] = reader((String) metric);
+					selected[count++] = ordinal;
+				}
+			}
+		}
+
+		ordinals = Arrays.copyOf(selected, count);
+	}
+
+	/**
+	 * Read every collected metric. Metrics that are not collected are left at
+	 * {@code 0}.
+	 * 
+	 * @return The array of values indexed by ordinal, which is reused by the next
+	 *         sample
+	 */
+	public long[] sample() {
+		for (int ordinal : ordinals)
+			values[ordinal] = readers[ordinal].getAsLong();
+		return values;
+	}
+
+	/**
+	 * Get the value of a metric from the most recent sample.
+	 * 
+	 * @param ordinal The metric's ordinal in {@link JvmMetricConstantOrdinal}
+	 * @return The metric's value
+	 * @throws IllegalArgumentException If the metric is not collected
+	 */
+	public long get(int ordinal) {
+		if (ordinal < 0 || ordinal >= SIZE || readers[ordinal] == null)
+			throw new IllegalArgumentException("Not collected: " + ordinal);
+
+		return values[ordinal];
+	}
+
+	/**
+	 * Build the reader of a metric.
+	 * 
+	 * @param metric The metric name
+	 * @return The reader
+	 */
+	private static LongSupplier reader(String metric) {
+		switch (metric) {
+		case JvmMetricConstant.classes.loaded:
+			return ManagementFactory.getClassLoadingMXBean()::getLoadedClassCount;
+		case JvmMetricConstant.classes.total:
+			return ManagementFactory.getClassLoadingMXBean()::getTotalLoadedClassCount;
+		case JvmMetricConstant.classes.unloaded:
+			return ManagementFactory.getClassLoadingMXBean()::getUnloadedClassCount;
+		case JvmMetricConstant.gc.old.count:
+			return count(collectors(Generation.OLD));
+		case JvmMetricConstant.gc.old.pause:
+			return time(pauses(Generation.OLD));
+		case JvmMetricConstant.gc.old.time:
+			return time(collectors(Generation.OLD));
+		case JvmMetricConstant.gc.other.count:
+			return count(collectors(Generation.OTHER));
+		case JvmMetricConstant.gc.other.pause:
+			return time(pauses(Generation.OTHER));
+		case JvmMetricConstant.gc.other.time:
+			return time(collectors(Generation.OTHER));
+		case JvmMetricConstant.gc.young.count:
+			return count(collectors(Generation.YOUNG));
+		case JvmMetricConstant.gc.young.pause:
+			return time(pauses(Generation.YOUNG));
+		case JvmMetricConstant.gc.young.time:
+			return time(collectors(Generation.YOUNG));
+		case JvmMetricConstant.jit.time:
+			CompilationMXBean jit = ManagementFactory.getCompilationMXBean();
+			if (jit == null || !jit.isCompilationTimeMonitoringSupported())
+				return () -> -1;
+			return jit::getTotalCompilationTime;
+		case JvmMetricConstant.memory.heap.committed:
+			return Runtime.getRuntime()::totalMemory;
+		case JvmMetricConstant.memory.heap.max:
+			Runtime runtime = Runtime.getRuntime();
+			return () -> runtime.maxMemory() == Long.MAX_VALUE ? -1 : runtime.maxMemory();
+		case JvmMetricConstant.memory.heap.used:
+			// Runtime reads the heap without allocating a MemoryUsage
+			Runtime heap = Runtime.getRuntime();
+			return () -> heap.totalMemory() - heap.freeMemory();
+		case JvmMetricConstant.memory.nonheap.committed:
+			MemoryMXBean committed = ManagementFactory.getMemoryMXBean();
+			return () -> committed.getNonHeapMemoryUsage().getCommitted();
+		case JvmMetricConstant.memory.nonheap.used:
+			MemoryMXBean used = ManagementFactory.getMemoryMXBean();
+			return () -> used.getNonHeapMemoryUsage().getUsed();
+		case JvmMetricConstant.memory.pool.code_cache.used:
+		case JvmMetricConstant.memory.pool.compressed_class.used:
+		case JvmMetricConstant.memory.pool.eden.used:
+		case JvmMetricConstant.memory.pool.metaspace.used:
+		case JvmMetricConstant.memory.pool.old.used:
+		case JvmMetricConstant.memory.pool.survivor.used:
+			return used(pools(metric));
+		case JvmMetricConstant.threads.daemon:
+			return ManagementFactory.getThreadMXBean()::getDaemonThreadCount;
+		case JvmMetricConstant.threads.live:
+			return ManagementFactory.getThreadMXBean()::getThreadCount;
+		case JvmMetricConstant.threads.peak:
+			return ManagementFactory.getThreadMXBean()::getPeakThreadCount;
+		case JvmMetricConstant.threads.started:
+			return ManagementFactory.getThreadMXBean()::getTotalStartedThreadCount;
+		default:
+			throw new IllegalArgumentException("Unknown metric: " + metric);
+		}
+	}
+
+	/**
+	 * Get the collectors of a generation. ZGC and Shenandoah report every cycle to
+	 * a "Cycles" bean and each of its pauses to a "Pauses" bean, so only the
+	 * cycles are collections.
+	 * 
+	 * @param generation The generation
+	 * @return The collectors
+	 */
+	private static GarbageCollectorMXBean[] collectors(Generation generation) {
+		return ManagementFactory.getGarbageCollectorMXBeans().stream()
+				.filter(collector -> Generation.of(collector.getName()) == generation)
+				.filter(collector -> !collector.getName().endsWith(" Pauses")).toArray(GarbageCollectorMXBean[]::new);
+	}
+
+	/**
+	 * Get the beans whose collection time is pause time. These are the "Pauses"
+	 * beans of ZGC and Shenandoah and the collectors that stop the world for the
+	 * whole collection. Concurrent collectors that don't report their pauses
+	 * separately are left out.
+	 * 
+	 * @param generation The generation
+	 * @return The beans
+	 */
+	private static GarbageCollectorMXBean[] pauses(Generation generation) {
+		return ManagementFactory.getGarbageCollectorMXBeans().stream()
+				.filter(collector -> Generation.of(collector.getName()) == generation)
+				.filter(collector -> isPause(collector.getName())).toArray(GarbageCollectorMXBean[]::new);
+	}
+
+	private static boolean isPause(String collector) {
+		switch (collector) {
+		case "Copy":
+		case "PS Scavenge":
+		case "ParNew":
+		case "G1 Young Generation":
+		case "MarkSweepCompact":
+		case "PS MarkSweep":
+		case "G1 Old Generation":
+			return true;
+		default:
+			return collector.endsWith(" Pauses");
+		}
+	}
+
+	/**
+	 * Get the memory pools that a pool metric covers.
+	 * 
+	 * @param metric The metric name
+	 * @return The memory pools
+	 */
+	private static MemoryPoolMXBean[] pools(String metric) {
+		return ManagementFactory.getMemoryPoolMXBeans().stream()
+				.filter(pool -> metric.equals(poolMetric(pool.getName()))).toArray(MemoryPoolMXBean[]::new);
+	}
+
+	/**
+	 * Get the metric that covers a memory pool.
+	 * 
+	 * @param pool The pool name
+	 * @return The metric name or {@code null} if no metric covers the pool
+	 */
+	private static String poolMetric(String pool) {
+		if (pool.contains("Eden"))
+			return JvmMetricConstant.memory.pool.eden.used;
+		if (pool.contains("Survivor"))
+			return JvmMetricConstant.memory.pool.survivor.used;
+		if (pool.contains("Old Gen") || pool.contains("Tenured"))
+			return JvmMetricConstant.memory.pool.old.used;
+		if (pool.equals("Metaspace"))
+			return JvmMetricConstant.memory.pool.metaspace.used;
+		if (pool.equals("Compressed Class Space"))
+			return JvmMetricConstant.memory.pool.compressed_class.used;
+		if (pool.startsWith("CodeHeap") || pool.equals("Code Cache"))
+			return JvmMetricConstant.memory.pool.code_cache.used;
+		return null;
+	}
+
+	private static LongSupplier count(GarbageCollectorMXBean[] collectors) {
+		return () -> {
+			long count = 0;
+			for (GarbageCollectorMXBean collector : collectors)
+				count += Math.max(0, collector.getCollectionCount());
+			return count;
+		};
+	}
+
+	private static LongSupplier time(GarbageCollectorMXBean[] collectors) {
+		return () -> {
+			long time = 0;
+			for (GarbageCollectorMXBean collector : collectors)
+				time += Math.max(0, collector.getCollectionTime());
+			return time;
+		};
+	}
+
+	private static LongSupplier used(MemoryPoolMXBean[] pools) {
+		return () -> {
+			long used = 0;
+			for (MemoryPoolMXBean pool : pools) {
+				MemoryUsage usage = pool.getUsage();
+				if (usage != null)
+					used += usage.getUsed();
+			}
+			return used;
+		};
+	}
+}
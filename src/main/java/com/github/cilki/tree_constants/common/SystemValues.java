@@ -0,0 +1,249 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants.common;
+
+import static java.lang.invoke.MethodType.methodType;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MutableCallSite;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Typed and cached views of common system properties. Each value is parsed the
+ * first time it is read. Its call site is then bound to a constant, so the JIT
+ * can fold the value into callers like a {@code static final} field.
+ * <p>
+ * System properties rarely change after startup. If one does, call
+ * {@link #refresh()} and every value is parsed again on its next read.
+ * 
+ * @author cilki
+ * @since 1.0.0
+ */
+public final class SystemValues {
+
+	/**
+	 * The byte order of the CPU.
+	 */
+	public enum Endian {
+		BIG, LITTLE;
+	}
+
+	/**
+	 * The call site of every value and the handle that resolves it.
+	 */
+	private static final Map<MutableCallSite, MethodHandle> SITES = new LinkedHashMap<>();
+
+	private static final MethodHandle RESOLVE;
+
+	static {
+		try {
+			RESOLVE = MethodHandles.lookup().findStatic(SystemValues.class, "resolve",
+					methodType(Object.class, MutableCallSite.class, String.class, Function.class));
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private static final MethodHandle FILE_SEPARATOR = site(SystemConstant.file.separator,
+			text -> text == null || text.isEmpty() ? '/' : text.charAt(0));
+
+	private static final MethodHandle JAVA_HOME = site(SystemConstant.java.home, SystemValues::toPath);
+
+	private static final MethodHandle JAVA_IO_TMPDIR = site(SystemConstant.java.io.tmpdir, SystemValues::toPath);
+
+	private static final MethodHandle JAVA_VERSION = site(SystemConstant.java.version, SystemValues::toVersion);
+
+	private static final MethodHandle LINE_SEPARATOR = site(SystemConstant.line.separator,
+			text -> text == null ? "\n" : text);
+
+	private static final MethodHandle OS_NAME = site(SystemConstant.os.name, text -> text);
+
+	private static final MethodHandle PATH_SEPARATOR = site(SystemConstant.path.separator,
+			text -> text == null || text.isEmpty() ? ':' : text.charAt(0));
+
+	private static final MethodHandle SUN_CPU_ENDIAN = site(SystemConstant.sun.cpu.endian, SystemValues::toEndian);
+
+	private static final MethodHandle USER_DIR = site(SystemConstant.user.dir, SystemValues::toPath);
+
+	private static final MethodHandle USER_HOME = site(SystemConstant.user.home, SystemValues::toPath);
+
+	/**
+	 * @return The {@code file.separator} property as a character
+	 */
+	public static char fileSeparator() {
+		return (Character) get(FILE_SEPARATOR);
+	}
+
+	/**
+	 * @return The {@code java.home} property as a {@link Path}
+	 */
+	public static Path javaHome() {
+		return (Path) get(JAVA_HOME);
+	}
+
+	/**
+	 * @return The {@code java.io.tmpdir} property as a {@link Path}
+	 */
+	public static Path tmpdir() {
+		return (Path) get(JAVA_IO_TMPDIR);
+	}
+
+	/**
+	 * @return The {@code java.version} property parsed as a
+	 *         {@link Runtime.Version}, or the runtime's version if it cannot be
+	 *         parsed
+	 */
+	public static Runtime.Version javaVersion() {
+		return (Runtime.Version) get(JAVA_VERSION);
+	}
+
+	/**
+	 * @return The {@code line.separator} property
+	 */
+	public static String lineSeparator() {
+		return (String) get(LINE_SEPARATOR);
+	}
+
+	/**
+	 * @return The {@code os.name} property
+	 */
+	public static String osName() {
+		return (String) get(OS_NAME);
+	}
+
+	/**
+	 * @return The {@code path.separator} property as a character
+	 */
+	public static char pathSeparator() {
+		return (Character) get(PATH_SEPARATOR);
+	}
+
+	/**
+	 * @return The {@code sun.cpu.endian} property, or the native byte order if
+	 *         it's not set
+	 */
+	public static Endian cpuEndian() {
+		return (Endian) get(SUN_CPU_ENDIAN);
+	}
+
+	/**
+	 * @return The {@code user.dir} property as a {@link Path}
+	 */
+	public static Path userDir() {
+		return (Path) get(USER_DIR);
+	}
+
+	/**
+	 * @return The {@code user.home} property as a {@link Path}
+	 */
+	public static Path userHome() {
+		return (Path) get(USER_HOME);
+	}
+
+	/**
+	 * Discard every cached value so that it's parsed again from the current
+	 * system properties on its next read.
+	 */
+	public static synchronized void refresh() {
+		SITES.forEach(MutableCallSite::setTarget);
+		MutableCallSite.syncAll(SITES.keySet().toArray(MutableCallSite[]::new));
+	}
+
+	/**
+	 * Read a value through its call site. The accessors pass a {@code static final}
+	 * invoker, so once this is inlined the JIT sees a constant call site and folds
+	 * its bound target.
+	 * 
+	 * @param invoker The invoker of the value's call site
+	 * @return The value
+	 */
+	private static Object get(MethodHandle invoker) {
+		try {
+			return invoker.invokeExact();
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Create the call site of a value.
+	 * 
+	 * @param property The system property
+	 * @param parser   Converts the property, which may be {@code null}, into the
+	 *                 value
+	 * @return An invoker for the call site
+	 */
+	private static MethodHandle site(String property, Function<String, ?> parser) {
+		var site = new MutableCallSite(methodType(Object.class));
+		MethodHandle resolver = MethodHandles.insertArguments(RESOLVE, 0, site, property, parser);
+
+		site.setTarget(resolver);
+		SITES.put(site, resolver);
+		return site.dynamicInvoker();
+	}
+
+	/**
+	 * Parse a value and bind its call site to the result. This holds the same lock
+	 * as {@link #refresh()}, so a value parsed before a refresh is never bound
+	 * after it.
+	 * 
+	 * @param site     The call site
+	 * @param property The system property
+	 * @param parser   Converts the property into the value
+	 * @return The value, which may be {@code null}
+	 */
+	private static synchronized Object resolve(MutableCallSite site, String property, Function<String, ?> parser) {
+		Object value = parser.apply(System.getProperty(property));
+		site.setTarget(MethodHandles.constant(Object.class, value));
+		return value;
+	}
+
+	private static Path toPath(String text) {
+		return text == null ? null : Paths.get(text);
+	}
+
+	private static Runtime.Version toVersion(String text) {
+		if (text != null) {
+			try {
+				return Runtime.Version.parse(text);
+			} catch (IllegalArgumentException e) {
+				// Fall back to the runtime's version
+			}
+		}
+		return Runtime.version();
+	}
+
+	private static Endian toEndian(String text) {
+		if ("big".equals(text))
+			return Endian.BIG;
+		if ("little".equals(text))
+			return Endian.LITTLE;
+		return ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN ? Endian.BIG : Endian.LITTLE;
+	}
+
+	private SystemValues() {
+	}
+}
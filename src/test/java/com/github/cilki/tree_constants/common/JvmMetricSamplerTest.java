@@ -0,0 +1,123 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class JvmMetricSamplerTest {
+
+	@Test
+	@DisplayName("Collect only the selected subtrees")
+	void test_1() {
+		var sampler = new JvmMetricSampler(JvmMetricConstant.threads.values(), JvmMetricConstant.classes.values());
+		long[] values = sampler.sample();
+
+		assertTrue(sampler.get(JvmMetricConstantOrdinal.threads.live) >= 1);
+		assertEquals(values[JvmMetricConstantOrdinal.threads.live], sampler.get(JvmMetricConstantOrdinal.threads.live));
+		assertTrue(sampler.get(JvmMetricConstantOrdinal.classes.total) >= sampler.get(
+				JvmMetricConstantOrdinal.classes.loaded));
+
+		assertThrows(IllegalArgumentException.class, () -> sampler.get(JvmMetricConstantOrdinal.jit.time));
+		assertEquals(0, values[JvmMetricConstantOrdinal.jit.time]);
+		assertSame(values, sampler.sample());
+	}
+
+	@Test
+	@DisplayName("Read every metric")
+	void test_2() {
+		var sampler = new JvmMetricSampler(JvmMetricConstant.values());
+		sampler.sample();
+
+		assertTrue(sampler.get(JvmMetricConstantOrdinal.memory.heap.used) > 0);
+		assertTrue(sampler.get(JvmMetricConstantOrdinal.memory.heap.used) <= sampler.get(
+				JvmMetricConstantOrdinal.memory.heap.committed));
+		assertTrue(sampler.get(JvmMetricConstantOrdinal.memory.nonheap.used) > 0);
+		assertTrue(sampler.get(JvmMetricConstantOrdinal.memory.pool.metaspace.used) > 0);
+		assertTrue(sampler.get(JvmMetricConstantOrdinal.gc.young.count) >= 0);
+		assertTrue(sampler.get(JvmMetricConstantOrdinal.gc.old.time) >= 0);
+		assertTrue(sampler.get(JvmMetricConstantOrdinal.gc.young.pause) <= sampler.get(
+				JvmMetricConstantOrdinal.gc.young.time));
+		assertTrue(sampler.get(JvmMetricConstantOrdinal.gc.old.pause) <= sampler.get(
+				JvmMetricConstantOrdinal.gc.old.time));
+		assertTrue(sampler.get(JvmMetricConstantOrdinal.threads.peak) >= sampler.get(
+				JvmMetricConstantOrdinal.threads.live));
+	}
+
+	@Test
+	@DisplayName("Reject unknown metrics")
+	void test_3() {
+		assertThrows(IllegalArgumentException.class, () -> new JvmMetricSampler(List.of("jvm.gc")));
+		assertThrows(IllegalArgumentException.class, () -> new JvmMetricSampler(List.of(1)));
+
+		var sampler = new JvmMetricSampler(JvmMetricConstant.threads.values());
+		assertThrows(IllegalArgumentException.class, () -> sampler.get(-1));
+		assertThrows(IllegalArgumentException.class, () -> sampler.get(JvmMetricConstantStore.SIZE));
+	}
+
+	@Test
+	@DisplayName("Sample without allocating")
+	void test_4() {
+		assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		var threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+		var sampler = new JvmMetricSampler(JvmMetricConstant.gc.values(), JvmMetricConstant.threads.values(),
+				JvmMetricConstant.classes.values(), JvmMetricConstant.jit.values(),
+				JvmMetricConstant.memory.heap.values());
+		for (int i = 0; i < 10000; i++)
+			sampler.sample();
+
+		long id = Thread.currentThread().getId();
+
+		// The JIT compiler or a safepoint may allocate on this thread while it
+		// samples, so measure a few times and expect at least one clean run
+		long allocated = Long.MAX_VALUE;
+		for (int attempt = 0; attempt < 5 && allocated != 0; attempt++) {
+			long start = threads.getThreadAllocatedBytes(id);
+			long baseline = threads.getThreadAllocatedBytes(id) - start;
+
+			start = threads.getThreadAllocatedBytes(id);
+			for (int i = 0; i < 1000; i++)
+				sampler.sample();
+			allocated = threads.getThreadAllocatedBytes(id) - start - baseline;
+		}
+		assertEquals(0, allocated, allocated + " bytes");
+	}
+
+	@Test
+	@DisplayName("Use the same ordinals as the lookup")
+	void test_5() {
+		for (Object metric : JvmMetricConstant.values())
+			assertTrue(JvmMetricConstant.lookup((String) metric) >= 0);
+		assertEquals(JvmMetricConstant.lookup(JvmMetricConstant.gc.young.time),
+				JvmMetricConstantOrdinal.gc.young.time);
+		assertEquals(JvmMetricConstant.lookup(JvmMetricConstant.threads.live), JvmMetricConstantOrdinal.threads.live);
+		assertEquals(JvmMetricConstant.lookup(JvmMetricConstant.memory.pool.code_cache.used),
+				JvmMetricConstantOrdinal.memory.pool.code_cache.used);
+	}
+}
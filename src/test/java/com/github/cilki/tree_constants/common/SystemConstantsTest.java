@@ -18,6 +18,10 @@
 package com.github.cilki.tree_constants.common;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
 
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -64,4 +68,31 @@ class SystemConstantsTest {
 		assertEquals("user.name", SystemConstant.user.name);
 		assertEquals("user.timezone", SystemConstant.user.timezone);
 	}
+
+	@Test
+	@DisplayName("Look up constants by value")
+	void test_2() {
+		assertEquals("java.io.tmpdir", SystemConstant.path(SystemConstant.lookup("java.io.tmpdir")));
+		assertEquals("java.class_path", SystemConstant.path(SystemConstant.lookup("java.class.path")));
+		assertEquals("user.timezone", SystemConstant.path(SystemConstant.lookup(SystemConstant.user.timezone)));
+
+		assertEquals(-1, SystemConstant.lookup("java.io"));
+		assertEquals(-1, SystemConstant.lookup(""));
+		assertEquals(-1, SystemConstant.lookup(null));
+		assertTrue(SystemConstant.lookup("os.name") >= 0);
+	}
+
+	@Test
+	@DisplayName("Enumerate subtrees")
+	void test_3() {
+		assertEquals(List.of("java.vm.info", "java.vm.name", "java.vm.version", "java.vm.specification.version"),
+				SystemConstant.java.vm.keys());
+		assertEquals(List.of("java.vm.info", "java.vm.name", "java.vm.version", "java.vm.specification.version"),
+				SystemConstant.java.vm.values());
+		assertEquals(List.of("os.arch", "os.name", "os.version"), SystemConstant.os.values());
+
+		assertEquals(SystemConstant.keys().size(), SystemConstant.values().size());
+		assertTrue(SystemConstant.keys().containsAll(SystemConstant.java.keys()));
+		assertSame(SystemConstant.java.keys(), SystemConstant.java.keys());
+	}
 }
@@ -0,0 +1,110 @@
+/******************************************************************************
+ *                                                                            *
+ *  Copyright 2019 Tyler Cook (https://github.com/cilki)                      *
+ *                                                                            *
+ *  Licensed under the Apache License, Version 2.0 (the "License");           *
+ *  you may not use this file except in compliance with the License.          *
+ *  You may obtain a copy of the License at                                   *
+ *                                                                            *
+ *      http://www.apache.org/licenses/LICENSE-2.0                            *
+ *                                                                            *
+ *  Unless required by applicable law or agreed to in writing, software       *
+ *  distributed under the License is distributed on an "AS IS" BASIS,         *
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ *  See the License for the specific language governing permissions and       *
+ *  limitations under the License.                                            *
+ *                                                                            *
+ *****************************************************************************/
+package com.github.cilki.tree_constants.common;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.ByteOrder;
+import java.nio.file.Paths;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.github.cilki.tree_constants.common.SystemValues.Endian;
+
+class SystemValuesTest {
+
+	@Test
+	@DisplayName("Parse system properties")
+	void test_1() {
+		assertEquals(Paths.get(System.getProperty("java.io.tmpdir")), SystemValues.tmpdir());
+		assertEquals(Paths.get(System.getProperty("user.home")), SystemValues.userHome());
+		assertEquals(File.separatorChar, SystemValues.fileSeparator());
+		assertEquals(File.pathSeparatorChar, SystemValues.pathSeparator());
+		assertEquals(System.lineSeparator(), SystemValues.lineSeparator());
+		assertEquals(Runtime.version().feature(), SystemValues.javaVersion().feature());
+		assertEquals(ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN ? Endian.BIG : Endian.LITTLE,
+				SystemValues.cpuEndian());
+	}
+
+	@Test
+	@DisplayName("Cache values until refreshed")
+	void test_2() {
+		String original = System.getProperty("os.name");
+		try {
+			assertSame(SystemValues.tmpdir(), SystemValues.tmpdir());
+			assertEquals(original, SystemValues.osName());
+
+			System.setProperty("os.name", "test");
+			assertEquals(original, SystemValues.osName());
+
+			SystemValues.refresh();
+			assertEquals("test", SystemValues.osName());
+		} finally {
+			System.setProperty("os.name", original);
+			SystemValues.refresh();
+		}
+		assertEquals(original, SystemValues.osName());
+	}
+
+	@Test
+	@DisplayName("Cache properties that are not set")
+	void test_3() {
+		String original = System.getProperty("os.name");
+		try {
+			System.clearProperty("os.name");
+			SystemValues.refresh();
+			assertNull(SystemValues.osName());
+
+			System.setProperty("os.name", "test");
+			assertNull(SystemValues.osName());
+		} finally {
+			System.setProperty("os.name", original);
+			SystemValues.refresh();
+		}
+		assertEquals(original, SystemValues.osName());
+	}
+
+	@Test
+	@DisplayName("Rebind values that were folded")
+	void test_4() {
+		String original = System.getProperty("os.name");
+		try {
+			// Give the JIT a chance to compile the bound call site
+			int length = 0;
+			for (int i = 0; i < 100_000; i++)
+				length += SystemValues.osName().length() + SystemValues.fileSeparator();
+			assertTrue(length > 0);
+
+			System.setProperty("os.name", "test");
+			assertEquals(original, SystemValues.osName());
+
+			SystemValues.refresh();
+			assertEquals("test", SystemValues.osName());
+			assertEquals(File.separatorChar, SystemValues.fileSeparator());
+		} finally {
+			System.setProperty("os.name", original);
+			SystemValues.refresh();
+		}
+		assertEquals(original, SystemValues.osName());
+	}
+}